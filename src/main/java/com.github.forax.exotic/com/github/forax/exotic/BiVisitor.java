@@ -0,0 +1,142 @@
+package com.github.forax.exotic;
+
+import static java.lang.invoke.MethodHandles.insertArguments;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * An open visitor based on lambdas that selects the computation depending on the classes
+ * of two expressions (a multi-method with two receivers).
+ * 
+ * The visitor let you ({@link Registry#register(Class, Class, Visitlet)}) a computation for any pair of types
+ * and then when {@link BiVisitor#visit(Object, Object, Object) visiting} the visitor, the right computation
+ * is called depending on the classes of the two expressions.
+ * If no computation is registered for the pair of classes, the computation registered for the most specific
+ * pair of supertypes is called.
+ * 
+ * The implementation uses two levels of inlining caches, the first one on the class of the left expression,
+ * the second one, specific to a left class, on the class of the right expression.
+ * 
+ * By example, to implement an addition that promotes its operands
+ * <pre>
+ *   private static final BiVisitor&lt;Void, Number&gt; ADD = BiVisitor.create(Void.class, Number.class, opt -&gt; opt
+ *       .register(Integer.class, Integer.class, (visitor, left, right, __) -&gt; left + right)
+ *       .register(Integer.class, Double.class,  (visitor, left, right, __) -&gt; left + right)
+ *       .register(Double.class,  Number.class,  (visitor, left, right, __) -&gt; left + right.doubleValue())
+ *       );
+ *   ...
+ *   Number result = ADD.visit(2, 3.5, null);  // 5.5
+ * </pre>
+ *
+ * @param <P> type of the parameter value (the inherited attribute)
+ * @param <R> type of the return value (the synthesized attribute)
+ * 
+ * @see Visitor
+ */
+@FunctionalInterface
+public interface BiVisitor<P, R> {
+  /**
+   * Visit one of the {@link Visitlet} depending on the classes of the expressions {@code left} and {@code right}.
+   * 
+   * @param left the first expression
+   * @param right the second expression
+   * @param parameter a parameter or null.
+   * @return the return value of the called {@link Visitlet}.
+   * @throws NullPointerException if {@code left} or {@code right} is null.
+   * @throws IllegalStateException if the pair of expression classes and their supertypes have no corresponding visitlet
+   *   defined or if several visitlets are defined for unrelated pairs of supertypes.
+   */
+  R visit(Object left, Object right, P parameter);
+  
+  /**
+   * A computation part of a visitor specific for a pair of types.
+   *
+   * @param <T> the type of the first expression.
+   * @param <U> the type of the second expression.
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   * 
+   * @see Registry#register(Class, Class, Visitlet)
+   * @see BiVisitor#visit(Object, Object, Object)
+   */
+  @FunctionalInterface
+  interface Visitlet<T, U, P, R> {
+    /**
+     * The computation for a pair of expressions.
+     * 
+     * @param visitor a visitor that can be called to do a recursive computation.
+     * @param left the first expression.
+     * @param right the second expression.
+     * @param parameter the value of a parameter or null.
+     * @return the value of the computation.
+     */
+    R visit(BiVisitor<P, R> visitor, T left, U right, P parameter);
+  }
+  
+  /**
+   * Registry that contains the association between a pair of types and its corresponding computation
+   * as a {@link Visitlet}. 
+   *
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   */
+  interface Registry<P, R> {
+    /**
+     * Register a computation for a specific pair of types.
+     * 
+     * @param <T> type of the first expression.
+     * @param <U> type of the second expression.
+     * @param leftType the class of the first expression.
+     * @param rightType the class of the second expression.
+     * @param visitlet a computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code leftType}, {@code rightType} or {@code visitlet} is null.
+     * @throws IllegalStateException if a computation has already register for the pair of types.
+     */
+    <T, U> Registry<P, R> register(Class<T> leftType, Class<U> rightType, Visitlet<? super T, ? super U, ? super P, ? extends R> visitlet);
+  }
+  
+  /**
+   * Creates a visitor with the {@link Visitlet visitlets} registered in the {@link Registry}. 
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param <R> type of the return value.
+   * @param pType class of the parameter type.
+   * @param rType class of the return type.
+   * @param consumer consumer that will register the {@link Visitlet visitlet} in the {@link Registry}.
+   * @return a visitor configured with the {@link Visitlet visitlets}.
+   * @throws NullPointerException if {@code pType}, {@code rType} or {@code consumer} is null.
+   */
+  static <P, R> BiVisitor<P, R> create(Class<P> pType, Class<R> rType, Consumer<? super Registry<P, R>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(rType);
+    Objects.requireNonNull(consumer);
+    ArrayList<BiVisitorCallSite.Case> cases = new ArrayList<>();
+    ClassValue<ClassValue<MethodHandle>> resolver = BiVisitorCallSite.resolver(cases);
+    
+    MethodType methodType = MethodType.methodType(rType, Object.class, Object.class, pType);
+    consumer.accept(new Registry<P, R>() {
+      @Override
+      public <T, U> Registry<P, R> register(Class<T> leftType, Class<U> rightType, Visitlet<? super T, ? super U, ? super P, ? extends R> visitlet) {
+        Objects.requireNonNull(leftType);
+        Objects.requireNonNull(rightType);
+        Objects.requireNonNull(visitlet);
+        for(BiVisitorCallSite.Case c: cases) {
+          if (c.leftType == leftType && c.rightType == rightType) {
+            throw new IllegalStateException("there is already a visitlet register for types " + leftType.getName() + " and " + rightType.getName());
+          }
+        }
+        MethodHandle mh = insertArguments(BiVisitorCallSite.VISIT, 0, visitlet, BiVisitorCallSite.visitor(methodType, resolver))
+            .asType(methodType.changeParameterType(0, leftType).changeParameterType(1, rightType))
+            .asType(methodType);
+        cases.add(new BiVisitorCallSite.Case(leftType, rightType, mh));
+        return this;
+      }
+    });
+    return BiVisitorCallSite.visitor(methodType, resolver);
+  }
+}
@@ -0,0 +1,192 @@
+package com.github.forax.exotic;
+
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.exactInvoker;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.github.forax.exotic.BiVisitor.Visitlet;
+
+/**
+ * A two levels inlining cache, the first level (with {@code leftClass} null) dispatches on
+ * the class of the left expression to a second level specific to that class,
+ * that dispatches on the class of the right expression.
+ */
+class BiVisitorCallSite extends MutableCallSite {
+  private static final MethodHandle FALLBACK, TYPECHECK, FIND, FIND_RIGHT;
+  static final MethodHandle VISIT;
+  static {
+    Lookup lookup = MethodHandles.lookup();
+    try {
+      FALLBACK = lookup.findVirtual(BiVisitorCallSite.class, "fallback", methodType(MethodHandle.class, Object.class, Object.class));
+      VISIT = lookup.findVirtual(Visitlet.class, "visit", methodType(Object.class, BiVisitor.class, Object.class, Object.class, Object.class));
+      TYPECHECK = lookup.findStatic(BiVisitorCallSite.class, "typecheck", methodType(boolean.class, Class.class, Object.class));
+      FIND = lookup.findStatic(BiVisitorCallSite.class, "find", methodType(MethodHandle.class, ClassValue.class, Object.class, Object.class));
+      FIND_RIGHT = lookup.findStatic(BiVisitorCallSite.class, "findRight", methodType(MethodHandle.class, ClassValue.class, Object.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+  
+  private static final int MAX_DEPTH = 8;
+  
+  static final class Case {
+    final Class<?> leftType;
+    final Class<?> rightType;
+    final MethodHandle target;
+    
+    Case(Class<?> leftType, Class<?> rightType, MethodHandle target) {
+      this.leftType = leftType;
+      this.rightType = rightType;
+      this.target = target;
+    }
+    
+    boolean isApplicable(Class<?> leftClass, Class<?> rightClass) {
+      return leftType.isAssignableFrom(leftClass) && rightType.isAssignableFrom(rightClass);
+    }
+    
+    boolean isMoreSpecificThan(Case c) {
+      return c.leftType.isAssignableFrom(leftType) && c.rightType.isAssignableFrom(rightType);
+    }
+  }
+  
+  /**
+   * Creates a resolver that finds for a pair of classes the visitlet of the most specific applicable case.
+   * The resolution is done once per pair of classes and cached.
+   */
+  static ClassValue<ClassValue<MethodHandle>> resolver(List<Case> cases) {
+    return new ClassValue<ClassValue<MethodHandle>>() {
+      @Override
+      protected ClassValue<MethodHandle> computeValue(Class<?> leftClass) {
+        return new ClassValue<MethodHandle>() {
+          @Override
+          protected MethodHandle computeValue(Class<?> rightClass) {
+            return resolve(cases, leftClass, rightClass);
+          }
+        };
+      }
+    };
+  }
+  
+  static MethodHandle resolve(List<Case> cases, Class<?> leftClass, Class<?> rightClass) {
+    ArrayList<Case> applicables = new ArrayList<>();
+    for(Case c: cases) {
+      if (c.isApplicable(leftClass, rightClass)) {
+        applicables.add(c);
+      }
+    }
+    loop: for(Case c: applicables) {
+      for(Case other: applicables) {
+        if (!c.isMoreSpecificThan(other)) {
+          continue loop;
+        }
+      }
+      return c.target;
+    }
+    if (applicables.isEmpty()) {
+      return null;
+    }
+    throw new IllegalStateException("types " + leftClass.getName() + " and " + rightClass.getName() + " have several visitlets");
+  }
+  
+  static <P, R> BiVisitor<P, R> visitor(MethodType methodType, ClassValue<ClassValue<MethodHandle>> resolver) {
+    MethodHandle mh = new BiVisitorCallSite(methodType, null, resolver)
+        .dynamicInvoker()
+        .asType(methodType(Object.class, Object.class, Object.class, Object.class));
+    return (left, right, parameter) -> {
+      Objects.requireNonNull(left);
+      Objects.requireNonNull(right);
+      try {
+        return (R)mh.invokeExact(left, right, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  private final int depth;
+  private final BiVisitorCallSite callsite;
+  private final Class<?> leftClass;
+  private final ClassValue<ClassValue<MethodHandle>> resolver;
+  
+  private BiVisitorCallSite(MethodType methodType, Class<?> leftClass, ClassValue<ClassValue<MethodHandle>> resolver) {
+    super(methodType);
+    this.depth = 0;
+    this.callsite = this;
+    this.leftClass = leftClass;
+    this.resolver = resolver;
+    setTarget(foldArguments(exactInvoker(methodType), FALLBACK.bindTo(this)));
+  }
+  
+  private BiVisitorCallSite(MethodType methodType, BiVisitorCallSite callsite, int depth, Class<?> leftClass, ClassValue<ClassValue<MethodHandle>> resolver) {
+    super(methodType);
+    this.depth = depth;
+    this.callsite = callsite;
+    this.leftClass = leftClass;
+    this.resolver = resolver;
+    setTarget(foldArguments(exactInvoker(methodType), FALLBACK.bindTo(this)));
+  }
+  
+  @SuppressWarnings("unused")
+  private MethodHandle fallback(Object left, Object right) {
+    if (leftClass == null) {
+      return leftFallback(left, right);
+    }
+    return rightFallback(left, right);
+  }
+  
+  private MethodHandle leftFallback(Object left, Object right) {
+    Class<?> receiverClass = left.getClass();
+    if (depth == MAX_DEPTH) {
+      callsite.setTarget(foldArguments(exactInvoker(type()), FIND.bindTo(resolver)));
+      return find(resolver, left, right);
+    }
+    
+    MethodHandle target = new BiVisitorCallSite(type(), receiverClass, resolver).dynamicInvoker();
+    setTarget(guardWithTest(TYPECHECK.bindTo(receiverClass),
+        target,
+        new BiVisitorCallSite(type(), callsite, depth + 1, null, resolver).dynamicInvoker()));
+    return target;
+  }
+  
+  private MethodHandle rightFallback(Object left, Object right) {
+    ClassValue<MethodHandle> rightResolver = resolver.get(leftClass);
+    MethodHandle target = findRight(rightResolver, left, right);
+    if (depth == MAX_DEPTH) {
+      callsite.setTarget(foldArguments(exactInvoker(type()), FIND_RIGHT.bindTo(rightResolver)));
+      return target;
+    }
+    
+    setTarget(guardWithTest(dropArguments(TYPECHECK.bindTo(right.getClass()), 0, Object.class),
+        target,
+        new BiVisitorCallSite(type(), callsite, depth + 1, leftClass, resolver).dynamicInvoker()));
+    return target;
+  }
+
+  @SuppressWarnings("unused")
+  private static boolean typecheck(Class<?> receiverClass, Object receiver) {
+    return receiverClass == receiver.getClass();
+  }
+  
+  private static MethodHandle find(ClassValue<ClassValue<MethodHandle>> resolver, Object left, Object right) {
+    return findRight(resolver.get(left.getClass()), left, right);
+  }
+  
+  private static MethodHandle findRight(ClassValue<MethodHandle> rightResolver, Object left, Object right) {
+    MethodHandle target = rightResolver.get(right.getClass());
+    if (target == null) {
+      throw new IllegalStateException("no visitlet register for types " + left.getClass().getName() + " and " + right.getClass().getName());
+    }
+    return target;
+  }
+}
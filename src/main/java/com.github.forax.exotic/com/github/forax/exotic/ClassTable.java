@@ -0,0 +1,142 @@
+package com.github.forax.exotic;
+
+import static com.github.forax.exotic.TypeSwitch.NO_MATCH;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * An open addressing hash table keyed by the identity of the classes that associates to
+ * a receiver class the index of its first matching typecase.
+ *
+ * The table is populated lazily, the index of a class is computed from the indexes of its supertypes,
+ * the entries are copied on write so a reader always sees a fully initialized table.
+ * Unlike a {@link ClassValue}, the table keeps the classes it has seen reachable.
+ *
+ * An {@link #exact(Class[], int[]) exact} table is fully populated at creation
+ * and rejects any other class.
+ */
+final class ClassTable {
+  private static final int ABSENT = Integer.MIN_VALUE;
+
+  private static final class Entries {
+    final Class<?>[] keys;
+    final int[] indexes;
+    final int size;
+
+    Entries(Class<?>[] keys, int[] indexes, int size) {
+      this.keys = keys;
+      this.indexes = indexes;
+      this.size = size;
+    }
+
+    int lookup(Class<?> type) {
+      Class<?>[] keys = this.keys;
+      int mask = keys.length - 1;
+      for(int i = hash(type) & mask;; i = (i + 1) & mask) {
+        Class<?> key = keys[i];
+        if (key == type) {
+          return indexes[i];
+        }
+        if (key == null) {
+          return ABSENT;
+        }
+      }
+    }
+
+    Entries add(Class<?> type, int index) {
+      int capacity = keys.length;
+      if ((size + 1) << 1 > capacity) {
+        capacity <<= 1;
+      }
+      Class<?>[] keys = new Class<?>[capacity];
+      int[] indexes = new int[capacity];
+      for(int i = 0; i < this.keys.length; i++) {
+        Class<?> key = this.keys[i];
+        if (key != null) {
+          insert(keys, indexes, key, this.indexes[i]);
+        }
+      }
+      insert(keys, indexes, type, index);
+      return new Entries(keys, indexes, size + 1);
+    }
+
+    private static void insert(Class<?>[] keys, int[] indexes, Class<?> type, int index) {
+      int mask = keys.length - 1;
+      int i = hash(type) & mask;
+      while(keys[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = type;
+      indexes[i] = index;
+    }
+  }
+
+  private final boolean exact;
+  private volatile Entries entries;
+
+  private ClassTable(boolean exact, Entries entries) {
+    this.exact = exact;
+    this.entries = entries;
+  }
+
+  ClassTable(WeakReference<Class<?>>[] refs) {
+    this.exact = false;
+    Entries entries = new Entries(new Class<?>[2], new int[2], 0);
+    for(int i = 0; i < refs.length; i++) {
+      Class<?> typecase = refs[i].get();
+      if (typecase != null && entries.lookup(typecase) == ABSENT) {
+        entries = entries.add(typecase, i);
+      }
+    }
+    this.entries = entries;
+  }
+
+  int index(Class<?> type) {
+    int index = entries.lookup(type);
+    if (index != ABSENT) {
+      return index;
+    }
+    return add(type);
+  }
+
+  static ClassTable exact(Class<?>[] classes, int[] indexes) {
+    Entries entries = new Entries(new Class<?>[2], new int[2], 0);
+    for(int i = 0; i < classes.length; i++) {
+      entries = entries.add(classes[i], indexes[i]);
+    }
+    return new ClassTable(true, entries);
+  }
+
+  private synchronized int add(Class<?> type) {
+    if (exact) {
+      throw new IncompatibleClassChangeError("unexpected class " + type.getName());
+    }
+    int index = entries.lookup(type);  // may have been added by another thread
+    if (index != ABSENT) {
+      return index;
+    }
+    index = computeFromSupertypes(type);
+    entries = entries.add(type, index);
+    return index;
+  }
+
+  private int computeFromSupertypes(Class<?> type) {
+    int index = NO_MATCH;
+    Class<?> superclass = type.getSuperclass();
+    if (superclass != null) {
+      index = index(superclass);
+    }
+    for(Class<?> supertype: type.getInterfaces()) {
+      int localIndex = index(supertype);
+      if (localIndex != NO_MATCH) {
+        index = (index == NO_MATCH)? localIndex: Math.min(index, localIndex);
+      }
+    }
+    return index;
+  }
+
+  static int hash(Class<?> type) {
+    int hash = System.identityHashCode(type);
+    return hash ^ (hash >>> 16);
+  }
+}
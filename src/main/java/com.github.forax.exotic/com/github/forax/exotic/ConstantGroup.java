@@ -0,0 +1,164 @@
+package com.github.forax.exotic;
+
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MutableCallSite;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A group of {@link MostlyConstant}s that are changed together atomically. When several constants
+ * of the group are changed by {@link MostlyConstant#updateAll(Map)}, the call sites of these
+ * constants and the call site of the snapshot of the group are all changed with the lock of the
+ * group held and the VM is asked to de-optimize the codes once.
+ *
+ * <p>The getters of each constant of the group are constants for the Virtual Machine like the
+ * getters of any {@link MostlyConstant}. To read several constants of the group consistently, i.e.
+ * to see either all the old values or all the new values of a change, the values should be read
+ * from a {@link Snapshot} returned by the {@link #snapshotGetter() snapshot getter}. Reading a
+ * snapshot requires no lock and the snapshot itself is a constant until the next change, but the
+ * values of a snapshot are stored in an array, so {@link Snapshot#get(MostlyConstant)} is a real
+ * load from that array and its result is not a constant for the Virtual Machine.
+ *
+ * <p>Each constant of the group has its own call site, so the getter of a constant is folded to a
+ * constant independently of the size of the group.
+ *
+ * <p>Example of usage
+ *
+ * <pre>
+ *   private static final ConstantGroup CONFIG = new ConstantGroup();
+ *   private static final MostlyConstant&lt;Integer&gt; TIMEOUT = CONFIG.add(1_000, int.class);
+ *   private static final MostlyConstant&lt;String&gt; HOST = CONFIG.add("localhost", String.class);
+ *   private static final Supplier&lt;ConstantGroup.Snapshot&gt; CONFIG_GETTER =
+ *       CONFIG.snapshotGetter();
+ *
+ *   public static void connect() {
+ *     ConstantGroup.Snapshot config = CONFIG_GETTER.get();
+ *     connect(config.get(HOST), config.get(TIMEOUT));
+ *   }
+ *   public static void reload(String host, int timeout) {
+ *     HashMap&lt;MostlyConstant&lt;?&gt;, Object&gt; values = new HashMap&lt;&gt;();
+ *     values.put(HOST, host);
+ *     values.put(TIMEOUT, timeout);
+ *     MostlyConstant.updateAll(values);
+ *   }
+ * </pre>
+ */
+public final class ConstantGroup {
+  /**
+   * The values of all the constants of a group at a point in time.
+   *
+   * @see ConstantGroup#snapshotGetter()
+   */
+  public static final class Snapshot {
+    private final ConstantGroup group;
+    private final Object[] values;
+
+    Snapshot(ConstantGroup group, Object[] values) {
+      this.group = group;
+      this.values = values;
+    }
+
+    /**
+     * Returns the value of a constant of the group in this snapshot.
+     *
+     * @param <T> the type of the constant.
+     * @param constant a constant of the group.
+     * @return the value of the constant in this snapshot.
+     * @throws NullPointerException if the constant is null.
+     * @throws IllegalArgumentException if the constant is not a member of the group or was added to
+     *     the group after the creation of this snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(MostlyConstant<T> constant) {
+      if (constant.group != group || constant.groupIndex >= values.length) {
+        throw new IllegalArgumentException("the constant is not a member of this snapshot");
+      }
+      return (T) values[constant.groupIndex];
+    }
+  }
+
+  private final MutableCallSite snapshotCallSite;
+  private Object[] values; // guarded by this, never mutated, shared with the current snapshot
+
+  /** Create an empty group. */
+  public ConstantGroup() {
+    Object[] values = new Object[0];
+    this.values = values;
+    this.snapshotCallSite = new MutableCallSite(snapshot(values));
+  }
+
+  /** Returns a target that returns a snapshot of the values. */
+  private MethodHandle snapshot(Object[] values) {
+    return constant(Object.class, new Snapshot(this, values));
+  }
+
+  /**
+   * Create a constant member of this group with a value ({@code constant}) and its class ({@code
+   * type}). Adding a constant requires the VM to de-optimize all the assembly codes that contains a
+   * snapshot of this group, so the constants should be added when the group is created.
+   *
+   * @param <T> the type of the constant.
+   * @param constant the value of the constant.
+   * @param type the class of the constant.
+   * @return a new constant member of this group.
+   * @throws NullPointerException if type is null.
+   * @throws ClassCastException if the constant cannot be converted to the type
+   * @throws IllegalArgumentException is type is void.class
+   */
+  public <T> MostlyConstant<T> add(T constant, Class<T> type) {
+    Objects.requireNonNull(type);
+    constant(type, constant); // check the value
+    MostlyConstant<T> member;
+    synchronized (this) {
+      int index = values.length;
+      Object[] values = Arrays.copyOf(this.values, index + 1);
+      values[index] = constant;
+      member = new MostlyConstant<>(constant, type, this, index);
+      this.values = values;
+      snapshotCallSite.setTarget(snapshot(values));
+    }
+    MutableCallSite.syncAll(new MutableCallSite[] { snapshotCallSite });
+    return member;
+  }
+
+  /**
+   * Changes the values of several constants of this group at once, adds the call sites to
+   * synchronize to {@code callSites}. The value and the call site of each member and the call site
+   * of the snapshot are changed with the lock of the group held.
+   */
+  synchronized void update(
+      Map<MostlyConstant<?>, Object> changes, List<MutableCallSite> callSites) {
+    Object[] values = this.values.clone();
+    for (Map.Entry<MostlyConstant<?>, Object> entry : changes.entrySet()) {
+      MostlyConstant<?> member = entry.getKey();
+      values[member.groupIndex] = entry.getValue();
+      callSites.add(member.updateMember(entry.getValue()));
+    }
+    this.values = values;
+    snapshotCallSite.setTarget(snapshot(values));
+    callSites.add(snapshotCallSite);
+  }
+
+  /**
+   * Returns a supplier that will return a snapshot of the values of the constants of this group as
+   * a constant value. The returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return a snapshot of the values of the constants of this group.
+   */
+  public Supplier<Snapshot> snapshotGetter() {
+    MethodHandle invoker = snapshotCallSite.dynamicInvoker().asType(methodType(Snapshot.class));
+    return () -> {
+      try {
+        return (Snapshot) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+}
@@ -1,10 +1,12 @@
 package com.github.forax.exotic;
 
+import static java.lang.invoke.MethodHandles.collectArguments;
 import static java.lang.invoke.MethodHandles.constant;
 import static java.lang.invoke.MethodHandles.dropArguments;
 import static java.lang.invoke.MethodHandles.exactInvoker;
 import static java.lang.invoke.MethodHandles.foldArguments;
 import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
 import static java.lang.invoke.MethodHandles.lookup;
 import static java.lang.invoke.MethodType.methodType;
 
@@ -12,10 +14,26 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
+import java.util.function.ToLongBiFunction;
 import java.util.function.ToLongFunction;
 
 /**
@@ -25,7 +43,18 @@ import java.util.function.ToLongFunction;
  * <p>The method {@link #memoizer(Function, Class, Class)} returns a general purpose memoizer while
  * the methods {@link #intMemoizer(ToIntFunction, Class)}, {@link #longMemoizer(ToLongFunction,
  * Class)} and {@link #doubleMemoizer(ToDoubleFunction, Class)} returns memoizers specialized if the
- * value is an int, a long or a double (respectively).
+ * value is an int, a long or a double (respectively). The methods {@link
+ * #intKeyMemoizer(IntFunction, Class)} and {@link #longKeyMemoizer(LongFunction, Class)} returns
+ * memoizers specialized if the key is an int or a long and {@link #identityMemoizer(Function,
+ * Class, Class)} returns a memoizer that compares the keys with {@code ==}. The methods {@link
+ * #biMemoizer(BiFunction, Class, Class, Class)} and {@link #triMemoizer(TriFunction, Class, Class,
+ * Class, Class)} returns memoizers of functions that takes two or three keys and {@link
+ * #asyncMemoizer(Function, Class)} returns a memoizer of a function that returns a {@link
+ * CompletableFuture}.
+ *
+ * <p>The function is never called concurrently for the same key, if several threads need the value
+ * of a key not yet memoized, only one thread calls the function and the other threads wait for its
+ * result.
  *
  * <p>Here is an example of usage
  *
@@ -51,9 +80,13 @@ public final class ConstantMemoizer {
    * by key and then cached in a code similar to a cascade of {@code if equals else}.
    *
    * <p>To find if a key was previously seen or not, {@link Object#equals(Object)} will be called to
-   * compare the actual key with possibly all the keys already seen, so if there are a lot of
-   * different keys, the performance in the worst case is like a linear search i.e. O(number of seen
-   * keys).
+   * compare the actual key with the first keys seen (at most 8), the values of the other keys are
+   * stored in a hash table, so they are not constants but the lookup is still in O(1).
+   *
+   * <p>The lookups in the hash table are profiled, after 65536 lookups, the keys that account for
+   * at least one eighth of the lookups replace the last keys of the inlining cache, so a hot key
+   * seen after the first keys is also a constant. This is done only once to de-optimize the code
+   * at most once.
    *
    * @param <K> type of the keys.
    * @param <V> type of the values.
@@ -74,7 +107,8 @@ public final class ConstantMemoizer {
     Objects.requireNonNull(keyClass);
     Objects.requireNonNull(valueClass);
     MethodHandle mh =
-        new InliningCacheCallSite<>(methodType(valueClass, keyClass), function)
+        new InliningCacheCallSite<>(
+                methodType(valueClass, keyClass), function, InliningCacheCallSite.UNBOUNDED)
             .dynamicInvoker()
             .asType(methodType(Object.class, Object.class)); // erase
     return key -> {
@@ -93,9 +127,8 @@ public final class ConstantMemoizer {
    * by key and then cached in a code similar to a cascade of {@code if equals else}.
    *
    * <p>To find if a key was previously seen or not, {@link Object#equals(Object)} will be called to
-   * compare the actual key with possibly all the keys already seen, so if there are a lot of
-   * different keys, the performance in the worst case is like a linear search i.e. O(number of seen
-   * keys).
+   * compare the actual key with the first keys seen (at most 8), the values of the other keys are
+   * stored in a hash table, so they are not constants but the lookup is still in O(1).
    *
    * @param <K> type of the keys.
    * @param function a function that takes a non null key as argument and return a non null value.
@@ -111,7 +144,10 @@ public final class ConstantMemoizer {
     Objects.requireNonNull(function);
     Objects.requireNonNull(keyClass);
     MethodHandle mh =
-        new InliningCacheCallSite<>(methodType(int.class, keyClass), function::applyAsInt)
+        new InliningCacheCallSite<>(
+                methodType(int.class, keyClass),
+                function::applyAsInt,
+                InliningCacheCallSite.UNBOUNDED)
             .dynamicInvoker()
             .asType(methodType(int.class, Object.class)); // erase
     return key -> {
@@ -130,9 +166,8 @@ public final class ConstantMemoizer {
    * by key and then cached in a code similar to a cascade of {@code if equals else}.
    *
    * <p>To find if a key was previously seen or not, {@link Object#equals(Object)} will be called to
-   * compare the actual key with possibly all the keys already seen, so if there are a lot of
-   * different keys, the performance in the worst case is like a linear search i.e. O(number of seen
-   * keys).
+   * compare the actual key with the first keys seen (at most 8), the values of the other keys are
+   * stored in a hash table, so they are not constants but the lookup is still in O(1).
    *
    * @param <K> type of the keys.
    * @param function a function that takes a non null key as argument and return a non null value.
@@ -148,7 +183,10 @@ public final class ConstantMemoizer {
     Objects.requireNonNull(function);
     Objects.requireNonNull(keyClass);
     MethodHandle mh =
-        new InliningCacheCallSite<>(methodType(long.class, keyClass), function::applyAsLong)
+        new InliningCacheCallSite<>(
+                methodType(long.class, keyClass),
+                function::applyAsLong,
+                InliningCacheCallSite.UNBOUNDED)
             .dynamicInvoker()
             .asType(methodType(long.class, Object.class)); // erase
     return key -> {
@@ -167,9 +205,8 @@ public final class ConstantMemoizer {
    * by key and then cached in a code similar to a cascade of {@code if equals else}.
    *
    * <p>To find if a key was previously seen or not, {@link Object#equals(Object)} will be called to
-   * compare the actual key with possibly all the keys already seen, so if there are a lot of
-   * different keys, the performance in the worst case is like a linear search i.e. O(number of seen
-   * keys).
+   * compare the actual key with the first keys seen (at most 8), the values of the other keys are
+   * stored in a hash table, so they are not constants but the lookup is still in O(1).
    *
    * @param <K> type of the keys.
    * @param function a function that takes a non null key as argument and return a non null value.
@@ -185,7 +222,10 @@ public final class ConstantMemoizer {
     Objects.requireNonNull(function);
     Objects.requireNonNull(keyClass);
     MethodHandle mh =
-        new InliningCacheCallSite<>(methodType(double.class, keyClass), function::applyAsDouble)
+        new InliningCacheCallSite<>(
+                methodType(double.class, keyClass),
+                function::applyAsDouble,
+                InliningCacheCallSite.UNBOUNDED)
             .dynamicInvoker()
             .asType(methodType(double.class, Object.class)); // erase
     return key -> {
@@ -198,8 +238,556 @@ public final class ConstantMemoizer {
     };
   }
 
-  private static class InliningCacheCallSite<K, V> extends MutableCallSite {
-    private static final MethodHandle FALLBACK, EQUALS;
+  /**
+   * Return a function that returns a constant value (for the Virtual Machine) for each key taken as
+   * argument like {@link #memoizer(Function, Class, Class)} but that compares the keys using {@code
+   * ==} instead of {@link Object#equals(Object)}. This is cheaper if the keys are enum values or
+   * singletons.
+   *
+   * @param <K> type of the keys.
+   * @param <V> type of the values.
+   * @param function a function that takes a non null key as argument and return a non null value.
+   * @param keyClass the class of the key.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @return a function the function getting the value for a specific key.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass} or the {@code
+   *     valueClass} is null, or if the function key or the function value is null.
+   * @throws IllegalArgumentException if the {@code keyClass} is a primitive type.
+   * @throws ClassCastException if the function key or the function value types doesn't match the
+   *     {@code keyClass} or the {@code valueClass}.
+   */
+  public static <K, V> Function<K, V> identityMemoizer(
+      Function<? super K, ? extends V> function, Class<K> keyClass, Class<V> valueClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass);
+    Objects.requireNonNull(valueClass);
+    if (keyClass.isPrimitive()) {
+      throw new IllegalArgumentException("the key class is a primitive type " + keyClass);
+    }
+    MethodHandle mh =
+        new InliningCacheCallSite<>(
+                methodType(valueClass, keyClass),
+                function,
+                InliningCacheCallSite.UNBOUNDED,
+                true,
+                false)
+            .dynamicInvoker()
+            .asType(methodType(Object.class, Object.class)); // erase
+    return key -> {
+      Objects.requireNonNull(key);
+      try {
+        return (V) mh.invokeExact(key);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant value (for the Virtual Machine) for each int key
+   * taken as argument. The key is not boxed, the inlining cache compares the keys using {@code ==}
+   * on the int values, the keys are only boxed to call the {@code function} and if there are too
+   * many different keys to look up the value in the hash table.
+   *
+   * @param <V> type of the values.
+   * @param function a function that takes a key as argument and return a non null value.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @return a function the function getting the value for a specific key.
+   * @throws NullPointerException if the {@code function} or the {@code valueClass} is null, or if
+   *     the function value is null.
+   * @throws ClassCastException if the function value type doesn't match the {@code valueClass}.
+   */
+  public static <V> IntFunction<V> intKeyMemoizer(
+      IntFunction<? extends V> function, Class<V> valueClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(valueClass);
+    MethodHandle mh =
+        new InliningCacheCallSite<Integer, V>(
+                methodType(valueClass, int.class),
+                function::apply,
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(Object.class, int.class)); // erase
+    return key -> {
+      try {
+        return (V) mh.invokeExact(key);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant value (for the Virtual Machine) for each long key
+   * taken as argument. The key is not boxed, the inlining cache compares the keys using {@code ==}
+   * on the long values, the keys are only boxed to call the {@code function} and if there are too
+   * many different keys to look up the value in the hash table.
+   *
+   * @param <V> type of the values.
+   * @param function a function that takes a key as argument and return a non null value.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @return a function the function getting the value for a specific key.
+   * @throws NullPointerException if the {@code function} or the {@code valueClass} is null, or if
+   *     the function value is null.
+   * @throws ClassCastException if the function value type doesn't match the {@code valueClass}.
+   */
+  public static <V> LongFunction<V> longKeyMemoizer(
+      LongFunction<? extends V> function, Class<V> valueClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(valueClass);
+    MethodHandle mh =
+        new InliningCacheCallSite<Long, V>(
+                methodType(valueClass, long.class),
+                function::apply,
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(Object.class, long.class)); // erase
+    return key -> {
+      try {
+        return (V) mh.invokeExact(key);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant value (for the Virtual Machine) for each pair of keys
+   * taken as arguments. Each key is compared separately with {@link Object#equals(Object)}, so
+   * no pair of keys is allocated to find the value of the first pairs seen (at most 8), the values
+   * of the other pairs are stored in a hash table.
+   *
+   * @param <K1> type of the first keys.
+   * @param <K2> type of the second keys.
+   * @param <V> type of the values.
+   * @param function a function that takes non null keys as arguments and return a non null value.
+   * @param keyClass1 the class of the first key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass2 the class of the second key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @return a function the function getting the value for a specific pair of keys.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass1}, the {@code
+   *     keyClass2} or the {@code valueClass} is null, or if one of the function keys or the
+   *     function value is null.
+   * @throws ClassCastException if the function keys or the function value types doesn't match the
+   *     {@code keyClass1}, the {@code keyClass2} or the {@code valueClass}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K1, K2, V> BiFunction<K1, K2, V> biMemoizer(
+      BiFunction<? super K1, ? super K2, ? extends V> function,
+      Class<K1> keyClass1,
+      Class<K2> keyClass2, Class<V> valueClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass1);
+    Objects.requireNonNull(keyClass2);
+    Objects.requireNonNull(valueClass);
+    MethodHandle mh =
+        new InliningCacheCallSite<List<?>, Object>(
+                methodType(valueClass, keyClass1, keyClass2),
+                keys -> function.apply(key(keys, 0), key(keys, 1)),
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(Object.class, Object.class, Object.class)); // erase
+    return (key1, key2) -> {
+      Objects.requireNonNull(key1);
+      Objects.requireNonNull(key2);
+      try {
+        return (V) mh.invokeExact(key1, key2);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant int value (for the Virtual Machine) for each pair of
+   * keys taken as arguments. Each key is compared separately with {@link Object#equals(Object)}, so
+   * no pair of keys is allocated to find the value of the first pairs seen (at most 8), the values
+   * of the other pairs are stored in a hash table.
+   *
+   * @param <K1> type of the first keys.
+   * @param <K2> type of the second keys.
+   * @param function a function that takes non null keys as arguments and return a non null value.
+   * @param keyClass1 the class of the first key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass2 the class of the second key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @return a function the function getting the value for a specific pair of keys.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass1} or the {@code
+   *     keyClass2} is null, or if one of the function keys is null.
+   * @throws ClassCastException if the function keys types doesn't match the {@code keyClass1} or
+   *     the {@code keyClass2}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K1, K2> ToIntBiFunction<K1, K2> intBiMemoizer(
+      ToIntBiFunction<? super K1, ? super K2> function,
+      Class<K1> keyClass1,
+      Class<K2> keyClass2) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass1);
+    Objects.requireNonNull(keyClass2);
+    MethodHandle mh =
+        new InliningCacheCallSite<List<?>, Object>(
+                methodType(int.class, keyClass1, keyClass2),
+                keys -> function.applyAsInt(key(keys, 0), key(keys, 1)),
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(int.class, Object.class, Object.class)); // erase
+    return (key1, key2) -> {
+      Objects.requireNonNull(key1);
+      Objects.requireNonNull(key2);
+      try {
+        return (int) mh.invokeExact(key1, key2);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant long value (for the Virtual Machine) for each pair of
+   * keys taken as arguments. Each key is compared separately with {@link Object#equals(Object)}, so
+   * no pair of keys is allocated to find the value of the first pairs seen (at most 8), the values
+   * of the other pairs are stored in a hash table.
+   *
+   * @param <K1> type of the first keys.
+   * @param <K2> type of the second keys.
+   * @param function a function that takes non null keys as arguments and return a non null value.
+   * @param keyClass1 the class of the first key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass2 the class of the second key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @return a function the function getting the value for a specific pair of keys.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass1} or the {@code
+   *     keyClass2} is null, or if one of the function keys is null.
+   * @throws ClassCastException if the function keys types doesn't match the {@code keyClass1} or
+   *     the {@code keyClass2}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K1, K2> ToLongBiFunction<K1, K2> longBiMemoizer(
+      ToLongBiFunction<? super K1, ? super K2> function,
+      Class<K1> keyClass1,
+      Class<K2> keyClass2) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass1);
+    Objects.requireNonNull(keyClass2);
+    MethodHandle mh =
+        new InliningCacheCallSite<List<?>, Object>(
+                methodType(long.class, keyClass1, keyClass2),
+                keys -> function.applyAsLong(key(keys, 0), key(keys, 1)),
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(long.class, Object.class, Object.class)); // erase
+    return (key1, key2) -> {
+      Objects.requireNonNull(key1);
+      Objects.requireNonNull(key2);
+      try {
+        return (long) mh.invokeExact(key1, key2);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a constant double value (for the Virtual Machine) for each pair
+   * of keys taken as arguments. Each key is compared separately with {@link Object#equals(Object)},
+   * so no pair of keys is allocated to find the value of the first pairs seen (at most 8), the
+   * values of the other pairs are stored in a hash table.
+   *
+   * @param <K1> type of the first keys.
+   * @param <K2> type of the second keys.
+   * @param function a function that takes non null keys as arguments and return a non null value.
+   * @param keyClass1 the class of the first key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass2 the class of the second key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @return a function the function getting the value for a specific pair of keys.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass1} or the {@code
+   *     keyClass2} is null, or if one of the function keys is null.
+   * @throws ClassCastException if the function keys types doesn't match the {@code keyClass1} or
+   *     the {@code keyClass2}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K1, K2> ToDoubleBiFunction<K1, K2> doubleBiMemoizer(
+      ToDoubleBiFunction<? super K1, ? super K2> function,
+      Class<K1> keyClass1,
+      Class<K2> keyClass2) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass1);
+    Objects.requireNonNull(keyClass2);
+    MethodHandle mh =
+        new InliningCacheCallSite<List<?>, Object>(
+                methodType(double.class, keyClass1, keyClass2),
+                keys -> function.applyAsDouble(key(keys, 0), key(keys, 1)),
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(double.class, Object.class, Object.class)); // erase
+    return (key1, key2) -> {
+      Objects.requireNonNull(key1);
+      Objects.requireNonNull(key2);
+      try {
+        return (double) mh.invokeExact(key1, key2);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * A function that takes three arguments.
+   *
+   * @param <T> the type of the first argument.
+   * @param <U> the type of the second argument.
+   * @param <W> the type of the third argument.
+   * @param <R> the type of the result.
+   * @see ConstantMemoizer#triMemoizer(TriFunction, Class, Class, Class, Class)
+   */
+  @FunctionalInterface
+  public interface TriFunction<T, U, W, R> {
+    /**
+     * Applies this function to the given arguments.
+     *
+     * @param t the first argument.
+     * @param u the second argument.
+     * @param w the third argument.
+     * @return the function result.
+     */
+    R apply(T t, U u, W w);
+  }
+
+  /**
+   * Return a function that returns a constant value (for the Virtual Machine) for each triple of
+   * keys taken as arguments. Each key is compared separately with {@link Object#equals(Object)}, so
+   * no triple of keys is allocated to find the value of the first triples seen (at most 8), the
+   * values of the other triples are stored in a hash table.
+   *
+   * @param <K1> type of the first keys.
+   * @param <K2> type of the second keys.
+   * @param <K3> type of the third keys.
+   * @param <V> type of the values.
+   * @param function a function that takes non null keys as arguments and return a non null value.
+   * @param keyClass1 the class of the first key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass2 the class of the second key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param keyClass3 the class of the third key, if it's a primitive type, the key value will be
+   *     boxed before calling the {@code function}.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @return a function the function getting the value for a specific triple of keys.
+   * @throws NullPointerException if the {@code function}, one of the key classes or the {@code
+   *     valueClass} is null, or if one of the function keys or the function value is null.
+   * @throws ClassCastException if the function keys or the function value types doesn't match the
+   *     key classes or the {@code valueClass}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K1, K2, K3, V> TriFunction<K1, K2, K3, V> triMemoizer(
+      TriFunction<? super K1, ? super K2, ? super K3, ? extends V> function,
+      Class<K1> keyClass1,
+      Class<K2> keyClass2,
+      Class<K3> keyClass3,
+      Class<V> valueClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass1);
+    Objects.requireNonNull(keyClass2);
+    Objects.requireNonNull(keyClass3);
+    Objects.requireNonNull(valueClass);
+    MethodHandle mh =
+        new InliningCacheCallSite<List<?>, Object>(
+                methodType(valueClass, keyClass1, keyClass2, keyClass3),
+                keys -> function.apply(key(keys, 0), key(keys, 1), key(keys, 2)),
+                InliningCacheCallSite.UNBOUNDED)
+            .dynamicInvoker()
+            .asType(methodType(Object.class, Object.class, Object.class, Object.class)); // erase
+    return (key1, key2, key3) -> {
+      Objects.requireNonNull(key1);
+      Objects.requireNonNull(key2);
+      Objects.requireNonNull(key3);
+      try {
+        return (V) mh.invokeExact(key1, key2, key3);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Return a function that returns a future of a value that is constant (for the Virtual Machine)
+   * for each key taken as argument. The {@code function} is called once by key and returns a
+   * future, until this future is completed, all calls with the same key return that future, once
+   * the future is completed normally, it is cached in a code similar to a cascade of {@code if
+   * equals else}. If the future completes exceptionally, it is not cached, so the {@code function}
+   * will be called again the next time the key is seen.
+   *
+   * <p>The futures returned should not be completed by the callers of the returned function.
+   *
+   * @param <K> type of the keys.
+   * @param <V> type of the values of the futures.
+   * @param function a function that takes a non null key as argument and return a non null
+   *     future.
+   * @param keyClass the class of the key, if it's a primitive type, the key value will be boxed
+   *     before calling the {@code function}.
+   * @return a function the function getting the future of the value for a specific key.
+   * @throws NullPointerException if the {@code function} or the {@code keyClass} is null, or if the
+   *     function key or the function future is null.
+   * @throws ClassCastException if the function key type doesn't match the {@code keyClass}.
+   * @see #memoizer(Function, Class, Class)
+   */
+  public static <K, V> Function<K, CompletableFuture<V>> asyncMemoizer(
+      Function<? super K, ? extends CompletableFuture<V>> function, Class<K> keyClass) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass);
+    MethodHandle mh =
+        new InliningCacheCallSite<>(
+                methodType(CompletableFuture.class, keyClass),
+                function,
+                InliningCacheCallSite.UNBOUNDED,
+                false,
+                true)
+            .dynamicInvoker()
+            .asType(methodType(CompletableFuture.class, Object.class)); // erase
+    return key -> {
+      Objects.requireNonNull(key);
+      try {
+        return (CompletableFuture<V>) mh.invokeExact(key);
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * A memoizer that memoizes at most a maximum number of values and allows to invalidate them.
+   *
+   * <p>Invalidating a key that is part of the inlining cache requires the VM to de-optimize all
+   * the assembly codes that contains the value of the key as a constant, like {@link
+   * MostlyConstant#setAndDeoptimize(Object)}, so calling {@link #invalidate(Object)} in a loop will
+   * kill performance. Invalidating a key that is only stored in the hash table has the cost of a
+   * removal in the table.
+   *
+   * <p>Example of usage
+   *
+   * <pre>
+   *   private static final BoundedMemoizer&lt;String, Config&gt; CONFIGS =
+   *       ConstantMemoizer.boundedMemoizer(Config::load, String.class, Config.class, 1_000);
+   *   private static final Function&lt;String, Config&gt; CONFIG = CONFIGS.memoizer();
+   *   ...
+   *   CONFIG.apply(tenant);  // a constant if the tenant is a constant
+   *   ...
+   *   CONFIGS.invalidate(tenant);  // the configuration has changed
+   * </pre>
+   *
+   * @param <K> type of the keys.
+   * @param <V> type of the values.
+   * @see ConstantMemoizer#boundedMemoizer(Function, Class, Class, int)
+   */
+  public static final class BoundedMemoizer<K, V> {
+    private final InliningCacheCallSite<K, V> callSite;
+
+    BoundedMemoizer(InliningCacheCallSite<K, V> callSite) {
+      this.callSite = callSite;
+    }
+
+    /**
+     * Returns a function that returns the memoized value of a key. The returned function should
+     * be stored in a static field for performance.
+     *
+     * @return a function that returns the memoized value of a key.
+     */
+    public Function<K, V> memoizer() {
+      MethodHandle mh =
+          callSite.dynamicInvoker().asType(methodType(Object.class, Object.class)); // erase
+      return key -> {
+        Objects.requireNonNull(key);
+        try {
+          return (V) mh.invokeExact(key);
+        } catch (Throwable e) {
+          throw Thrower.rethrow(e);
+        }
+      };
+    }
+
+    /**
+     * Removes the value of the key, the value will be computed again the next time the key is
+     * seen. This call may require the VM to de-optimize all the assembly codes that contains the
+     * previous value.
+     *
+     * @param key the key.
+     * @throws NullPointerException if the key is null.
+     */
+    public void invalidate(K key) {
+      Objects.requireNonNull(key);
+      callSite.invalidate(key);
+    }
+
+    /**
+     * Removes the values of all the keys, the values will be computed again the next time the
+     * keys are seen. This call requires the VM to de-optimize all the assembly codes that contains
+     * one of the previous values.
+     */
+    public void invalidateAll() {
+      callSite.invalidateAll();
+    }
+  }
+
+  /**
+   * Return a memoizer that returns a constant value (for the Virtual Machine) for each key taken as
+   * argument like {@link #memoizer(Function, Class, Class)} but that memoizes at most {@code
+   * maximumSize} values and allows to {@link BoundedMemoizer#invalidate(Object) invalidate} them.
+   *
+   * <p>The first keys seen (at most 8) are stored in the inlining cache as constants and are only
+   * removed by an invalidation or replaced by the hot keys of the hash table like with {@link
+   * #memoizer(Function, Class, Class)}, the values of the other keys are stored in a hash table
+   * that evicts the least recently used key when it's full.
+   *
+   * @param <K> type of the keys.
+   * @param <V> type of the values.
+   * @param function a function that takes a non null key as argument and return a non null value.
+   * @param keyClass the class of the key, if it's a primitive type, the key value will be boxed
+   *     before calling the {@code function}.
+   * @param valueClass the class of the value, if it's a primitive type, the value will be boxed at
+   *     each call.
+   * @param maximumSize the maximum number of values memoized.
+   * @return a memoizer that allows to get the value for a specific key and to invalidate it.
+   * @throws NullPointerException if the {@code function}, the {@code keyClass} or the {@code
+   *     valueClass} is null.
+   * @throws IllegalArgumentException if {@code maximumSize} is not positive.
+   */
+  public static <K, V> BoundedMemoizer<K, V> boundedMemoizer(
+      Function<? super K, ? extends V> function,
+      Class<K> keyClass,
+      Class<V> valueClass,
+      int maximumSize) {
+    Objects.requireNonNull(function);
+    Objects.requireNonNull(keyClass);
+    Objects.requireNonNull(valueClass);
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive " + maximumSize);
+    }
+    return new BoundedMemoizer<>(
+        new InliningCacheCallSite<>(methodType(valueClass, keyClass), function, maximumSize));
+  }
+
+  /** Returns the key at {@code index} of the list of the keys of a multi-keys memoizer. */
+  @SuppressWarnings("unchecked")
+  private static <K> K key(List<?> keys, int index) {
+    return (K) keys.get(index);
+  }
+
+  static class InliningCacheCallSite<K, V> extends MutableCallSite {
+    private static final MethodHandle FALLBACK,
+        EQUALS,
+        SAME,
+        INT_EQUALS,
+        LONG_EQUALS,
+        TABLE_GET,
+        AS_LIST;
 
     static {
       Lookup lookup = lookup();
@@ -211,35 +799,460 @@ public final class ConstantMemoizer {
                 methodType(MethodHandle.class, Object.class));
         EQUALS =
             lookup.findVirtual(Object.class, "equals", methodType(boolean.class, Object.class));
+        SAME =
+            lookup.findStatic(
+                InliningCacheCallSite.class,
+                "same",
+                methodType(boolean.class, Object.class, Object.class));
+        INT_EQUALS =
+            lookup.findStatic(
+                InliningCacheCallSite.class,
+                "intEquals",
+                methodType(boolean.class, int.class, int.class));
+        LONG_EQUALS =
+            lookup.findStatic(
+                InliningCacheCallSite.class,
+                "longEquals",
+                methodType(boolean.class, long.class, long.class));
+        TABLE_GET =
+            lookup.findVirtual(
+                InliningCacheCallSite.class, "tableGet", methodType(Object.class, Object.class));
+        AS_LIST = lookup.findStatic(Arrays.class, "asList", methodType(List.class, Object[].class));
       } catch (NoSuchMethodException | IllegalAccessException e) {
         throw new AssertionError(e);
       }
     }
 
+    /**
+     * Maximum number of keys in the inlining cache, the other keys are looked up in a hash table
+     * behind the keys of the inlining cache.
+     */
+    static final int MAX_DEPTH = 8;
+
+    /** Maximum size of a memoizer that has no maximum size. */
+    static final int UNBOUNDED = -1;
+
+    /**
+     * Number of hits of the keys looked up in the table after which the hottest keys are moved to
+     * the inlining cache.
+     */
+    static final int PROFILE_WINDOW = 1 << 16;
+
+    private final InliningCacheCallSite<K, V> root;
+    private final int depth;
+
+    // the fields below are only used by the root call site
     private final Function<? super K, ? extends V> function;
+    private final int maxDepth;
+    private final boolean identity;
+    private final boolean async;
+    private final Map<Object, Object> table; // guarded by the root if not a ConcurrentMap
+    private final ConcurrentHashMap<Object, Flight> flights; // the computations in progress
+    private final LinkedHashMap<Object, Object> inlined; // guarded by the root
+    private int version; // guarded by the root, changed by each invalidation or promotion
+    private volatile Map<Object, AtomicInteger> hits; // hits by key of the table, null if profiled
+    private final AtomicInteger hitCount; // total of the hits
 
-    InliningCacheCallSite(MethodType type, Function<? super K, ? extends V> function) {
+    InliningCacheCallSite(
+        MethodType type, Function<? super K, ? extends V> function, int maximumSize) {
+      this(type, function, maximumSize, false, false);
+    }
+
+    InliningCacheCallSite(
+        MethodType type,
+        Function<? super K, ? extends V> function,
+        int maximumSize,
+        boolean identity,
+        boolean async) {
       super(type);
+      this.root = this;
+      this.depth = 0;
       this.function = function;
-      setTarget(
-          foldArguments(
-              exactInvoker(type),
-              FALLBACK.bindTo(this).asType(methodType(MethodHandle.class, type.parameterType(0)))));
+      this.identity = identity;
+      this.async = async;
+      boolean bounded = maximumSize != UNBOUNDED;
+      this.maxDepth = bounded ? Math.min(MAX_DEPTH, maximumSize) : MAX_DEPTH;
+      this.table =
+          bounded
+              ? new LruTable(maximumSize - maxDepth)
+              : identity ? new IdentityTable<>() : new ConcurrentHashMap<>();
+      this.inlined = new LinkedHashMap<>();
+      this.flights = new ConcurrentHashMap<>();
+      this.hits = identity ? new IdentityTable<>() : new ConcurrentHashMap<>();
+      this.hitCount = new AtomicInteger();
+      setTarget(fallbackTarget(type, this));
+    }
+
+    private InliningCacheCallSite(MethodType type, InliningCacheCallSite<K, V> root, int depth) {
+      super(type);
+      this.root = root;
+      this.depth = depth;
+      this.function = null;
+      this.maxDepth = 0;
+      this.identity = false;
+      this.async = false;
+      this.table = null;
+      this.inlined = null;
+      this.flights = null;
+      this.hits = null;
+      this.hitCount = null;
+      setTarget(fallbackTarget(type, this));
+    }
+
+    private static MethodHandle fallbackTarget(MethodType type, InliningCacheCallSite<?, ?> site) {
+      return foldArguments(exactInvoker(type), keyed(FALLBACK.bindTo(site), type));
+    }
+
+    /**
+     * Adapts a method handle that takes a key to take the parameters of the call site, if the call
+     * site has several parameters, the key is the list of the arguments.
+     */
+    private static MethodHandle keyed(MethodHandle mh, MethodType type) {
+      int parameterCount = type.parameterCount();
+      if (parameterCount == 1) {
+        return mh.asType(mh.type().changeParameterType(0, type.parameterType(0)));
+      }
+      MethodHandle key =
+          AS_LIST
+              .asCollector(Object[].class, parameterCount)
+              .asType(methodType(List.class, type.parameterList()));
+      return collectArguments(mh.asType(mh.type().changeParameterType(0, List.class)), 0, key);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LruTable extends LinkedHashMap<Object, Object> {
+      private final int maximumSize;
+
+      LruTable(int maximumSize) {
+        super(16, 0.75f, true);
+        this.maximumSize = maximumSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+        return size() > maximumSize;
+      }
+    }
+
+    /**
+     * A computation of the value of a key, the other threads that need the value of the same key
+     * wait for the result of the computation instead of calling the function.
+     */
+    private static final class Flight extends CompletableFuture<Object> {
+      final Object key;
+      private final Thread owner = Thread.currentThread();
+
+      Flight(Object key) {
+        this.key = key;
+      }
+
+      Object await() {
+        if (!isDone() && owner == Thread.currentThread()) {
+          throw new IllegalStateException("the value of the key " + key + " depends on itself");
+        }
+        try {
+          return join();
+        } catch (CompletionException e) {
+          throw Thrower.rethrow(e.getCause());
+        }
+      }
     }
 
     @SuppressWarnings("unused")
     private MethodHandle fallback(K key) {
-      V value = Objects.requireNonNull(function.apply(key));
       MethodType type = type();
-      Class<?> keyClass = type.parameterType(0);
-      Class<?> valueClass = type.returnType();
-      MethodHandle target = dropArguments(constant(valueClass, value), 0, keyClass);
-      setTarget(
-          guardWithTest(
-              EQUALS.bindTo(key).asType(methodType(boolean.class, keyClass)),
-              target,
-              new InliningCacheCallSite<>(type, function).dynamicInvoker()));
+      InliningCacheCallSite<K, V> root = this.root;
+      if (depth >= root.maxDepth) {
+        MethodHandle table = keyed(TABLE_GET.bindTo(root), type).asType(type);
+        setTarget(table);
+        return table;
+      }
+      int version = root.version();
+      MethodHandle initialTarget = getTarget();
+      Object value = root.load(key);
+      MethodHandle target =
+          dropArguments(constant(type.returnType(), value), 0, type.parameterList());
+      if (root.async && !isCompletedNormally(value)) {
+        // the future is not a constant yet, the call site will be linked when the future is
+        // completed and the key seen again
+        return target;
+      }
+      synchronized (root) {
+        if (getTarget() != initialTarget || version != root.version) {
+          // the function has called the memoizer recursively and this call site is already linked
+          // or the memoizer has been invalidated, do not overwrite the call site
+          return target;
+        }
+        // the value moves from the table to the inlining cache
+        root.table.remove(key);
+        root.inlined.put(key, value);
+        MethodHandle next = new InliningCacheCallSite<>(type, root, depth + 1).dynamicInvoker();
+        setTarget(guard(key, target, next));
+      }
       return target;
     }
+
+    private static boolean isCompletedNormally(Object value) {
+      CompletableFuture<?> future = (CompletableFuture<?>) value;
+      return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    @SuppressWarnings("unused")
+    private Object tableGet(Object key) {
+      Object value = find(key);
+      if (value == null) {
+        return load(key);
+      }
+      Map<Object, AtomicInteger> hits = this.hits;
+      if (hits != null) {
+        hits.computeIfAbsent(key, __ -> new AtomicInteger()).incrementAndGet();
+        if (hitCount.incrementAndGet() == PROFILE_WINDOW) {
+          promote(hits);
+        }
+      }
+      return value;
+    }
+
+    /**
+     * Moves the keys of the table that have at least {@code 1 / maxDepth} of the hits of the table,
+     * the hottest first, in front of the keys of the inlining cache, the last keys of the inlining
+     * cache are moved back to the table. The keys of the inlining cache are the first keys seen,
+     * this corrects the inlining cache if the hot keys are seen after it is full. The table is only
+     * profiled once, so the codes are deoptimized at most once by a promotion.
+     */
+    private void promote(Map<Object, AtomicInteger> hits) {
+      ArrayList<Object> keys = new ArrayList<>();
+      ArrayList<Integer> counts = new ArrayList<>();
+      synchronized (this) {
+        this.hits = null; // stop profiling
+        for (Map.Entry<Object, AtomicInteger> entry : hits.entrySet()) {
+          keys.add(entry.getKey());
+          counts.add(entry.getValue().get());
+        }
+        Integer[] candidates = new Integer[keys.size()];
+        for (int i = 0; i < candidates.length; i++) {
+          candidates[i] = i;
+        }
+        Arrays.sort(candidates, (c1, c2) -> Integer.compare(counts.get(c2), counts.get(c1)));
+        LinkedHashMap<Object, Object> promoted = new LinkedHashMap<>();
+        for (int candidate : candidates) {
+          if (promoted.size() == maxDepth || counts.get(candidate) * maxDepth < PROFILE_WINDOW) {
+            break;
+          }
+          Object key = keys.get(candidate);
+          Object value = table.remove(key); // null if the key was evicted or invalidated
+          if (value != null) {
+            promoted.put(key, value);
+          }
+        }
+        if (promoted.isEmpty()) {
+          return;
+        }
+        version++;
+        for (Map.Entry<Object, Object> entry : inlined.entrySet()) {
+          promoted.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        inlined.clear();
+        inlined.putAll(promoted);
+        relink();
+      }
+    }
+
+    /** The keys of the inlining cache, the first key first, for testing purpose. */
+    synchronized List<Object> inlinedKeys() {
+      return new ArrayList<>(inlined.keySet());
+    }
+
+    private synchronized int version() {
+      return version;
+    }
+
+    /**
+     * Returns the value of a key stored either in the table or in the values of the inlining cache,
+     * or null.
+     */
+    private Object find(Object key) {
+      if (table instanceof ConcurrentMap) {
+        Object value = table.get(key);
+        if (value != null || identity) {
+          return value;
+        }
+      }
+      synchronized (this) {
+        Object value = table.get(key);
+        if (value != null) {
+          return value;
+        }
+        return inlined.get(key);
+      }
+    }
+
+    /**
+     * Stores the value of a key in the table if there is no invalidation since {@code version},
+     * returns the value stored. The values are only moved to the inlining cache when a call site
+     * is linked, so the table bounds the number of values not inlined.
+     */
+    private Object store(Object key, Object value, int version) {
+      if (table instanceof ConcurrentMap) {
+        Object previous = table.putIfAbsent(key, value);
+        return (previous != null) ? previous : value;
+      }
+      synchronized (this) {
+        if (version != this.version) {
+          return value;
+        }
+        Object previous = table.putIfAbsent(key, value);
+        return (previous != null) ? previous : value;
+      }
+    }
+
+    /**
+     * Computes and stores the value of a key, only one computation by key runs at the same time,
+     * the other threads wait for the result of that computation. The computation is finished
+     * once the value is stored so a thread can not start a computation of a value already stored.
+     *
+     * <p>If the memoizer is asynchronous, the computation is finished once the future is
+     * completed, the future is only stored if it completes normally.
+     */
+    private Object load(Object key) {
+      Flight flight = new Flight(key);
+      Flight pending = flights.putIfAbsent(key, flight);
+      if (pending != null) {
+        if (!identity || pending.key == key) {
+          return pending.await();
+        }
+        // an equal key but not the same, no single flight
+        int version = version();
+        return store(key, compute(key), version);
+      }
+      boolean finished = true;
+      try {
+        Object value = find(key); // the value may have been stored in between
+        if (value == null) {
+          int version = version();
+          value = compute(key);
+          if (async) {
+            CompletableFuture<?> future = (CompletableFuture<?>) value;
+            finished = false;
+            future.whenComplete(
+                (result, e) -> {
+                  if (e == null) {
+                    store(key, future, version);
+                  }
+                  flights.remove(key, flight);
+                });
+          } else {
+            value = store(key, value, version);
+          }
+        }
+        flight.complete(value);
+        return value;
+      } catch (Throwable e) {
+        flight.completeExceptionally(e);
+        throw Thrower.rethrow(e);
+      } finally {
+        if (finished) {
+          flights.remove(key, flight);
+        }
+      }
+    }
+
+    /**
+     * Returns a method handle that calls {@code target} if the arguments are the same as {@code
+     * key} and {@code otherwise} if they are not, each argument is tested separately.
+     */
+    private MethodHandle guard(Object key, MethodHandle target, MethodHandle otherwise) {
+      MethodType type = type();
+      if (type.parameterCount() == 1) {
+        return guardWithTest(test(key, type.parameterType(0)), target, otherwise);
+      }
+      List<?> keys = (List<?>) key;
+      List<Class<?>> parameters = type.parameterList();
+      MethodHandle guard = target;
+      for (int i = keys.size(); --i >= 0; ) {
+        MethodHandle test = test(keys.get(i), parameters.get(i));
+        test = dropArguments(test, 0, parameters.subList(0, i));
+        test = dropArguments(test, i + 1, parameters.subList(i + 1, parameters.size()));
+        guard = guardWithTest(test, guard, otherwise);
+      }
+      return guard;
+    }
+
+    /**
+     * Returns a test that checks if a key is the same as {@code key}, the test compares the raw
+     * values if the keys are ints or longs.
+     */
+    private MethodHandle test(Object key, Class<?> keyClass) {
+      if (keyClass == int.class) {
+        return insertArguments(INT_EQUALS, 0, key);
+      }
+      if (keyClass == long.class) {
+        return insertArguments(LONG_EQUALS, 0, key);
+      }
+      MethodHandle test = root.identity ? SAME.bindTo(key) : EQUALS.bindTo(key);
+      return test.asType(methodType(boolean.class, keyClass));
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean same(Object key, Object value) {
+      return key == value;
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean intEquals(int key, int value) {
+      return key == value;
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean longEquals(long key, long value) {
+      return key == value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object compute(Object key) {
+      return Objects.requireNonNull(function.apply((K) key));
+    }
+
+    void invalidate(Object key) {
+      synchronized (this) {
+        version++;
+        table.remove(key);
+        if (inlined.remove(key) != null) {
+          relink();
+        }
+      }
+    }
+
+    void invalidateAll() {
+      synchronized (this) {
+        version++;
+        table.clear();
+        if (!inlined.isEmpty()) {
+          inlined.clear();
+          relink();
+        }
+      }
+    }
+
+    /**
+     * Re-creates the inlining cache from the keys still inlined and deoptimizes the codes, the keys
+     * after the first {@code maxDepth} keys are moved back to the table.
+     */
+    private void relink() {
+      MethodType type = type();
+      Object[] keys = inlined.keySet().toArray();
+      int length = Math.min(keys.length, maxDepth);
+      for (int i = length; i < keys.length; i++) {
+        table.put(keys[i], inlined.remove(keys[i]));
+      }
+      MethodHandle target = new InliningCacheCallSite<>(type, this, length).dynamicInvoker();
+      for (int i = length; --i >= 0; ) {
+        Object key = keys[i];
+        MethodHandle constant = constant(type.returnType(), inlined.get(key));
+        target = guard(key, dropArguments(constant, 0, type.parameterList()), target);
+      }
+      setTarget(target);
+      MutableCallSite.syncAll(new MutableCallSite[] {this});
+    }
   }
 }
@@ -0,0 +1,210 @@
+package com.github.forax.exotic;
+
+import static com.github.forax.exotic.StringSwitch.NO_MATCH;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A decision tree that finds the index of a string by first testing its length and
+ * then the characters at the positions that discriminate the most the remaining cases,
+ * a final equals is done once there is only one candidate.
+ *
+ * The tree is built on the units of the cases, see {@link StringSwitchCallSite.Kind}.
+ */
+abstract class DecisionTree {
+  private static final MethodHandle LESS_THAN, EQUALS;
+  static {
+    Lookup lookup = MethodHandles.lookup();
+    try {
+      LESS_THAN = lookup.findStatic(DecisionTree.class, "lessThan", methodType(boolean.class, int.class, int.class));
+      EQUALS = lookup.findStatic(DecisionTree.class, "equals", methodType(boolean.class, int.class, int.class));
+    } catch(NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  abstract int index(String value);
+  abstract MethodHandle target(StringSwitchCallSite.Kind kind);
+
+  static DecisionTree create(String[] stringcases) {
+    ArrayList<Integer> indexes = new ArrayList<>();
+    for(int i = 0; i < stringcases.length; i++) {
+      indexes.add(i);
+    }
+    return byLength(stringcases, indexes);
+  }
+
+  private static DecisionTree byLength(String[] stringcases, List<Integer> indexes) {
+    if (indexes.isEmpty()) {
+      return new Fail();
+    }
+    if (indexes.size() == 1) {
+      int index = indexes.get(0);
+      return new Leaf(index, stringcases[index]);
+    }
+    TreeSet<Integer> lengths = new TreeSet<>();
+    for(int index: indexes) {
+      lengths.add(stringcases[index].length());
+    }
+    if (lengths.size() == 1) {
+      int length = lengths.first();
+      return new LengthEquals(length, byChar(stringcases, indexes, length));
+    }
+    int pivot = new ArrayList<>(lengths).get(lengths.size() / 2);
+    ArrayList<Integer> lesser = new ArrayList<>();
+    ArrayList<Integer> greater = new ArrayList<>();
+    for(int index: indexes) {
+      (stringcases[index].length() < pivot? lesser: greater).add(index);
+    }
+    return new LengthLessThan(pivot, byLength(stringcases, lesser), byLength(stringcases, greater));
+  }
+
+  private static DecisionTree byChar(String[] stringcases, List<Integer> indexes, int length) {
+    if (indexes.size() == 1) {
+      int index = indexes.get(0);
+      return new Leaf(index, stringcases[index]);
+    }
+
+    // find the position with the greatest number of different characters
+    int position = -1;
+    TreeSet<Character> chars = null;
+    for(int i = 0; i < length; i++) {
+      TreeSet<Character> set = new TreeSet<>();
+      for(int index: indexes) {
+        set.add(stringcases[index].charAt(i));
+      }
+      if (chars == null || set.size() > chars.size()) {
+        position = i;
+        chars = set;
+      }
+    }
+
+    char pivot = new ArrayList<>(chars).get(chars.size() / 2);
+    ArrayList<Integer> lesser = new ArrayList<>();
+    ArrayList<Integer> greater = new ArrayList<>();
+    for(int index: indexes) {
+      (stringcases[index].charAt(position) < pivot? lesser: greater).add(index);
+    }
+    return new CharLessThan(position, pivot, byChar(stringcases, lesser, length), byChar(stringcases, greater, length));
+  }
+
+  private static final class Fail extends DecisionTree {
+    @Override
+    int index(String value) {
+      return NO_MATCH;
+    }
+    @Override
+    MethodHandle target(StringSwitchCallSite.Kind kind) {
+      return kind.constant(NO_MATCH);
+    }
+  }
+
+  private static final class Leaf extends DecisionTree {
+    private final int index;
+    private final String stringcase;
+
+    Leaf(int index, String stringcase) {
+      this.index = index;
+      this.stringcase = stringcase;
+    }
+
+    @Override
+    int index(String value) {
+      return stringcase.equals(value)? index: NO_MATCH;
+    }
+    @Override
+    MethodHandle target(StringSwitchCallSite.Kind kind) {
+      return guardWithTest(insertArguments(kind.contentEquals, 0, stringcase),
+          kind.constant(index),
+          kind.constant(NO_MATCH));
+    }
+  }
+
+  private static final class LengthEquals extends DecisionTree {
+    private final int length;
+    private final DecisionTree tree;
+
+    LengthEquals(int length, DecisionTree tree) {
+      this.length = length;
+      this.tree = tree;
+    }
+
+    @Override
+    int index(String value) {
+      return value.length() == length? tree.index(value): NO_MATCH;
+    }
+    @Override
+    MethodHandle target(StringSwitchCallSite.Kind kind) {
+      return guardWithTest(filterReturnValue(kind.length, insertArguments(EQUALS, 1, length)),
+          tree.target(kind),
+          kind.constant(NO_MATCH));
+    }
+  }
+
+  private static final class LengthLessThan extends DecisionTree {
+    private final int pivot;
+    private final DecisionTree lesser;
+    private final DecisionTree greater;
+
+    LengthLessThan(int pivot, DecisionTree lesser, DecisionTree greater) {
+      this.pivot = pivot;
+      this.lesser = lesser;
+      this.greater = greater;
+    }
+
+    @Override
+    int index(String value) {
+      return value.length() < pivot? lesser.index(value): greater.index(value);
+    }
+    @Override
+    MethodHandle target(StringSwitchCallSite.Kind kind) {
+      return guardWithTest(filterReturnValue(kind.length, insertArguments(LESS_THAN, 1, pivot)),
+          lesser.target(kind),
+          greater.target(kind));
+    }
+  }
+
+  private static final class CharLessThan extends DecisionTree {
+    private final int position;
+    private final char pivot;
+    private final DecisionTree lesser;
+    private final DecisionTree greater;
+
+    CharLessThan(int position, char pivot, DecisionTree lesser, DecisionTree greater) {
+      this.position = position;
+      this.pivot = pivot;
+      this.lesser = lesser;
+      this.greater = greater;
+    }
+
+    @Override
+    int index(String value) {
+      return value.charAt(position) < pivot? lesser.index(value): greater.index(value);
+    }
+    @Override
+    MethodHandle target(StringSwitchCallSite.Kind kind) {
+      return guardWithTest(filterReturnValue(insertArguments(kind.unitAt, 0, position), insertArguments(LESS_THAN, 1, (int)pivot)),
+          lesser.target(kind),
+          greater.target(kind));
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static boolean lessThan(int value, int pivot) {
+    return value < pivot;
+  }
+
+  @SuppressWarnings("unused")
+  private static boolean equals(int value, int constant) {
+    return value == constant;
+  }
+}
@@ -0,0 +1,195 @@
+package com.github.forax.exotic;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An open addressing hash table keyed by the identity of the keys, used by the identity memoizers.
+ * Like {@link java.util.concurrent.ConcurrentHashMap}, the keys and the values can not be null.
+ *
+ * <p>Like {@link ClassTable}, the entries are copied on write and published through a volatile
+ * field, so a reader never takes a lock and always sees a fully initialized table, only the writers
+ * are serialized. This is a good trade-off for a memoizer, a key is written once and read many
+ * times.
+ */
+final class IdentityTable<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+  private static final class Entries {
+    final Object[] keys;
+    final Object[] values;
+    final int size;
+
+    Entries(Object[] keys, Object[] values, int size) {
+      this.keys = keys;
+      this.values = values;
+      this.size = size;
+    }
+
+    Object lookup(Object key) {
+      Object[] keys = this.keys;
+      int mask = keys.length - 1;
+      for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+        Object k = keys[i];
+        if (k == key) {
+          return values[i];
+        }
+        if (k == null) {
+          return null;
+        }
+      }
+    }
+
+    /** Returns new entries with all the entries but the one of {@code removed}. */
+    Entries copy(Object removed, int capacity) {
+      Object[] keys = new Object[capacity];
+      Object[] values = new Object[capacity];
+      int size = 0;
+      for (int i = 0; i < this.keys.length; i++) {
+        Object key = this.keys[i];
+        if (key != null && key != removed) {
+          insert(keys, values, key, this.values[i]);
+          size++;
+        }
+      }
+      return new Entries(keys, values, size);
+    }
+
+    Entries add(Object key, Object value) {
+      int capacity = keys.length;
+      if ((size + 1) << 1 > capacity) {
+        capacity <<= 1;
+      }
+      Entries entries = copy(null, capacity);
+      insert(entries.keys, entries.values, key, value);
+      return new Entries(entries.keys, entries.values, size + 1);
+    }
+
+    private static void insert(Object[] keys, Object[] values, Object key, Object value) {
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (keys[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+  }
+
+  private static final Entries EMPTY = new Entries(new Object[2], new Object[2], 0);
+
+  private volatile Entries entries = EMPTY;
+
+  @SuppressWarnings("unchecked")
+  private static <T> T cast(Object value) {
+    return (T) value;
+  }
+
+  private static int hash(Object key) {
+    int hash = System.identityHashCode(key);
+    return hash ^ (hash >>> 16);
+  }
+
+  @Override
+  public V get(Object key) {
+    return cast(entries.lookup(Objects.requireNonNull(key)));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return entries.size;
+  }
+
+  @Override
+  public synchronized V put(K key, V value) {
+    Objects.requireNonNull(value);
+    V previous = remove(key);
+    entries = entries.add(key, value);
+    return previous;
+  }
+
+  @Override
+  public synchronized V putIfAbsent(K key, V value) {
+    Objects.requireNonNull(value);
+    Entries entries = this.entries;
+    Object previous = entries.lookup(Objects.requireNonNull(key));
+    if (previous != null) {
+      return cast(previous);
+    }
+    this.entries = entries.add(key, value);
+    return null;
+  }
+
+  @Override
+  public synchronized V remove(Object key) {
+    Entries entries = this.entries;
+    Object previous = entries.lookup(Objects.requireNonNull(key));
+    if (previous != null) {
+      this.entries = entries.copy(key, entries.keys.length);
+    }
+    return cast(previous);
+  }
+
+  @Override
+  public synchronized boolean remove(Object key, Object value) {
+    if (get(key) != value) {
+      return false;
+    }
+    remove(key);
+    return true;
+  }
+
+  @Override
+  public synchronized boolean replace(K key, V oldValue, V newValue) {
+    if (get(key) != oldValue) {
+      return false;
+    }
+    put(key, newValue);
+    return true;
+  }
+
+  @Override
+  public synchronized V replace(K key, V value) {
+    return containsKey(key) ? put(key, value) : null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries = EMPTY;
+  }
+
+  /** Returns an unmodifiable snapshot of the entries. */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    Entries entries = this.entries;
+    ArrayList<Entry<K, V>> list = new ArrayList<>(entries.size);
+    for (int i = 0; i < entries.keys.length; i++) {
+      K key = cast(entries.keys[i]);
+      if (key != null) {
+        list.add(new SimpleImmutableEntry<>(key, cast(entries.values[i])));
+      }
+    }
+    List<Entry<K, V>> snapshot = Collections.unmodifiableList(list);
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return snapshot.iterator();
+      }
+
+      @Override
+      public int size() {
+        return snapshot.size();
+      }
+    };
+  }
+}
@@ -0,0 +1,170 @@
+package com.github.forax.exotic;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import com.github.forax.exotic.PostOrderVisitor.Children;
+
+/**
+ * A {@link PostOrderVisitor} which computation returns an {@code int},
+ * the values of the sub-expressions are stored in an array of ints, so they are never boxed.
+ * 
+ * By example, to evaluate an expression
+ * <pre>
+ *   private static final IntPostOrderVisitor&lt;Void&gt; VISITOR = IntPostOrderVisitor.create(Void.class, opt -&gt; opt
+ *       .register(Value.class, (value, results, __) -&gt; value.value)
+ *       .register(Add.class,   (add, children) -&gt; { children.accept(add.left); children.accept(add.right); },
+ *                              (add, results, __) -&gt; results.get(0) + results.get(1))
+ *       );
+ * </pre>
+ * 
+ * @param <P> type of the parameter value, the same parameter value is sent to all the combiners.
+ * 
+ * @see PostOrderVisitor
+ */
+@FunctionalInterface
+public interface IntPostOrderVisitor<P> {
+  /**
+   * Visit the expression {@code expr} and its sub-expressions in post-order.
+   * 
+   * @param expr an expression
+   * @param parameter a parameter or null.
+   * @return the value computed by the {@link Combiner} of {@code expr}.
+   * @throws NullPointerException if {@code expr} or one of its sub-expressions is null.
+   * @throws IllegalStateException if the class of an expression and its supertypes have no registered computation.
+   */
+  int visit(Object expr, P parameter);
+  
+  /**
+   * The values of the sub-expressions of an expression,
+   * this object is only valid during the call to {@link Combiner#combine(Object, Results, Object)}.
+   */
+  interface Results {
+    /**
+     * Returns the number of values.
+     * @return the number of values.
+     */
+    int size();
+    
+    /**
+     * Returns the value of a sub-expression.
+     * @param index the index of the sub-expression.
+     * @return the value of the sub-expression.
+     * @throws IndexOutOfBoundsException if the index is not a valid index.
+     */
+    int get(int index);
+  }
+  
+  /**
+   * Computes the value of an expression from the values of its sub-expressions.
+   *
+   * @param <T> the type of the expression.
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   */
+  @FunctionalInterface
+  interface Combiner<T, P> {
+    /**
+     * Computes the value of an expression.
+     * 
+     * @param expr an expression.
+     * @param results the values of the sub-expressions.
+     * @param parameter the value of a parameter or null.
+     * @return the value of the expression.
+     */
+    int combine(T expr, Results results, P parameter);
+  }
+  
+  /**
+   * Registry that contains the association between a type and its corresponding computation. 
+   *
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   */
+  interface Registry<P> {
+    /**
+     * Register a computation for a specific type that has no sub-expression.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression.
+     * @param combiner the computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type} or {@code combiner} is null.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P> register(Class<T> type, Combiner<? super T, ? super P> combiner);
+    
+    /**
+     * Register a computation for a specific type.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression.
+     * @param children the declaration of the sub-expressions.
+     * @param combiner the computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type}, {@code children} or {@code combiner} is null.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P> register(Class<T> type, Children<? super T> children, Combiner<? super T, ? super P> combiner);
+  }
+  
+  /**
+   * Creates a visitor with the computations registered in the {@link Registry}. 
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param pType class of the parameter type.
+   * @param consumer consumer that will register the computations in the {@link Registry}.
+   * @return a visitor configured with the computations.
+   * @throws NullPointerException if {@code pType} or {@code consumer} is null.
+   */
+  static <P> IntPostOrderVisitor<P> create(Class<P> pType, Consumer<? super Registry<P>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(consumer);
+    MethodHandle[] handles = PostOrderEngine.intRegistry(consumer);
+    MethodHandle expand = handles[0];
+    MethodHandle combine = handles[1];
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      try {
+        return PostOrderEngine.runInt(expand, combine, expr, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  /**
+   * Creates a visitor with the computations registered in the {@link Registry} that evaluates
+   * the independent sub-expressions in parallel using the fork/join {@code pool}.
+   * 
+   * An expression which {@code sizeEstimate} is greater or equals to the {@code threshold} is split,
+   * each of its sub-expressions is evaluated in its own task, an expression which size estimate is
+   * less than the threshold is evaluated sequentially like with {@link #create(Class, Consumer)}.
+   * Because the combiners are called from different threads, they must be thread safe
+   * and so is the parameter.
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param pType class of the parameter type.
+   * @param pool the fork/join pool used to evaluate the sub-expressions.
+   * @param threshold the minimum size estimate of an expression that is split.
+   * @param sizeEstimate a function that returns an estimate of the number of nodes of an expression. 
+   * @param consumer consumer that will register the computations in the {@link Registry}.
+   * @return a visitor configured with the computations.
+   * @throws NullPointerException if {@code pType}, {@code pool}, {@code sizeEstimate} or {@code consumer} is null.
+   * @throws IllegalArgumentException if {@code threshold} is not positive.
+   */
+  static <P> IntPostOrderVisitor<P> createParallel(Class<P> pType, ForkJoinPool pool, int threshold,
+                                                   ToIntFunction<Object> sizeEstimate, Consumer<? super Registry<P>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(consumer);
+    PostOrderEngine.checkParallel(pool, threshold, sizeEstimate);
+    MethodHandle[] handles = PostOrderEngine.intRegistry(consumer);
+    MethodHandle expand = handles[0];
+    MethodHandle combine = handles[1];
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      return PostOrderEngine.runIntParallel(expand, combine, pool, threshold, sizeEstimate, expr, parameter);
+    };
+  }
+}
@@ -0,0 +1,131 @@
+package com.github.forax.exotic;
+
+import static java.lang.invoke.MethodHandles.insertArguments;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Visitor} which computation returns a {@code int}, the value is never boxed,
+ * neither by the visitor nor by the inlining caches.
+ * 
+ * By example, to evaluate an expression
+ * <pre>
+ *   private static final IntVisitor&lt;Void&gt; VISITOR = IntVisitor.create(Void.class, opt -&gt; opt
+ *       .register(Value.class, (visitor, value, __) -&gt; value.value)
+ *       .register(Add.class,   (visitor, add, __)   -&gt; visitor.visit(add.left, null) + visitor.visit(add.right, null))
+ *       );
+ *   ...
+ *   int value = VISITOR.visit(expr, null);
+ * </pre>
+ *
+ * @param <P> type of the parameter value (the inherited attribute)
+ * 
+ * @see Visitor
+ */
+@FunctionalInterface
+public interface IntVisitor<P> {
+  /**
+   * Visit one of the {@link Visitlet} depending on the class of the expression {@code expr}.
+   * 
+   * @param expr an expression
+   * @param parameter a parameter or null.
+   * @return the return value of the called {@link Visitlet}.
+   * @throws NullPointerException if {@code expr} is null.
+   * @throws IllegalStateException if the expression class and its supertypes have no corresponding visitlet defined
+   *   or if several visitlets are defined for unrelated supertypes of the expression class.
+   */
+  int visit(Object expr, P parameter);
+  
+  /**
+   * A computation part of a visitor specific for a type.
+   *
+   * @param <T> the type of the expression.
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * 
+   * @see Registry#register(Class, Visitlet)
+   * @see IntVisitor#visit(Object, Object)
+   */
+  @FunctionalInterface
+  interface Visitlet<T, P> {
+    /**
+     * The computation for a part of an expression.
+     * 
+     * @param visitor a visitor that can be called to do a recursive computation.
+     * @param expr an expression.
+     * @param parameter the value of a parameter or null.
+     * @return the value of the computation.
+     */
+    int visit(IntVisitor<P> visitor, T expr, P parameter);
+  }
+  
+  /**
+   * Registry that contains the association between a type and its corresponding computation as a {@link Visitlet}. 
+   *
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   */
+  interface Registry<P> {
+    /**
+     * Register a computation for a specific type.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression that will be computed by the computation.
+     * @param visitlet a computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type} or {@code visitlet} is null.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P> register(Class<T> type, Visitlet<? super T, ? super P> visitlet);
+  }
+  
+  /**
+   * Creates a visitor with the {@link Visitlet visitlets} registered in the {@link Registry}. 
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param pType class of the parameter type.
+   * @param consumer consumer that will register the {@link Visitlet visitlet} in the {@link Registry}.
+   * @return a visitor configured with the {@link Visitlet visitlets}.
+   * @throws NullPointerException if {@code pType} or {@code consumer} is null.
+   */
+  static <P> IntVisitor<P> create(Class<P> pType, Consumer<? super Registry<P>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(consumer);
+    HashMap<Class<?>, MethodHandle> map = new HashMap<>();
+    ClassValue<MethodHandle> resolver = VisitorCallSite.resolver(map);
+    
+    MethodType methodType = MethodType.methodType(int.class, Object.class, pType);
+    consumer.accept(new Registry<P>() {
+      @Override
+      public <T> Registry<P> register(Class<T> type, Visitlet<? super T, ? super P> visitlet) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(visitlet);
+        VisitorCallSite.register(map, methodType, type,
+            insertArguments(VisitorCallSite.INT_VISIT, 0, visitlet, VisitorCallSite.intVisitor(methodType, resolver)));
+        return this;
+      }
+    });
+    return VisitorCallSite.intVisitor(methodType, resolver);
+  }
+  
+  /**
+   * Creates a visitor with the {@link Visitlet visitlets} registered in the {@link Registry}
+   * that memoizes the result of each visitlet per expression identity during one top-level
+   * {@link #visit(Object, Object) visit}, the results are stored in an array of ints.
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param pType class of the parameter type.
+   * @param consumer consumer that will register the {@link Visitlet visitlet} in the {@link Registry}.
+   * @return a visitor configured with the {@link Visitlet visitlets}.
+   * @throws NullPointerException if {@code pType} or {@code consumer} is null.
+   * 
+   * @see Visitor#createMemoizing(Class, Class, Consumer)
+   */
+  static <P> IntVisitor<P> createMemoizing(Class<P> pType, Consumer<? super Registry<P>> consumer) {
+    Objects.requireNonNull(consumer);
+    ThreadLocal<VisitorMemo> memos = VisitorMemo.memos(int.class);
+    return create(pType, registry -> consumer.accept(VisitorMemo.memoizingInt(registry, memos)));
+  }
+}
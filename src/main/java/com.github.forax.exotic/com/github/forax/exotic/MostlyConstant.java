@@ -1,10 +1,23 @@
 package com.github.forax.exotic;
 
 import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.lookup;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MutableCallSite;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
@@ -15,14 +28,22 @@ import java.util.function.Supplier;
  * in a static final field, the result of the supplier is guaranteed to be seen as a constant by the
  * Virtual Machine.
  *
- * <p>To avoid unnecessary boxing in common cases of constant of type {@code int}, {@code long} and
- * {@code double}, there are specialized version of the {@link #getter()}, {@link #intGetter()},
- * {@link #longGetter()} and {@link #doubleGetter()}.
+ * <p>To avoid unnecessary boxing in common cases of constant of type {@code boolean}, {@code int},
+ * {@code long} and {@code double}, there are specialized version of the {@link #getter()}, {@link
+ * #booleanGetter()}, {@link #intGetter()}, {@link #longGetter()} and {@link #doubleGetter()}, and
+ * for the other primitive types, {@link #byteGetter()}, {@link #shortGetter()}, {@link
+ * #charGetter()} and {@link #floatGetter()}.
  *
  * <p>This work because when {@link #setAndDeoptimize(Object)} is called, all the assembly code
  * (JITed code) that where containing the constant are de-optimized and in the future they will be
  * re-optimized with the new value of the constant. So calling {@link #setAndDeoptimize(Object)} in
- * a loop will kill performance.
+ * a loop will kill performance. To change several constants, {@link #updateAll(Map)} changes all
+ * the constants before de-optimizing the assembly code once and a constant created with {@link
+ * #adaptive(Object, Class, int, long, TimeUnit)} stops to be seen as a constant while its value
+ * changes too often. The value of a constant can also be bound to the value of a {@link
+ * #bind(Supplier, Class, long, TimeUnit) supplier}, a {@link #bindProperty(Properties, String,
+ * Class, Object, long, TimeUnit) property} or a {@link #bindFile(Path, Class, Object, long,
+ * TimeUnit) file}.
  *
  * <p>Example of usage
  *
@@ -41,9 +62,113 @@ import java.util.function.Supplier;
  * @param <T> the type of the constant.
  */
 public final class MostlyConstant<T> {
+  private static final MethodHandle VALUE;
+
+  static {
+    try {
+      VALUE = lookup().findGetter(MostlyConstant.class, "value", Object.class);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * The way the getters read the value of a constant.
+   *
+   * @see MostlyConstant#mode()
+   */
+  public enum Mode {
+    /** The value is a constant for the VM, changing it requires to de-optimize the code. */
+    CONSTANT,
+    /** The value is read from a volatile field, changing it requires no de-optimization. */
+    VOLATILE
+  }
+
+  /**
+   * A supplier of {@code byte} values.
+   *
+   * @see MostlyConstant#byteGetter()
+   */
+  @FunctionalInterface
+  public interface ByteSupplier {
+    /**
+     * Gets a result.
+     *
+     * @return a result.
+     */
+    byte getAsByte();
+  }
+
+  /**
+   * A supplier of {@code short} values.
+   *
+   * @see MostlyConstant#shortGetter()
+   */
+  @FunctionalInterface
+  public interface ShortSupplier {
+    /**
+     * Gets a result.
+     *
+     * @return a result.
+     */
+    short getAsShort();
+  }
+
+  /**
+   * A supplier of {@code char} values.
+   *
+   * @see MostlyConstant#charGetter()
+   */
+  @FunctionalInterface
+  public interface CharSupplier {
+    /**
+     * Gets a result.
+     *
+     * @return a result.
+     */
+    char getAsChar();
+  }
+
+  /**
+   * A supplier of {@code float} values.
+   *
+   * @see MostlyConstant#floatGetter()
+   */
+  @FunctionalInterface
+  public interface FloatSupplier {
+    /**
+     * Gets a result.
+     *
+     * @return a result.
+     */
+    float getAsFloat();
+  }
+
+  static final class Scheduler {
+    static final ScheduledExecutorService EXECUTOR =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "MostlyConstant scheduler");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
   private final Class<T> type;
   private final MutableCallSite callSite;
   private final MethodHandle invoker;
+  private final int maxUpdates; // 0 if the constant is not adaptive
+  private final long window; // in nanoseconds
+  final ConstantGroup group; // null if the constant is not a member of a group
+  final int groupIndex;
+
+  private volatile Object value;
+  private Mode mode = Mode.CONSTANT; // guarded by this
+  private long updateCount; // guarded by this
+  private long lastUpdate; // guarded by this
+  private long windowStart; // guarded by this
+  private int windowUpdates; // guarded by this
+  private Runnable unbinder; // guarded by this, null if the constant is not bound to a source
 
   /**
    * Create a constant with a value ({@code constant}) and its class ({@code type}).
@@ -55,11 +180,237 @@ public final class MostlyConstant<T> {
    * @throws IllegalArgumentException is type is void.class
    */
   public MostlyConstant(T constant, Class<T> type) {
+    this(constant, type, 0, 0, null, 0);
+  }
+
+  /**
+   * Create a constant of type {@code boolean}, by example a feature flag. If the {@link
+   * #booleanGetter()} is stored in a static final field, a test like {@code if
+   * (FLAG.getAsBoolean())} is removed by the Virtual Machine with the code of the branch not
+   * taken.
+   *
+   * @param constant the value of the constant.
+   * @return a new constant of type {@code boolean}.
+   */
+  public static MostlyConstant<Boolean> ofBoolean(boolean constant) {
+    return new MostlyConstant<>(constant, boolean.class);
+  }
+
+  private MostlyConstant(
+      T constant,
+      Class<T> type,
+      int maxUpdates,
+      long window,
+      ConstantGroup group,
+      int groupIndex) {
     this.type = Objects.requireNonNull(type);
     MethodHandle target = constant(type, constant);
     MutableCallSite callSite = new MutableCallSite(target.asType(target.type().erase()));
     this.callSite = callSite;
     this.invoker = callSite.dynamicInvoker();
+    this.maxUpdates = maxUpdates;
+    this.window = window;
+    this.group = group;
+    this.groupIndex = groupIndex;
+    this.value = constant;
+  }
+
+  /** Create a constant member of a group, the constant is changed by the group. */
+  MostlyConstant(T constant, Class<T> type, ConstantGroup group, int groupIndex) {
+    this(constant, type, 0, 0, group, groupIndex);
+  }
+
+  /**
+   * Create a constant that adapts itself if its value changes too often. If the value is changed
+   * more than {@code maxUpdates} times during a window of time, the getters stop to see the value
+   * as a constant and read it from a volatile field, so a change does not require to de-optimize
+   * the assembly codes anymore. Once the value has not changed during a whole window of time, the
+   * getters see the value as a constant again.
+   *
+   * @param <T> the type of the constant.
+   * @param constant the value of the constant.
+   * @param type the class of the constant.
+   * @param maxUpdates the maximum number of changes during a window of time.
+   * @param window the duration of the window of time.
+   * @param unit the unit of the duration of the window of time.
+   * @return a new constant.
+   * @throws NullPointerException if type or unit is null.
+   * @throws ClassCastException if the constant cannot be converted to the type
+   * @throws IllegalArgumentException is type is void.class or if {@code maxUpdates} or {@code
+   *     window} is not positive.
+   * @see #mode()
+   * @see #updateCount()
+   */
+  public static <T> MostlyConstant<T> adaptive(
+      T constant, Class<T> type, int maxUpdates, long window, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    if (maxUpdates <= 0) {
+      throw new IllegalArgumentException("maxUpdates must be positive " + maxUpdates);
+    }
+    if (window <= 0) {
+      throw new IllegalArgumentException("window must be positive " + window);
+    }
+    return new MostlyConstant<>(constant, type, maxUpdates, unit.toNanos(window), null, 0);
+  }
+
+  /**
+   * Create a constant bound to a supplier, the supplier is called every {@code period} and the
+   * value of the constant is changed if the value returned by the supplier is not equal to the
+   * current value. If the supplier throws an exception or returns a value that can not be
+   * converted to the type, the value of the constant is not changed.
+   *
+   * <p>The supplier is called by a daemon thread until {@link #unbind()} is called, all the changes
+   * between two calls are coalesced into one change.
+   *
+   * @param <T> the type of the constant.
+   * @param supplier the supplier of the value of the constant.
+   * @param type the class of the constant.
+   * @param period the duration between two calls to the supplier.
+   * @param unit the unit of the period.
+   * @return a new constant.
+   * @throws NullPointerException if supplier, type or unit is null.
+   * @throws ClassCastException if the value cannot be converted to the type
+   * @throws IllegalArgumentException is type is void.class or if {@code period} is not positive.
+   */
+  public static <T> MostlyConstant<T> bind(
+      Supplier<? extends T> supplier, Class<T> type, long period, TimeUnit unit) {
+    Objects.requireNonNull(supplier);
+    Objects.requireNonNull(unit);
+    MostlyConstantBinding.checkPeriod(period);
+    MostlyConstant<T> constant = new MostlyConstant<>(supplier.get(), type);
+    Runnable unbinder = MostlyConstantBinding.poll(constant, supplier, period, unit);
+    synchronized (constant) {
+      constant.unbinder = unbinder;
+    }
+    return constant;
+  }
+
+  /**
+   * Create a constant bound to the value of a property, the value of the property is converted to
+   * the {@code type} and the {@code defaultValue} is used if there is no property. The properties
+   * are checked every {@code period} like with {@link #bind(Supplier, Class, long, TimeUnit)}, a
+   * value that can not be converted is ignored.
+   *
+   * @param <T> the type of the constant.
+   * @param properties the properties, by example {@link System#getProperties()}.
+   * @param key the key of the property.
+   * @param type the class of the constant, a primitive type, a wrapper type or String.
+   * @param defaultValue the value of the constant if there is no property.
+   * @param period the duration between two checks of the properties.
+   * @param unit the unit of the period.
+   * @return a new constant.
+   * @throws NullPointerException if properties, key, type or unit is null.
+   * @throws IllegalArgumentException if the type is not int, long, double, boolean, one of their
+   *     wrappers or String, if the current value of the property can not be converted or if
+   *     {@code period} is not positive.
+   */
+  public static <T> MostlyConstant<T> bindProperty(
+      Properties properties,
+      String key,
+      Class<T> type,
+      T defaultValue,
+      long period,
+      TimeUnit unit) {
+    Objects.requireNonNull(properties);
+    Objects.requireNonNull(key);
+    MostlyConstantBinding.checkParsable(type);
+    @SuppressWarnings("unchecked")
+    Supplier<T> supplier =
+        () -> (T) MostlyConstantBinding.parse(properties.getProperty(key), type, defaultValue);
+    return bind(supplier, type, period, unit);
+  }
+
+  /**
+   * Create a constant bound to the content of a file, the content of the file is converted to the
+   * {@code type} and the {@code defaultValue} is used if the file does not exist. The directory
+   * of the file is watched and the file is read again only if it has been created, modified or
+   * deleted, the changes are checked every {@code period} like with {@link #bind(Supplier, Class,
+   * long, TimeUnit)}, a content that can not be read or converted is ignored.
+   *
+   * @param <T> the type of the constant.
+   * @param path the path of the file.
+   * @param type the class of the constant, a primitive type, a wrapper type or String.
+   * @param defaultValue the value of the constant if the file does not exist.
+   * @param period the duration between two checks of the changes of the file.
+   * @param unit the unit of the period.
+   * @return a new constant.
+   * @throws NullPointerException if path, type or unit is null.
+   * @throws IllegalArgumentException if the type is not int, long, double, boolean, one of their
+   *     wrappers or String, if the current content of the file can not be converted, if {@code
+   *     period} is not positive or if the path has no parent directory.
+   * @throws IOException if the file can not be read or the directory of the file can not be
+   *     watched.
+   */
+  public static <T> MostlyConstant<T> bindFile(
+      Path path, Class<T> type, T defaultValue, long period, TimeUnit unit) throws IOException {
+    Objects.requireNonNull(path);
+    Objects.requireNonNull(unit);
+    MostlyConstantBinding.checkParsable(type);
+    MostlyConstantBinding.checkPeriod(period);
+    if (path.getFileName() == null || path.toAbsolutePath().getParent() == null) {
+      throw new IllegalArgumentException("the path has no parent directory " + path);
+    }
+    @SuppressWarnings("unchecked")
+    Supplier<T> reader =
+        () -> (T) MostlyConstantBinding.parse(MostlyConstantBinding.read(path), type, defaultValue);
+    T value;
+    try {
+      value = reader.get();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    MostlyConstant<T> constant = new MostlyConstant<>(value, type);
+    Runnable unbinder = MostlyConstantBinding.watch(constant, path, reader, period, unit);
+    synchronized (constant) {
+      constant.unbinder = unbinder;
+    }
+    return constant;
+  }
+
+  /**
+   * Stops to change the value of this constant from the source it is bound to, do nothing if this
+   * constant is not bound to a source.
+   *
+   * @see #bind(Supplier, Class, long, TimeUnit)
+   * @see #bindProperty(Properties, String, Class, Object, long, TimeUnit)
+   * @see #bindFile(Path, Class, Object, long, TimeUnit)
+   */
+  public void unbind() {
+    Runnable unbinder;
+    synchronized (this) {
+      unbinder = this.unbinder;
+      this.unbinder = null;
+    }
+    if (unbinder != null) {
+      unbinder.run();
+    }
+  }
+
+  /** Changes the value of this constant if the value is not equal to the current value. */
+  void setIfChanged(T constant) {
+    if (!Objects.equals(constant, value)) {
+      setAndDeoptimize(constant);
+    }
+  }
+
+  /**
+   * Returns the way the getters read the value of this constant, a constant is always in the mode
+   * {@link Mode#CONSTANT} unless it has been created by {@link #adaptive(Object, Class, int, long,
+   * TimeUnit)}.
+   *
+   * @return the way the getters read the value of this constant.
+   */
+  public synchronized Mode mode() {
+    return mode;
+  }
+
+  /**
+   * Returns the number of changes of the value of this constant since its creation.
+   *
+   * @return the number of changes of the value of this constant since its creation.
+   */
+  public synchronized long updateCount() {
+    return updateCount;
   }
 
   /**
@@ -67,20 +418,147 @@ public final class MostlyConstant<T> {
    * codes that contains the previous value of this constant, so this call will slow down the
    * application. Use this method with care, you have been warned.
    *
+   * <p>If the constant is {@link #adaptive(Object, Class, int, long, TimeUnit) adaptive} and is in
+   * the mode {@link Mode#VOLATILE}, this call only changes the value of a volatile field.
+   *
    * @param constant the new value of the constant.
    * @throws ClassCastException if the constant cannot be converted to constant type.
    */
   public void setAndDeoptimize(T constant) {
-    MethodHandle target = constant(type, constant);
-    callSite.setTarget(target.asType(callSite.type()));
+    if (group != null) {
+      updateAll(Collections.singletonMap(this, constant));
+      return;
+    }
+    MethodHandle target = target(constant);
+    synchronized (this) {
+      target = update(constant, target);
+      if (target == null) {  // the getters read a volatile field
+        return;
+      }
+      callSite.setTarget(target);
+    }
     MutableCallSite.syncAll(new MutableCallSite[] { callSite });
   }
 
+  private MethodHandle target(Object constant) {
+    return constant(type, constant).asType(invoker.type());
+  }
+
+  /**
+   * Changes the value of a member of a group, called by the group with its lock held so the value
+   * and the call site of all the members and the snapshot of the group are changed together,
+   * returns the call site to synchronize.
+   */
+  MutableCallSite updateMember(Object constant) {
+    assert Thread.holdsLock(group);
+    MethodHandle target = target(constant);
+    synchronized (this) {
+      callSite.setTarget(update(constant, target));
+    }
+    return callSite;
+  }
+
+  /**
+   * Records a change of the value and returns the new target of the call site or null if the
+   * call site should not be changed.
+   */
+  private MethodHandle update(Object constant, MethodHandle target) {
+    assert Thread.holdsLock(this);
+    value = constant;
+    updateCount++;
+    if (maxUpdates == 0) {  // not adaptive
+      return target;
+    }
+    long now = System.nanoTime();
+    lastUpdate = now;
+    if (mode == Mode.VOLATILE) {
+      return null;
+    }
+    if (now - windowStart > window) {
+      windowStart = now;
+      windowUpdates = 0;
+    }
+    if (++windowUpdates <= maxUpdates) {
+      return target;
+    }
+    mode = Mode.VOLATILE;
+    Scheduler.EXECUTOR.schedule(this::stabilize, window, TimeUnit.NANOSECONDS);
+    return VALUE.bindTo(this).asType(callSite.type());
+  }
+
+  /** Sees the value as a constant again if it has not changed during a whole window of time. */
+  private void stabilize() {
+    synchronized (this) {
+      long elapsed = System.nanoTime() - lastUpdate;
+      if (elapsed < window) {
+        Scheduler.EXECUTOR.schedule(this::stabilize, window - elapsed, TimeUnit.NANOSECONDS);
+        return;
+      }
+      mode = Mode.CONSTANT;
+      windowStart = System.nanoTime();
+      windowUpdates = 0;
+      callSite.setTarget(target(value));
+    }
+    MutableCallSite.syncAll(new MutableCallSite[] { callSite });
+  }
+
+  /**
+   * Change the values of several constants at once. Like {@link #setAndDeoptimize(Object)}, this
+   * call requires the VM to de-optimize all the assembly codes that contains the previous value of
+   * one of these constants, but all the constants are changed before the VM is asked to do the
+   * de-optimization, so the cost of the de-optimization is paid once and not once by constant.
+   *
+   * <p>The constants that are members of the same {@link ConstantGroup} are changed atomically.
+   *
+   * @param constants a map that associates each constant to change to its new value.
+   * @throws NullPointerException if the map is null or contains a null constant.
+   * @throws ClassCastException if one of the values cannot be converted to the type of its
+   *     constant, in that case, no constant is changed.
+   */
+  public static void updateAll(Map<? extends MostlyConstant<?>, ?> constants) {
+    int size = constants.size();
+    MostlyConstant<?>[] mostlyConstants = new MostlyConstant<?>[size];
+    Object[] values = new Object[size];
+    MethodHandle[] targets = new MethodHandle[size];
+    int index = 0;
+    for (Map.Entry<? extends MostlyConstant<?>, ?> entry : constants.entrySet()) {
+      MostlyConstant<?> constant = Objects.requireNonNull(entry.getKey());
+      mostlyConstants[index] = constant;
+      values[index] = entry.getValue();
+      targets[index] = constant.target(entry.getValue());
+      index++;
+    }
+    // all the targets are created before changing a call site, a ClassCastException changes nothing
+    ArrayList<MutableCallSite> callSites = new ArrayList<>();
+    HashMap<ConstantGroup, Map<MostlyConstant<?>, Object>> groupChanges = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      MostlyConstant<?> constant = mostlyConstants[i];
+      if (constant.group != null) {  // the members of a group are changed by the group below
+        groupChanges
+            .computeIfAbsent(constant.group, group -> new HashMap<>())
+            .put(constant, values[i]);
+        continue;
+      }
+      synchronized (constant) {
+        MethodHandle target = constant.update(values[i], targets[i]);
+        if (target != null) {
+          constant.callSite.setTarget(target);
+          callSites.add(constant.callSite);
+        }
+      }
+    }
+    for (Map.Entry<ConstantGroup, Map<MostlyConstant<?>, Object>> entry : groupChanges.entrySet()) {
+      entry.getKey().update(entry.getValue(), callSites);
+    }
+    MutableCallSite.syncAll(callSites.toArray(new MutableCallSite[0]));
+  }
+
   /**
    * Returns a supplier that will return the value of this constant as a constant value. The
    * returned supplier should be stored in a static field for performance.
    *
    * @return a supplier that will return the value of this constant as a constant value.
+   * @see MostlyConstant#booleanGetter()
    * @see MostlyConstant#intGetter()
    * @see MostlyConstant#longGetter()
    * @see MostlyConstant#doubleGetter()
@@ -115,7 +593,7 @@ public final class MostlyConstant<T> {
    * @see MostlyConstant#getter()
    */
   public IntSupplier intGetter() {
-    if (callSite.type().returnType() != int.class) {
+    if (invoker.type().returnType() != int.class) {
       throw new IllegalStateException("the constant is not of type int.class");
     }
     MethodHandle invoker = this.invoker;
@@ -137,7 +615,7 @@ public final class MostlyConstant<T> {
    * @see MostlyConstant#getter()
    */
   public LongSupplier longGetter() {
-    if (callSite.type().returnType() != long.class) {
+    if (invoker.type().returnType() != long.class) {
       throw new IllegalStateException("the constant is not of type long.class");
     }
     MethodHandle invoker = this.invoker;
@@ -159,7 +637,7 @@ public final class MostlyConstant<T> {
    * @see MostlyConstant#getter()
    */
   public DoubleSupplier doubleGetter() {
-    if (callSite.type().returnType() != double.class) {
+    if (invoker.type().returnType() != double.class) {
       throw new IllegalStateException("the constant is not of type double.class");
     }
     MethodHandle invoker = this.invoker;
@@ -171,4 +649,114 @@ public final class MostlyConstant<T> {
       }
     };
   }
+
+  /**
+   * Returns a supplier that will return the value of this constant as a constant value. The
+   * returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return the value of this constant as a constant value.
+   * @throws IllegalStateException if the constant is not of type {@code boolean.class}.
+   * @see MostlyConstant#getter()
+   */
+  public BooleanSupplier booleanGetter() {
+    if (invoker.type().returnType() != boolean.class) {
+      throw new IllegalStateException("the constant is not of type boolean.class");
+    }
+    MethodHandle invoker = this.invoker;
+    return () -> {
+      try {
+        return (boolean) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Returns a supplier that will return the value of this constant as a constant value. The
+   * returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return the value of this constant as a constant value.
+   * @throws IllegalStateException if the constant is not of type {@code byte.class}.
+   * @see MostlyConstant#getter()
+   */
+  public ByteSupplier byteGetter() {
+    if (invoker.type().returnType() != byte.class) {
+      throw new IllegalStateException("the constant is not of type byte.class");
+    }
+    MethodHandle invoker = this.invoker;
+    return () -> {
+      try {
+        return (byte) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Returns a supplier that will return the value of this constant as a constant value. The
+   * returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return the value of this constant as a constant value.
+   * @throws IllegalStateException if the constant is not of type {@code short.class}.
+   * @see MostlyConstant#getter()
+   */
+  public ShortSupplier shortGetter() {
+    if (invoker.type().returnType() != short.class) {
+      throw new IllegalStateException("the constant is not of type short.class");
+    }
+    MethodHandle invoker = this.invoker;
+    return () -> {
+      try {
+        return (short) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Returns a supplier that will return the value of this constant as a constant value. The
+   * returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return the value of this constant as a constant value.
+   * @throws IllegalStateException if the constant is not of type {@code char.class}.
+   * @see MostlyConstant#getter()
+   */
+  public CharSupplier charGetter() {
+    if (invoker.type().returnType() != char.class) {
+      throw new IllegalStateException("the constant is not of type char.class");
+    }
+    MethodHandle invoker = this.invoker;
+    return () -> {
+      try {
+        return (char) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
+
+  /**
+   * Returns a supplier that will return the value of this constant as a constant value. The
+   * returned supplier should be stored in a static field for performance.
+   *
+   * @return a supplier that will return the value of this constant as a constant value.
+   * @throws IllegalStateException if the constant is not of type {@code float.class}.
+   * @see MostlyConstant#getter()
+   */
+  public FloatSupplier floatGetter() {
+    if (invoker.type().returnType() != float.class) {
+      throw new IllegalStateException("the constant is not of type float.class");
+    }
+    MethodHandle invoker = this.invoker;
+    return () -> {
+      try {
+        return (float) invoker.invokeExact();
+      } catch (Throwable e) {
+        throw Thrower.rethrow(e);
+      }
+    };
+  }
 }
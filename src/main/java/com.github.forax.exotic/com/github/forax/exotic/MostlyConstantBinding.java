@@ -0,0 +1,173 @@
+package com.github.forax.exotic;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The sources of the values of the {@link MostlyConstant}s bound to a supplier, a property or a
+ * file. All the sources are polled by the daemon thread of {@link MostlyConstant.Scheduler}, so the
+ * changes that happen between two polls are coalesced into one change.
+ */
+final class MostlyConstantBinding {
+  private MostlyConstantBinding() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Checks that a text can be converted to the {@code type}.
+   *
+   * @throws IllegalArgumentException if the type is not a primitive type, a wrapper type or a
+   *     String.
+   */
+  static void checkParsable(Class<?> type) {
+    if (type != String.class
+        && type != int.class && type != Integer.class
+        && type != long.class && type != Long.class
+        && type != double.class && type != Double.class
+        && type != boolean.class && type != Boolean.class) {
+      throw new IllegalArgumentException("can not convert a text to " + type.getName());
+    }
+  }
+
+  /**
+   * Converts a text to the {@code type} or returns {@code defaultValue} if the text is null.
+   *
+   * @throws NumberFormatException if the text is not a number.
+   */
+  static Object parse(String text, Class<?> type, Object defaultValue) {
+    if (text == null) {
+      return defaultValue;
+    }
+    if (type == String.class) {
+      return text;
+    }
+    String trimmed = text.trim();
+    if (type == int.class || type == Integer.class) {
+      return Integer.parseInt(trimmed);
+    }
+    if (type == long.class || type == Long.class) {
+      return Long.parseLong(trimmed);
+    }
+    if (type == double.class || type == Double.class) {
+      return Double.parseDouble(trimmed);
+    }
+    return Boolean.parseBoolean(trimmed);
+  }
+
+  /**
+   * Checks that the period of a poll is positive.
+   *
+   * @throws IllegalArgumentException if {@code period} is not positive.
+   */
+  static void checkPeriod(long period) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("period must be positive " + period);
+    }
+  }
+
+  /** Runs a task periodically, returns a task that stops the execution. */
+  private static Runnable schedule(Runnable task, long period, TimeUnit unit) {
+    ScheduledFuture<?> future =
+        MostlyConstant.Scheduler.EXECUTOR.scheduleWithFixedDelay(task, period, period, unit);
+    return () -> future.cancel(false);
+  }
+
+  /**
+   * Changes the value of the constant to the value returned by the supplier if it's not equal to
+   * the current value. If the supplier throws an exception or returns a value that can not be
+   * converted to the type of the constant, the value of the constant is not changed, an exception
+   * thrown by a periodic task would cancel all the next executions.
+   */
+  private static <T> void update(MostlyConstant<T> constant, Supplier<? extends T> supplier) {
+    try {
+      constant.setIfChanged(supplier.get());
+    } catch (RuntimeException e) {
+      // the value is skipped, the next poll may provide a valid value
+    }
+  }
+
+  /**
+   * Calls {@code supplier} periodically and changes the value of the constant if the value
+   * returned is not equal to the current value, returns a task that stops the polling.
+   */
+  static <T> Runnable poll(
+      MostlyConstant<T> constant, Supplier<? extends T> supplier, long period, TimeUnit unit) {
+    return schedule(() -> update(constant, supplier), period, unit);
+  }
+
+  /**
+   * Reads the content of a file or returns null if the file does not exist.
+   */
+  static String read(Path path) {
+    try {
+      return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Watches the directory of a file and periodically reads the file and changes the value of the
+   * constant if the file has been created, modified or deleted, returns a task that stops the
+   * watching. The directory of the file must exist and the period must have been checked.
+   */
+  static <T> Runnable watch(
+      MostlyConstant<T> constant,
+      Path path,
+      Supplier<? extends T> reader,
+      long period,
+      TimeUnit unit) throws IOException {
+    Path directory = path.toAbsolutePath().getParent();
+    Path fileName = path.getFileName();
+    WatchService watchService = directory.getFileSystem().newWatchService();
+    Runnable stopPolling;
+    try {
+      directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      stopPolling =
+          schedule(
+              () -> {
+                boolean changed = false;
+                WatchKey key;
+                while ((key = watchService.poll()) != null) {
+                  for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == OVERFLOW || fileName.equals(event.context());
+                  }
+                  key.reset();
+                }
+                if (changed) {
+                  update(constant, reader);
+                }
+              },
+              period,
+              unit);
+    } catch (IOException | RuntimeException e) {
+      watchService.close();
+      throw e;
+    }
+    return () -> {
+      stopPolling.run();
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+}
@@ -0,0 +1,158 @@
+package com.github.forax.exotic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A minimal perfect hash over a fixed set of int hashes, computed using the hash and displace
+ * algorithm.
+ *
+ * Each distinct hash is associated to a slot and each slot to the index of the first key
+ * having that hash, keys sharing exactly the same hash are chained using {@link #next(int)}.
+ */
+final class PerfectHash {
+  private static final int MAX_TRIES = 1 << 16;
+
+  private final int salt;
+  private final int[] seeds;
+  private final int[] slots;
+  private final int[] next;
+
+  private PerfectHash(int salt, int[] seeds, int[] slots, int[] next) {
+    this.salt = salt;
+    this.seeds = seeds;
+    this.slots = slots;
+    this.next = next;
+  }
+
+  /**
+   * Returns the index of the first key that may have the hash {@code hash} or -1.
+   * The caller must check if the key at that index is equal to the value and if not
+   * try the next index using {@link #next(int)}.
+   */
+  int first(int hash) {
+    int[] seeds = this.seeds;
+    int length = seeds.length;
+    int seed = seeds[reduce(mix(hash, salt), length)];
+    int slot = (seed < 0)? -seed - 1: reduce(mix(hash, seed), length);
+    return slots[slot];
+  }
+
+  /**
+   * Returns the index of the next key with the same hash as the key at {@code index} or -1.
+   */
+  int next(int index) {
+    return next[index];
+  }
+
+  static PerfectHash create(int[] hashes) {
+    int[] next = new int[hashes.length];
+    HashMap<Integer, Integer> heads = new HashMap<>();
+    for(int i = hashes.length; --i >= 0;) {
+      Integer head = heads.put(hashes[i], i);
+      next[i] = (head == null)? -1: head;
+    }
+    int[] uniques = new int[heads.size()];
+    int[] firsts = new int[uniques.length];
+    int count = 0;
+    for(int i = 0; i < hashes.length; i++) {
+      if (heads.get(hashes[i]) == i) {
+        uniques[count] = hashes[i];
+        firsts[count++] = i;
+      }
+    }
+
+    for(int salt = 0;; salt++) {
+      PerfectHash perfectHash = tryCreate(salt, uniques, firsts, next);
+      if (perfectHash != null) {
+        return perfectHash;
+      }
+    }
+  }
+
+  private static PerfectHash tryCreate(int salt, int[] uniques, int[] firsts, int[] next) {
+    int length = Math.max(1, uniques.length);
+    ArrayList<ArrayList<Integer>> buckets = new ArrayList<>();
+    for(int i = 0; i < length; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    for(int i = 0; i < uniques.length; i++) {
+      buckets.get(reduce(mix(uniques[i], salt), length)).add(i);
+    }
+    Integer[] order = new Integer[length];
+    for(int i = 0; i < length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (b1, b2) -> buckets.get(b2).size() - buckets.get(b1).size());
+
+    int[] seeds = new int[length];
+    int[] slots = new int[length];
+    Arrays.fill(slots, -1);
+    boolean[] used = new boolean[length];
+    int freeSlot = 0;
+    for(int b: order) {
+      ArrayList<Integer> bucket = buckets.get(b);
+      int size = bucket.size();
+      if (size == 0) {
+        break;
+      }
+      if (size == 1) {  // no need to search for a seed, use a free slot directly
+        while(used[freeSlot]) {
+          freeSlot++;
+        }
+        used[freeSlot] = true;
+        seeds[b] = -freeSlot - 1;
+        slots[freeSlot] = firsts[bucket.get(0)];
+        continue;
+      }
+      int[] bucketSlots = findSlots(bucket, uniques, used, length);
+      if (bucketSlots == null) {
+        return null;
+      }
+      seeds[b] = bucketSlots[size];
+      for(int i = 0; i < size; i++) {
+        used[bucketSlots[i]] = true;
+        slots[bucketSlots[i]] = firsts[bucket.get(i)];
+      }
+    }
+    return new PerfectHash(salt, seeds, slots, next);
+  }
+
+  private static int[] findSlots(ArrayList<Integer> bucket, int[] uniques, boolean[] used, int length) {
+    int size = bucket.size();
+    int[] bucketSlots = new int[size + 1];
+    loop: for(int seed = 1; seed < MAX_TRIES; seed++) {
+      for(int i = 0; i < size; i++) {
+        int slot = reduce(mix(uniques[bucket.get(i)], seed), length);
+        if (used[slot]) {
+          continue loop;
+        }
+        for(int j = 0; j < i; j++) {
+          if (bucketSlots[j] == slot) {
+            continue loop;
+          }
+        }
+        bucketSlots[i] = slot;
+      }
+      bucketSlots[size] = seed;
+      return bucketSlots;
+    }
+    return null;
+  }
+
+  private static int mix(int hash, int seed) {
+    // murmur3 finalizer
+    int h = hash ^ (seed * 0x9E3779B9);
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static int reduce(int hash, int length) {
+    return (int)(((hash & 0xFFFFFFFFL) * length) >>> 32);
+  }
+}
@@ -0,0 +1,370 @@
+package com.github.forax.exotic;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import com.github.forax.exotic.PostOrderVisitor.Children;
+import com.github.forax.exotic.PostOrderVisitor.Combiner;
+
+/**
+ * The iterative post-order evaluation shared by {@link PostOrderVisitor} and {@link IntPostOrderVisitor}.
+ * 
+ * The work stack contains the expressions to visit, an expression is first expanded, its children
+ * are pushed on the work stack, then once all the values of its children are on the result stack,
+ * the expression is combined, the values of its children are replaced by its value.
+ * Both the expansion and the combination are dispatched using an inlining cache of {@link VisitorCallSite}.
+ * 
+ * The parallel evaluation splits the expressions which size estimate is greater or equals to a threshold,
+ * the sub-expressions are evaluated as fork/join tasks and combined once joined,
+ * below the threshold the sequential evaluation is used.
+ */
+final class PostOrderEngine {
+  private PostOrderEngine() {
+    throw new AssertionError();
+  }
+  
+  static final MethodType EXPAND_TYPE = methodType(void.class, Object.class, WorkStack.class);
+  static final MethodType COMBINE_TYPE = methodType(Object.class, Object.class, ObjectResults.class, Object.class);
+  static final MethodType INT_COMBINE_TYPE = methodType(int.class, Object.class, IntResults.class, Object.class);
+  
+  static final MethodHandle FOR_EACH, COMBINE, INT_COMBINE;
+  static {
+    Lookup lookup = MethodHandles.lookup();
+    try {
+      FOR_EACH = lookup.findVirtual(Children.class, "forEach", methodType(void.class, Object.class, Consumer.class));
+      COMBINE = lookup.findVirtual(Combiner.class, "combine", methodType(Object.class, Object.class, PostOrderVisitor.Results.class, Object.class));
+      INT_COMBINE = lookup.findVirtual(IntPostOrderVisitor.Combiner.class, "combine", methodType(int.class, Object.class, IntPostOrderVisitor.Results.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+  
+  static final Children<Object> NO_CHILDREN = (expr, consumer) -> { /* empty */ };
+  
+  private static void register(HashMap<Class<?>, MethodHandle> childrenMap, HashMap<Class<?>, MethodHandle> combinerMap,
+                               MethodType combineType, Class<?> type, Children<?> children, MethodHandle combine) {
+    VisitorCallSite.register(combinerMap, combineType, type, combine);
+    VisitorCallSite.register(childrenMap, EXPAND_TYPE, type, FOR_EACH.bindTo(children));
+  }
+  
+  private static MethodHandle[] dispatchers(MethodType combineType,
+                                            HashMap<Class<?>, MethodHandle> childrenMap, HashMap<Class<?>, MethodHandle> combinerMap) {
+    return new MethodHandle[] {
+        VisitorCallSite.dispatcher(EXPAND_TYPE, VisitorCallSite.resolver(childrenMap)),
+        VisitorCallSite.dispatcher(combineType, VisitorCallSite.resolver(combinerMap))
+    };
+  }
+  
+  /**
+   * Returns the expand and the combine method handles of the computations registered by {@code consumer}.
+   */
+  static <P, R> MethodHandle[] registry(Consumer<? super PostOrderVisitor.Registry<P, R>> consumer) {
+    HashMap<Class<?>, MethodHandle> childrenMap = new HashMap<>();
+    HashMap<Class<?>, MethodHandle> combinerMap = new HashMap<>();
+    consumer.accept(new PostOrderVisitor.Registry<P, R>() {
+      @Override
+      public <T> PostOrderVisitor.Registry<P, R> register(Class<T> type, Combiner<? super T, ? super P, R> combiner) {
+        return register(type, NO_CHILDREN, combiner);
+      }
+      @Override
+      public <T> PostOrderVisitor.Registry<P, R> register(Class<T> type, Children<? super T> children, Combiner<? super T, ? super P, R> combiner) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(children);
+        Objects.requireNonNull(combiner);
+        PostOrderEngine.register(childrenMap, combinerMap, COMBINE_TYPE, type, children, COMBINE.bindTo(combiner));
+        return this;
+      }
+    });
+    return dispatchers(COMBINE_TYPE, childrenMap, combinerMap);
+  }
+  
+  /**
+   * Returns the expand and the combine method handles of the computations registered by {@code consumer}.
+   */
+  static <P> MethodHandle[] intRegistry(Consumer<? super IntPostOrderVisitor.Registry<P>> consumer) {
+    HashMap<Class<?>, MethodHandle> childrenMap = new HashMap<>();
+    HashMap<Class<?>, MethodHandle> combinerMap = new HashMap<>();
+    consumer.accept(new IntPostOrderVisitor.Registry<P>() {
+      @Override
+      public <T> IntPostOrderVisitor.Registry<P> register(Class<T> type, IntPostOrderVisitor.Combiner<? super T, ? super P> combiner) {
+        return register(type, NO_CHILDREN, combiner);
+      }
+      @Override
+      public <T> IntPostOrderVisitor.Registry<P> register(Class<T> type, Children<? super T> children, IntPostOrderVisitor.Combiner<? super T, ? super P> combiner) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(children);
+        Objects.requireNonNull(combiner);
+        PostOrderEngine.register(childrenMap, combinerMap, INT_COMBINE_TYPE, type, children, INT_COMBINE.bindTo(combiner));
+        return this;
+      }
+    });
+    return dispatchers(INT_COMBINE_TYPE, childrenMap, combinerMap);
+  }
+  
+  static final class WorkStack implements Consumer<Object> {
+    private static final int NOT_EXPANDED = -1;
+    
+    Object[] exprs = new Object[16];
+    int[] bases = new int[16];  // index of the first result of the children or NOT_EXPANDED
+    int top;
+    
+    @Override
+    public void accept(Object expr) {
+      Objects.requireNonNull(expr, "a sub-expression is null");
+      if (top == exprs.length) {
+        exprs = Arrays.copyOf(exprs, top << 1);
+        bases = Arrays.copyOf(bases, top << 1);
+      }
+      exprs[top] = expr;
+      bases[top++] = NOT_EXPANDED;
+    }
+    
+    void reverse(int from) {  // so the first child is visited first
+      Object[] exprs = this.exprs;
+      for(int i = from, j = top - 1; i < j; i++, j--) {
+        Object tmp = exprs[i];
+        exprs[i] = exprs[j];
+        exprs[j] = tmp;
+      }
+    }
+  }
+  
+  static final class ObjectResults implements PostOrderVisitor.Results<Object> {
+    Object[] values = new Object[16];
+    int base;
+    int size;
+    int top;
+    
+    @Override
+    public int size() {
+      return size;
+    }
+    @Override
+    public Object get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("index " + index + " size " + size);
+      }
+      return values[base + index];
+    }
+    
+    void push(Object value) {
+      if (top == values.length) {
+        values = Arrays.copyOf(values, top << 1);
+      }
+      values[top++] = value;
+    }
+  }
+  
+  static final class IntResults implements IntPostOrderVisitor.Results {
+    int[] values = new int[16];
+    int base;
+    int size;
+    int top;
+    
+    @Override
+    public int size() {
+      return size;
+    }
+    @Override
+    public int get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("index " + index + " size " + size);
+      }
+      return values[base + index];
+    }
+    
+    void push(int value) {
+      if (top == values.length) {
+        values = Arrays.copyOf(values, top << 1);
+      }
+      values[top++] = value;
+    }
+  }
+  
+  static Object run(MethodHandle expand, MethodHandle combine, Object expr, Object parameter) throws Throwable {
+    WorkStack stack = new WorkStack();
+    ObjectResults results = new ObjectResults();
+    stack.accept(expr);
+    while(stack.top != 0) {
+      int index = stack.top - 1;
+      Object current = stack.exprs[index];
+      int base = stack.bases[index];
+      if (base == WorkStack.NOT_EXPANDED) {
+        stack.bases[index] = results.top;
+        expand.invokeExact(current, stack);
+        stack.reverse(index + 1);
+        continue;
+      }
+      stack.exprs[index] = null;
+      stack.top = index;
+      results.base = base;
+      results.size = results.top - base;
+      Object value = (Object)combine.invokeExact(current, results, parameter);
+      Arrays.fill(results.values, base, results.top, null);
+      results.top = base;
+      results.push(value);
+    }
+    return results.values[0];
+  }
+  
+  static int runInt(MethodHandle expand, MethodHandle combine, Object expr, Object parameter) throws Throwable {
+    WorkStack stack = new WorkStack();
+    IntResults results = new IntResults();
+    stack.accept(expr);
+    while(stack.top != 0) {
+      int index = stack.top - 1;
+      Object current = stack.exprs[index];
+      int base = stack.bases[index];
+      if (base == WorkStack.NOT_EXPANDED) {
+        stack.bases[index] = results.top;
+        expand.invokeExact(current, stack);
+        stack.reverse(index + 1);
+        continue;
+      }
+      stack.exprs[index] = null;
+      stack.top = index;
+      results.base = base;
+      results.size = results.top - base;
+      int value = (int)combine.invokeExact(current, results, parameter);
+      results.top = base;
+      results.push(value);
+    }
+    return results.values[0];
+  }
+  
+  /**
+   * Maximum number of nested splits, below that depth, expressions are evaluated sequentially
+   * so a degenerated tree (a list) can not overflow the stack of a worker thread.
+   */
+  static final int MAX_SPLIT_DEPTH = 64;
+  
+  static void checkParallel(ForkJoinPool pool, int threshold, ToIntFunction<Object> sizeEstimate) {
+    Objects.requireNonNull(pool);
+    Objects.requireNonNull(sizeEstimate);
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("threshold must be positive " + threshold);
+    }
+  }
+  
+  static final class ObjectTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    
+    private final MethodHandle expand;
+    private final MethodHandle combine;
+    private final ToIntFunction<Object> sizeEstimate;
+    private final int threshold;
+    private final Object expr;
+    private final Object parameter;
+    private final int depth;
+    Object value;
+    
+    ObjectTask(MethodHandle expand, MethodHandle combine, ToIntFunction<Object> sizeEstimate, int threshold, Object expr, Object parameter, int depth) {
+      this.expand = expand;
+      this.combine = combine;
+      this.sizeEstimate = sizeEstimate;
+      this.threshold = threshold;
+      this.expr = expr;
+      this.parameter = parameter;
+      this.depth = depth;
+    }
+    
+    @Override
+    protected void compute() {
+      try {
+        if (depth == MAX_SPLIT_DEPTH || sizeEstimate.applyAsInt(expr) < threshold) {
+          value = run(expand, combine, expr, parameter);
+          return;
+        }
+        WorkStack children = new WorkStack();
+        expand.invokeExact(expr, children);
+        ObjectTask[] tasks = new ObjectTask[children.top];
+        for(int i = 0; i < tasks.length; i++) {
+          tasks[i] = new ObjectTask(expand, combine, sizeEstimate, threshold, children.exprs[i], parameter, depth + 1);
+        }
+        ForkJoinTask.invokeAll(tasks);
+        ObjectResults results = new ObjectResults();
+        for(ObjectTask task: tasks) {
+          results.push(task.value);
+        }
+        results.size = results.top;
+        value = (Object)combine.invokeExact(expr, results, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    }
+  }
+  
+  static final class IntTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    
+    private final MethodHandle expand;
+    private final MethodHandle combine;
+    private final ToIntFunction<Object> sizeEstimate;
+    private final int threshold;
+    private final Object expr;
+    private final Object parameter;
+    private final int depth;
+    int value;
+    
+    IntTask(MethodHandle expand, MethodHandle combine, ToIntFunction<Object> sizeEstimate, int threshold, Object expr, Object parameter, int depth) {
+      this.expand = expand;
+      this.combine = combine;
+      this.sizeEstimate = sizeEstimate;
+      this.threshold = threshold;
+      this.expr = expr;
+      this.parameter = parameter;
+      this.depth = depth;
+    }
+    
+    @Override
+    protected void compute() {
+      try {
+        if (depth == MAX_SPLIT_DEPTH || sizeEstimate.applyAsInt(expr) < threshold) {
+          value = runInt(expand, combine, expr, parameter);
+          return;
+        }
+        WorkStack children = new WorkStack();
+        expand.invokeExact(expr, children);
+        IntTask[] tasks = new IntTask[children.top];
+        for(int i = 0; i < tasks.length; i++) {
+          tasks[i] = new IntTask(expand, combine, sizeEstimate, threshold, children.exprs[i], parameter, depth + 1);
+        }
+        ForkJoinTask.invokeAll(tasks);
+        IntResults results = new IntResults();
+        for(IntTask task: tasks) {
+          results.push(task.value);
+        }
+        results.size = results.top;
+        value = (int)combine.invokeExact(expr, results, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    }
+  }
+  
+  static Object runParallel(MethodHandle expand, MethodHandle combine, ForkJoinPool pool, int threshold, ToIntFunction<Object> sizeEstimate,
+                            Object expr, Object parameter) {
+    ObjectTask task = new ObjectTask(expand, combine, sizeEstimate, threshold, expr, parameter, 0);
+    pool.invoke(task);
+    return task.value;
+  }
+  
+  static int runIntParallel(MethodHandle expand, MethodHandle combine, ForkJoinPool pool, int threshold, ToIntFunction<Object> sizeEstimate,
+                            Object expr, Object parameter) {
+    IntTask task = new IntTask(expand, combine, sizeEstimate, threshold, expr, parameter, 0);
+    pool.invoke(task);
+    return task.value;
+  }
+}
@@ -0,0 +1,206 @@
+package com.github.forax.exotic;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A visitor that evaluates an expression tree in post-order using an explicit work stack
+ * instead of the Java stack, so it can visit trees of any depth without a {@link StackOverflowError}.
+ * 
+ * For each type, a {@link Children} declares the sub-expressions and a {@link Combiner} computes
+ * the value of the expression from the values of its sub-expressions.
+ * Like for a {@link Visitor}, the computation is selected by the class of the expression,
+ * using inlining caches, and if no computation is registered for a class, the computation
+ * of its most specific supertype is used.
+ * 
+ * By example, to evaluate an expression
+ * <pre>
+ *   private static final PostOrderVisitor&lt;Void, Integer&gt; VISITOR = PostOrderVisitor.create(Void.class, Integer.class, opt -&gt; opt
+ *       .register(Value.class, (value, results, __) -&gt; value.value)
+ *       .register(Add.class,   (add, children) -&gt; { children.accept(add.left); children.accept(add.right); },
+ *                              (add, results, __) -&gt; results.get(0) + results.get(1))
+ *       );
+ * </pre>
+ * 
+ * @param <P> type of the parameter value, the same parameter value is sent to all the combiners.
+ * @param <R> type of the return value (the synthesized attribute)
+ * 
+ * @see IntPostOrderVisitor
+ */
+@FunctionalInterface
+public interface PostOrderVisitor<P, R> {
+  /**
+   * Visit the expression {@code expr} and its sub-expressions in post-order.
+   * 
+   * @param expr an expression
+   * @param parameter a parameter or null.
+   * @return the value computed by the {@link Combiner} of {@code expr}.
+   * @throws NullPointerException if {@code expr} or one of its sub-expressions is null.
+   * @throws IllegalStateException if the class of an expression and its supertypes have no registered computation.
+   */
+  R visit(Object expr, P parameter);
+  
+  /**
+   * Declares the sub-expressions of an expression.
+   *
+   * @param <T> the type of the expression.
+   */
+  @FunctionalInterface
+  interface Children<T> {
+    /**
+     * Sends each sub-expressions of {@code expr}, in order, to {@code consumer}.
+     * 
+     * @param expr an expression.
+     * @param consumer a consumer of the sub-expressions.
+     */
+    void forEach(T expr, Consumer<Object> consumer);
+  }
+  
+  /**
+   * The values of the sub-expressions of an expression,
+   * this object is only valid during the call to {@link Combiner#combine(Object, Results, Object)}.
+   *
+   * @param <R> the type of the values.
+   */
+  interface Results<R> {
+    /**
+     * Returns the number of values.
+     * @return the number of values.
+     */
+    int size();
+    
+    /**
+     * Returns the value of a sub-expression.
+     * @param index the index of the sub-expression.
+     * @return the value of the sub-expression.
+     * @throws IndexOutOfBoundsException if the index is not a valid index.
+     */
+    R get(int index);
+  }
+  
+  /**
+   * Computes the value of an expression from the values of its sub-expressions.
+   *
+   * @param <T> the type of the expression.
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   */
+  @FunctionalInterface
+  interface Combiner<T, P, R> {
+    /**
+     * Computes the value of an expression.
+     * 
+     * @param expr an expression.
+     * @param results the values of the sub-expressions.
+     * @param parameter the value of a parameter or null.
+     * @return the value of the expression.
+     */
+    R combine(T expr, Results<R> results, P parameter);
+  }
+  
+  /**
+   * Registry that contains the association between a type and its corresponding computation. 
+   *
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   */
+  interface Registry<P, R> {
+    /**
+     * Register a computation for a specific type that has no sub-expression.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression.
+     * @param combiner the computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type} or {@code combiner} is null.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P, R> register(Class<T> type, Combiner<? super T, ? super P, R> combiner);
+    
+    /**
+     * Register a computation for a specific type.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression.
+     * @param children the declaration of the sub-expressions.
+     * @param combiner the computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type}, {@code children} or {@code combiner} is null.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P, R> register(Class<T> type, Children<? super T> children, Combiner<? super T, ? super P, R> combiner);
+  }
+  
+  /**
+   * Creates a visitor with the computations registered in the {@link Registry}. 
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param <R> type of the return value.
+   * @param pType class of the parameter type.
+   * @param rType class of the return type.
+   * @param consumer consumer that will register the computations in the {@link Registry}.
+   * @return a visitor configured with the computations.
+   * @throws NullPointerException if {@code pType}, {@code rType} or {@code consumer} is null.
+   */
+  static <P, R> PostOrderVisitor<P, R> create(Class<P> pType, Class<R> rType, Consumer<? super Registry<P, R>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(rType);
+    Objects.requireNonNull(consumer);
+    MethodHandle[] handles = PostOrderEngine.registry(consumer);
+    MethodHandle expand = handles[0];
+    MethodHandle combine = handles[1];
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      try {
+        @SuppressWarnings("unchecked")
+        R result = (R)PostOrderEngine.run(expand, combine, expr, parameter);
+        return result;
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  /**
+   * Creates a visitor with the computations registered in the {@link Registry} that evaluates
+   * the independent sub-expressions in parallel using the fork/join {@code pool}.
+   * 
+   * An expression which {@code sizeEstimate} is greater or equals to the {@code threshold} is split,
+   * each of its sub-expressions is evaluated in its own task, an expression which size estimate is
+   * less than the threshold is evaluated sequentially like with {@link #create(Class, Class, Consumer)}.
+   * Because the combiners are called from different threads, they must be thread safe
+   * and so is the parameter.
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param <R> type of the return value.
+   * @param pType class of the parameter type.
+   * @param rType class of the return type.
+   * @param pool the fork/join pool used to evaluate the sub-expressions.
+   * @param threshold the minimum size estimate of an expression that is split.
+   * @param sizeEstimate a function that returns an estimate of the number of nodes of an expression. 
+   * @param consumer consumer that will register the computations in the {@link Registry}.
+   * @return a visitor configured with the computations.
+   * @throws NullPointerException if {@code pType}, {@code rType}, {@code pool}, {@code sizeEstimate}
+   *   or {@code consumer} is null.
+   * @throws IllegalArgumentException if {@code threshold} is not positive.
+   */
+  static <P, R> PostOrderVisitor<P, R> createParallel(Class<P> pType, Class<R> rType, ForkJoinPool pool, int threshold,
+                                                     ToIntFunction<Object> sizeEstimate, Consumer<? super Registry<P, R>> consumer) {
+    Objects.requireNonNull(pType);
+    Objects.requireNonNull(rType);
+    Objects.requireNonNull(consumer);
+    PostOrderEngine.checkParallel(pool, threshold, sizeEstimate);
+    MethodHandle[] handles = PostOrderEngine.registry(consumer);
+    MethodHandle expand = handles[0];
+    MethodHandle combine = handles[1];
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      @SuppressWarnings("unchecked")
+      R result = (R)PostOrderEngine.runParallel(expand, combine, pool, threshold, sizeEstimate, expr, parameter);
+      return result;
+    };
+  }
+}
@@ -0,0 +1,105 @@
+package com.github.forax.exotic;
+
+import static com.github.forax.exotic.StringSwitch.NO_MATCH;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * A trie compiled into arrays that finds the index of the longest prefix of a string.
+ *
+ * The transitions of a state {@code s} are stored from {@code offsets[s]} to {@code offsets[s + 1]}
+ * in {@code labels} (sorted) and {@code targets}, {@code accepts[s]} is the index of the prefix
+ * that ends at the state {@code s} or {@link StringSwitch#NO_MATCH}.
+ */
+final class PrefixTrie {
+  private final int[] offsets;
+  private final char[] labels;
+  private final int[] targets;
+  private final int[] accepts;
+
+  private PrefixTrie(int[] offsets, char[] labels, int[] targets, int[] accepts) {
+    this.offsets = offsets;
+    this.labels = labels;
+    this.targets = targets;
+    this.accepts = accepts;
+  }
+
+  int index(String value) {
+    int[] offsets = this.offsets;
+    char[] labels = this.labels;
+    int state = 0;
+    int index = accepts[0];
+    int length = value.length();
+    for(int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      int low = offsets[state];
+      int high = offsets[state + 1] - 1;
+      int transition = -1;
+      while(low <= high) {
+        int middle = (low + high) >>> 1;
+        char label = labels[middle];
+        if (label < c) {
+          low = middle + 1;
+        } else if (label > c) {
+          high = middle - 1;
+        } else {
+          transition = middle;
+          break;
+        }
+      }
+      if (transition == -1) {
+        break;
+      }
+      state = targets[transition];
+      int accept = accepts[state];
+      if (accept != NO_MATCH) {
+        index = accept;
+      }
+    }
+    return index;
+  }
+
+  private static final class Node {
+    final TreeMap<Character, Node> children = new TreeMap<>();
+    int accept = NO_MATCH;
+  }
+
+  static PrefixTrie create(String[] prefixes) {
+    Node root = new Node();
+    for(int i = 0; i < prefixes.length; i++) {
+      Node node = root;
+      String prefix = prefixes[i];
+      for(int j = 0; j < prefix.length(); j++) {
+        node = node.children.computeIfAbsent(prefix.charAt(j), __ -> new Node());
+      }
+      node.accept = i;
+    }
+
+    // number the nodes in breadth first order
+    ArrayList<Node> nodes = new ArrayList<>();
+    nodes.add(root);
+    for(int i = 0; i < nodes.size(); i++) {
+      nodes.addAll(nodes.get(i).children.values());
+    }
+
+    int stateCount = nodes.size();
+    int[] offsets = new int[stateCount + 1];
+    char[] labels = new char[stateCount - 1];
+    int[] targets = new int[stateCount - 1];
+    int[] accepts = new int[stateCount];
+    int transition = 0;
+    int target = 1;
+    for(int state = 0; state < stateCount; state++) {
+      Node node = nodes.get(state);
+      offsets[state] = transition;
+      accepts[state] = node.accept;
+      for(char label: node.children.keySet()) {
+        labels[transition] = label;
+        targets[transition++] = target++;
+      }
+    }
+    offsets[stateCount] = transition;
+    return new PrefixTrie(offsets, labels, targets, accepts);
+  }
+}
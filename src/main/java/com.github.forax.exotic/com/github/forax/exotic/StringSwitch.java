@@ -1,6 +1,7 @@
 package com.github.forax.exotic;
 
-import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
 /**
  * A StringSwitch allows to encode a switch on strings as a plain old switch on integers.
@@ -65,10 +66,102 @@ public interface StringSwitch {
    */
   int NULL_MATCH = -1;
   
+  /**
+   * A switch on strings that takes a {@link CharSequence} as input,
+   * so a {@link java.nio.CharBuffer} or a {@link StringBuilder} can be matched without creating a String.
+   * 
+   * @see StringSwitch#createCharSequenceSwitch(boolean, String...)
+   */
+  @FunctionalInterface
+  interface CharSequenceSwitch {
+    /**
+     * Returns the index of the string in {@code stringcases} that has the same characters as {@code value}.
+     * @param value the value
+     * @return the index of the string that has the same characters as the {@code value},
+     *   {@value #NULL_MATCH} if {@code value} is null or {@link #NO_MATCH} if no string in the array match. 
+     */
+    int stringSwitch(CharSequence value);
+  }
+  
+  /**
+   * A switch on strings that takes a range of a byte array as input,
+   * the bytes of the range are compared to the UTF-8 encoding of the strings.
+   * 
+   * @see StringSwitch#createByteArraySwitch(boolean, String...)
+   */
+  @FunctionalInterface
+  interface ByteArraySwitch {
+    /**
+     * Returns the index of the string in {@code stringcases} which UTF-8 encoding is the same as the bytes
+     * of {@code buffer} from {@code offset} to {@code offset + length}.
+     * @param buffer the byte array
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes
+     * @return the index of the string that match the bytes,
+     *   {@value #NULL_MATCH} if {@code buffer} is null or {@link #NO_MATCH} if no string in the array match. 
+     * @throws IndexOutOfBoundsException if {@code offset} and {@code length} are not a valid range of {@code buffer}.
+     */
+    int stringSwitch(byte[] buffer, int offset, int length);
+  }
+  
+  /**
+   * A switch on strings that takes a range of a byte buffer as input,
+   * the bytes of the range are compared to the UTF-8 encoding of the strings.
+   * 
+   * @see StringSwitch#createByteBufferSwitch(boolean, String...)
+   */
+  @FunctionalInterface
+  interface ByteBufferSwitch {
+    /**
+     * Returns the index of the string in {@code stringcases} which UTF-8 encoding is the same as the bytes
+     * of {@code buffer} from the absolute index {@code offset} to {@code offset + length}.
+     * The position and the limit of the buffer are not changed.
+     * @param buffer the byte buffer
+     * @param offset the absolute index of the first byte in the buffer
+     * @param length the number of bytes
+     * @return the index of the string that match the bytes,
+     *   {@value #NULL_MATCH} if {@code buffer} is null or {@link #NO_MATCH} if no string in the array match. 
+     * @throws IndexOutOfBoundsException if {@code offset} and {@code length} are not a valid range
+     *   of {@code buffer} (up to its limit).
+     */
+    int stringSwitch(ByteBuffer buffer, int offset, int length);
+  }
+  
+  /**
+   * The strategy used by a StringSwitch to find the index of a string
+   * once too many different strings have been seen by the inlining cache.
+   * 
+   * @see StringSwitch#create(boolean, Strategy, String...)
+   */
+  enum Strategy {
+    /**
+     * A cascade of {@code if equals}, the cost is linear with the number of cases.
+     */
+    CASCADE,
+    /**
+     * A minimal perfect hash on the {@link String#hashCode() hash code} of the string
+     * followed by one call to {@link String#equals(Object)}.
+     */
+    PERFECT_HASH,
+    /**
+     * A decision tree that tests the {@link String#length() length} of the string then
+     * the {@link String#charAt(int) characters} at the positions that discriminate the cases,
+     * followed by one call to {@link String#equals(Object)}.
+     */
+    DECISION_TREE
+  }
+  
   /**
    * Creates a StringSwitch that returns for a string the index in the {@code stringcases} array
    * or {@link #NO_MATCH} if no string match.
-   * 
+   *
+   * The strings seen at runtime are first matched using an inlining cache,
+   * if there are too many different strings, the index is found using a {@link Strategy}
+   * chosen from the number of {@code stringcases}: {@link Strategy#CASCADE} if there are
+   * less than 8 cases, {@link Strategy#PERFECT_HASH} otherwise, i.e. a minimal perfect hash
+   * computed from the {@code stringcases} that finds the index with only one call to
+   * {@link String#equals(Object)}.
+   *
    * @param nullMatch true is the StringSwitch should allow null.
    * @param stringcases an array of string. 
    * @return a StringSwitch configured with the array of stringcases.
@@ -76,15 +169,119 @@ public interface StringSwitch {
    * @throws IllegalStateException if the same string appears several times in the array.
    * 
    * @see StringSwitch#stringSwitch(String)
+   * @see StringSwitch#create(boolean, Strategy, String...)
    */
   static StringSwitch create(boolean nullMatch, String... stringcases) {
-    MethodHandle mh = StringSwitchCallSite.wrapNullIfNecessary(nullMatch, StringSwitchCallSite.create(stringcases).dynamicInvoker());
-    return value -> {
-      try {
-        return (int)mh.invokeExact(value);  
-      } catch(Throwable t) {
-        throw Thrower.rethrow(t);
-      }
-    };
+    return StringSwitchCallSite.stringSwitch(nullMatch, StringSwitchCallSite.create(StringSwitchCallSite.Kind.STRING, stringcases));
+  }
+  
+  /**
+   * Creates a StringSwitch that returns for a string the index in the {@code stringcases} array
+   * or {@link #NO_MATCH} if no string match using a specific {@link Strategy strategy}
+   * once the inlining cache has seen too many different strings.
+   * 
+   * @param nullMatch true is the StringSwitch should allow null.
+   * @param strategy the strategy used when the inlining cache has seen too many different strings.
+   * @param stringcases an array of string. 
+   * @return a StringSwitch configured with the array of stringcases.
+   * @throws NullPointerException is {@code strategy} is null, {@code stringcases is null} or one string of the array is null.
+   * @throws IllegalStateException if the same string appears several times in the array.
+   * 
+   * @see StringSwitch#stringSwitch(String)
+   */
+  static StringSwitch create(boolean nullMatch, Strategy strategy, String... stringcases) {
+    Objects.requireNonNull(strategy);
+    return StringSwitchCallSite.stringSwitch(nullMatch, StringSwitchCallSite.create(StringSwitchCallSite.Kind.STRING, strategy, stringcases));
+  }
+  
+  /**
+   * Creates a StringSwitch that returns for a string the index in the {@code stringcases} array
+   * of the string equals to it {@link String#equalsIgnoreCase(String) ignoring case}
+   * or {@link #NO_MATCH} if no string match.
+   * 
+   * The strings seen at runtime are first matched using an inlining cache,
+   * if there are too many different strings, a minimal perfect hash computed on the case-folded
+   * {@code stringcases} is used, so the matching never calls {@link String#toLowerCase()}.
+   * 
+   * @param nullMatch true is the StringSwitch should allow null.
+   * @param stringcases an array of string. 
+   * @return a StringSwitch configured with the array of stringcases.
+   * @throws NullPointerException is {@code stringcases is null} or one string of the array is null.
+   * @throws IllegalStateException if the same string, ignoring case, appears several times in the array.
+   * 
+   * @see StringSwitch#stringSwitch(String)
+   */
+  static StringSwitch createIgnoreCase(boolean nullMatch, String... stringcases) {
+    return StringSwitchCallSite.stringSwitch(nullMatch, StringSwitchCallSite.createIgnoreCase(stringcases));
+  }
+  
+  /**
+   * Creates a StringSwitch that returns for a string the index in the {@code prefixes} array
+   * of the longest prefix of the string or {@link #NO_MATCH} if no prefix match.
+   * 
+   * The strings seen at runtime are first matched using an inlining cache,
+   * if there are too many different strings, a trie computed from the {@code prefixes} is used.
+   * 
+   * @param nullMatch true is the StringSwitch should allow null.
+   * @param prefixes an array of prefixes. 
+   * @return a StringSwitch configured with the array of prefixes.
+   * @throws NullPointerException is {@code prefixes is null} or one prefix of the array is null.
+   * @throws IllegalStateException if the same prefix appears several times in the array.
+   * 
+   * @see StringSwitch#stringSwitch(String)
+   */
+  static StringSwitch createPrefix(boolean nullMatch, String... prefixes) {
+    return StringSwitchCallSite.stringSwitch(nullMatch, StringSwitchCallSite.createPrefix(prefixes));
+  }
+  
+  /**
+   * Creates a switch that returns for a {@link CharSequence} the index in the {@code stringcases} array
+   * of the string with the same characters or {@link #NO_MATCH} if no string match.
+   * The matching does not allocate, it uses the same inlining cache and the same strategies
+   * as {@link #create(boolean, String...)}.
+   * 
+   * @param nullMatch true is the switch should allow null.
+   * @param stringcases an array of string. 
+   * @return a switch configured with the array of stringcases.
+   * @throws NullPointerException is {@code stringcases is null} or one string of the array is null.
+   * @throws IllegalStateException if the same string appears several times in the array.
+   */
+  static CharSequenceSwitch createCharSequenceSwitch(boolean nullMatch, String... stringcases) {
+    return StringSwitchCallSite.charSequenceSwitch(nullMatch,
+        StringSwitchCallSite.create(StringSwitchCallSite.Kind.CHAR_SEQUENCE, stringcases));
+  }
+  
+  /**
+   * Creates a switch that returns for a range of a byte array the index in the {@code stringcases} array
+   * of the string which UTF-8 encoding is equals to the bytes of the range or {@link #NO_MATCH} if no string match.
+   * The matching does not allocate, it uses the same inlining cache and the same strategies
+   * as {@link #create(boolean, String...)}.
+   * 
+   * @param nullMatch true is the switch should allow null.
+   * @param stringcases an array of string. 
+   * @return a switch configured with the array of stringcases.
+   * @throws NullPointerException is {@code stringcases is null} or one string of the array is null.
+   * @throws IllegalStateException if the same string appears several times in the array.
+   */
+  static ByteArraySwitch createByteArraySwitch(boolean nullMatch, String... stringcases) {
+    return StringSwitchCallSite.byteArraySwitch(nullMatch,
+        StringSwitchCallSite.create(StringSwitchCallSite.Kind.BYTE_ARRAY, stringcases));
+  }
+  
+  /**
+   * Creates a switch that returns for a range of a byte buffer the index in the {@code stringcases} array
+   * of the string which UTF-8 encoding is equals to the bytes of the range or {@link #NO_MATCH} if no string match.
+   * The matching does not allocate, it uses the same inlining cache and the same strategies
+   * as {@link #create(boolean, String...)}.
+   * 
+   * @param nullMatch true is the switch should allow null.
+   * @param stringcases an array of string. 
+   * @return a switch configured with the array of stringcases.
+   * @throws NullPointerException is {@code stringcases is null} or one string of the array is null.
+   * @throws IllegalStateException if the same string appears several times in the array.
+   */
+  static ByteBufferSwitch createByteBufferSwitch(boolean nullMatch, String... stringcases) {
+    return StringSwitchCallSite.byteBufferSwitch(nullMatch,
+        StringSwitchCallSite.create(StringSwitchCallSite.Kind.BYTE_BUFFER, stringcases));
   }
 }
@@ -12,104 +12,561 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 
+import com.github.forax.exotic.StringSwitch.ByteArraySwitch;
+import com.github.forax.exotic.StringSwitch.ByteBufferSwitch;
+import com.github.forax.exotic.StringSwitch.CharSequenceSwitch;
+
 class StringSwitchCallSite extends MutableCallSite {
-  private static final MethodType STRING_TO_INT = methodType(int.class, String.class);
-  private static final MethodHandle FALLBACK, EQUALS, GET_OR_DEFAULT, NULLCHECK;
+  /**
+   * The kind of input of a switch.
+   *
+   * All the inputs are seen as a sequence of units, a unit being a char for the
+   * string and the char sequence and an unsigned byte of the UTF-8 encoding for
+   * the byte array and the byte buffer.
+   * A sequence of units is represented as a String, so the units of a byte array
+   * are stored as a String of ISO-8859-1 characters.
+   */
+  enum Kind {
+    STRING(String.class) {
+      @Override
+      String key(Object[] args) {
+        return (String)args[0];
+      }
+    },
+    CHAR_SEQUENCE(CharSequence.class) {
+      @Override
+      String key(Object[] args) {
+        return args[0].toString();
+      }
+    },
+    BYTE_ARRAY(byte[].class, int.class, int.class) {
+      @Override
+      String key(Object[] args) {
+        return new String((byte[])args[0], (int)args[1], (int)args[2], StandardCharsets.ISO_8859_1);
+      }
+      @Override
+      String unitCase(String stringcase) {
+        return new String(stringcase.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+      }
+    },
+    BYTE_BUFFER(ByteBuffer.class, int.class, int.class) {
+      @Override
+      String key(Object[] args) {
+        ByteBuffer buffer = (ByteBuffer)args[0];
+        int offset = (int)args[1];
+        char[] units = new char[(int)args[2]];
+        for(int i = 0; i < units.length; i++) {
+          units[i] = (char)(buffer.get(offset + i) & 0xFF);
+        }
+        return new String(units);
+      }
+      @Override
+      String unitCase(String stringcase) {
+        return BYTE_ARRAY.unitCase(stringcase);
+      }
+    };
+
+    final MethodType type;
+    final MethodHandle contentEquals;     // (String, input)boolean
+    final MethodHandle length;            // (input)int
+    final MethodHandle unitAt;            // (int, input)int
+    final MethodHandle perfectHashIndex;  // (PerfectHash, String[], input)int
+
+    private Kind(Class<?>... parameterTypes) {
+      MethodType type = methodType(int.class, parameterTypes);
+      this.type = type;
+      contentEquals = findStatic("contentEquals", type.changeReturnType(boolean.class).insertParameterTypes(0, String.class));
+      length = findStatic("length", type);
+      unitAt = findStatic("unitAt", type.insertParameterTypes(0, int.class));
+      perfectHashIndex = findStatic("perfectHashIndex", type.insertParameterTypes(0, PerfectHash.class, String[].class));
+    }
+
+    List<Class<?>> parameterTypes() {
+      return type.parameterList();
+    }
+
+    MethodHandle constant(int index) {
+      return dropArguments(MethodHandles.constant(int.class, index), 0, parameterTypes());
+    }
+
+    /**
+     * Returns the units of the input.
+     */
+    abstract String key(Object[] args);
+
+    /**
+     * Returns the units of a case.
+     */
+    String unitCase(String stringcase) {
+      return stringcase;
+    }
+  }
+
+  private interface Matcher {
+    int index(String key);
+    MethodHandle target();
+
+    static Matcher cascade(Kind kind, String[] unitcases) {
+      return new Matcher() {
+        @Override
+        public int index(String key) {
+          for(int i = 0; i < unitcases.length; i++) {
+            if (unitcases[i].equals(key)) {
+              return i;
+            }
+          }
+          return NO_MATCH;
+        }
+        @Override
+        public MethodHandle target() {
+          return createCascadeIfEquals(kind, unitcases);
+        }
+      };
+    }
+
+    static Matcher perfectHash(Kind kind, String[] unitcases) {
+      int[] hashes = new int[unitcases.length];
+      for(int i = 0; i < unitcases.length; i++) {
+        hashes[i] = unitcases[i].hashCode();
+      }
+      PerfectHash perfectHash = PerfectHash.create(hashes);
+      return new Matcher() {
+        @Override
+        public int index(String key) {
+          return perfectHashIndex(perfectHash, unitcases, key);
+        }
+        @Override
+        public MethodHandle target() {
+          return insertArguments(kind.perfectHashIndex, 0, perfectHash, unitcases);
+        }
+      };
+    }
+
+    static Matcher decisionTree(Kind kind, String[] unitcases) {
+      DecisionTree decisionTree = DecisionTree.create(unitcases);
+      return new Matcher() {
+        @Override
+        public int index(String key) {
+          return decisionTree.index(key);
+        }
+        @Override
+        public MethodHandle target() {
+          return decisionTree.target(kind);
+        }
+      };
+    }
+
+    static Matcher ignoreCase(String[] stringcases, PerfectHash perfectHash) {
+      return new Matcher() {
+        @Override
+        public int index(String key) {
+          return ignoreCasePerfectHashIndex(perfectHash, stringcases, key);
+        }
+        @Override
+        public MethodHandle target() {
+          return insertArguments(IGNORE_CASE_PERFECT_HASH_INDEX, 0, perfectHash, stringcases);
+        }
+      };
+    }
+
+    static Matcher prefix(PrefixTrie trie) {
+      return new Matcher() {
+        @Override
+        public int index(String key) {
+          return trie.index(key);
+        }
+        @Override
+        public MethodHandle target() {
+          return PREFIX_INDEX.bindTo(trie);
+        }
+      };
+    }
+  }
+
+  private static final MethodHandle FALLBACK, NULLCHECK, IGNORE_CASE_PERFECT_HASH_INDEX, PREFIX_INDEX;
   static {
     Lookup lookup = MethodHandles.lookup();
     try {
-      FALLBACK = lookup.findVirtual(StringSwitchCallSite.class, "fallback", STRING_TO_INT);
-      EQUALS = lookup.findVirtual(String.class, "equals", methodType(boolean.class, Object.class));
-      MethodHandle get = lookup.findVirtual(HashMap.class, "getOrDefault", methodType(Object.class, Object.class, Object.class));
-      GET_OR_DEFAULT = MethodHandles.insertArguments(get, 2, -1).asType(methodType(int.class, HashMap.class, String.class));
-      MethodHandle nullCheck = lookup.findStatic(Objects.class, "isNull", methodType(boolean.class, Object.class));
-      NULLCHECK = nullCheck.asType(methodType(boolean.class, String.class));
+      FALLBACK = lookup.findVirtual(StringSwitchCallSite.class, "fallback", methodType(int.class, Object[].class));
+      IGNORE_CASE_PERFECT_HASH_INDEX = lookup.findStatic(StringSwitchCallSite.class, "ignoreCasePerfectHashIndex",
+          methodType(int.class, PerfectHash.class, String[].class, String.class));
+      PREFIX_INDEX = lookup.findVirtual(PrefixTrie.class, "index", methodType(int.class, String.class));
+      NULLCHECK = lookup.findStatic(Objects.class, "isNull", methodType(boolean.class, Object.class));
+    } catch(NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static MethodHandle findStatic(String name, MethodType type) {
+    try {
+      return MethodHandles.lookup().findStatic(StringSwitchCallSite.class, name, type);
     } catch(NoSuchMethodException | IllegalAccessException e) {
       throw new AssertionError(e);
     }
   }
   
   private static final int MAX_DEPTH = 32;
-  
+  private static final int STRATEGY_CUT_OFF = 8;
+
+  private final Kind kind;
   private final int depth;
   private final StringSwitchCallSite callsite;
-  private final String[] stringcases;
-  private final HashMap<String, Integer> map;
-  
-  private StringSwitchCallSite(String[] stringcases, HashMap<String, Integer> map) {
-    super(STRING_TO_INT);
+  private final int maxDepth;
+  private final Matcher matcher;
+
+  private StringSwitchCallSite(Kind kind, int maxDepth, Matcher matcher) {
+    super(kind.type);
+    this.kind = kind;
     this.depth = 0;
     this.callsite = this;
-    this.stringcases = stringcases;
-    this.map = map;
-    setTarget(FALLBACK.bindTo(this));
+    this.maxDepth = maxDepth;
+    this.matcher = matcher;
+    setTarget(createFallback());
   }
-  
-  private StringSwitchCallSite(int depth, StringSwitchCallSite callsite, String[] stringcases, HashMap<String, Integer> map) {
-    super(STRING_TO_INT);
+
+  private StringSwitchCallSite(Kind kind, int depth, StringSwitchCallSite callsite, int maxDepth, Matcher matcher) {
+    super(kind.type);
+    this.kind = kind;
     this.depth = depth;
     this.callsite = callsite;
-    this.stringcases = stringcases;
-    this.map = map;
-    setTarget(FALLBACK.bindTo(this));
+    this.maxDepth = maxDepth;
+    this.matcher = matcher;
+    setTarget(createFallback());
+  }
+
+  private MethodHandle createFallback() {
+    return FALLBACK.bindTo(this).asCollector(Object[].class, type().parameterCount()).asType(type());
+  }
+
+  static StringSwitchCallSite create(Kind kind, String[] stringcases) {
+    return create(kind,
+        (stringcases.length < STRATEGY_CUT_OFF)? StringSwitch.Strategy.CASCADE: StringSwitch.Strategy.PERFECT_HASH,
+        stringcases);
   }
 
-  static StringSwitchCallSite create(String[] stringcases) {
-    HashMap<String, Integer> map = new HashMap<>();  
+  static StringSwitchCallSite create(Kind kind, StringSwitch.Strategy strategy, String[] stringcases) {
+    String[] unitcases = new String[stringcases.length];
+    HashSet<String> set = new HashSet<>();
     for(int i = 0; i < stringcases.length; i++) {
       String stringcase = Objects.requireNonNull(stringcases[i]);
-      if (map.put(stringcase, i) != null) {
+      if (!set.add(stringcase)) {
         throw new IllegalStateException(stringcase + " value appear more than once");
       }
+      unitcases[i] = kind.unitCase(stringcase);
     }
-    return new StringSwitchCallSite(stringcases, map);
+    Matcher matcher;
+    switch(strategy) {
+    case CASCADE:
+      matcher = Matcher.cascade(kind, unitcases);
+      break;
+    case PERFECT_HASH:
+      matcher = Matcher.perfectHash(kind, unitcases);
+      break;
+    case DECISION_TREE:
+      matcher = Matcher.decisionTree(kind, unitcases);
+      break;
+    default:
+      throw new AssertionError();
+    }
+    return new StringSwitchCallSite(kind, Math.min(MAX_DEPTH, unitcases.length), matcher);
   }
-  
-  @SuppressWarnings("unused")
-  private int fallback(String value) {
-    Objects.requireNonNull(value);
-    int index = map.getOrDefault(value, NO_MATCH);
-    
-    //System.out.println("depth " + depth);
-    
-    if (depth == MAX_DEPTH) {
-      //System.out.println("reach max depth");
-      callsite.setTarget(GET_OR_DEFAULT.bindTo(map));
-      return index;
+
+  static StringSwitchCallSite createIgnoreCase(String[] stringcases) {
+    int[] hashes = new int[stringcases.length];
+    HashSet<String> set = new HashSet<>();
+    for(int i = 0; i < stringcases.length; i++) {
+      String stringcase = Objects.requireNonNull(stringcases[i]);
+      String folded = foldCase(stringcase);
+      if (!set.add(folded)) {
+        throw new IllegalStateException(stringcase + " value appear more than once, ignoring case");
+      }
+      hashes[i] = folded.hashCode();
+    }
+    return new StringSwitchCallSite(Kind.STRING, MAX_DEPTH, Matcher.ignoreCase(stringcases.clone(), PerfectHash.create(hashes)));
+  }
+
+  static StringSwitchCallSite createPrefix(String[] prefixes) {
+    HashSet<String> set = new HashSet<>();
+    for(String prefix: prefixes) {
+      Objects.requireNonNull(prefix);
+      if (!set.add(prefix)) {
+        throw new IllegalStateException(prefix + " value appear more than once");
+      }
     }
-    
-    if (depth == stringcases.length) {
-      //System.out.println("reach cases length");
-      callsite.setTarget(createCascadeIfEquals(stringcases));
+    return new StringSwitchCallSite(Kind.STRING, MAX_DEPTH, Matcher.prefix(PrefixTrie.create(prefixes)));
+  }
+
+  @SuppressWarnings("unused")
+  private int fallback(Object[] args) {
+    Objects.requireNonNull(args[0]);
+    String key = kind.key(args);
+    int index = matcher.index(key);
+
+    if (depth == maxDepth) {
+      callsite.setTarget(matcher.target());
       return index;
     }
-    
-    setTarget(guardWithTest(insertArguments(EQUALS, 1, value),
-        dropArguments(constant(int.class, index), 0, String.class),
-        new StringSwitchCallSite(depth + 1, callsite, stringcases, map).dynamicInvoker()));
+
+    setTarget(guardWithTest(insertArguments(kind.contentEquals, 0, key),
+        kind.constant(index),
+        new StringSwitchCallSite(kind, depth + 1, callsite, maxDepth, matcher).dynamicInvoker()));
     return index;
   }
-  
-  private static MethodHandle createCascadeIfEquals(String[] stringcases) {
-    MethodHandle target = dropArguments(constant(int.class, NO_MATCH), 0, String.class);
-    for(int i = stringcases.length; --i >= 0;) {
-      String stringcase = stringcases[i];
-      target = guardWithTest(insertArguments(EQUALS, 1, stringcase),
-          dropArguments(constant(int.class, i), 0, String.class),
+
+  private static MethodHandle createCascadeIfEquals(Kind kind, String[] unitcases) {
+    MethodHandle target = kind.constant(NO_MATCH);
+    for(int i = unitcases.length; --i >= 0;) {
+      String unitcase = unitcases[i];
+      target = guardWithTest(insertArguments(kind.contentEquals, 0, unitcase),
+          kind.constant(i),
           target);
     }
     return target;
   }
-  
+
+  // String
+
+  @SuppressWarnings("unused")
+  private static boolean contentEquals(String unitcase, String value) {
+    return value.equals(unitcase);
+  }
+
+  @SuppressWarnings("unused")
+  private static int length(String value) {
+    return value.length();
+  }
+
+  @SuppressWarnings("unused")
+  private static int unitAt(int index, String value) {
+    return value.charAt(index);
+  }
+
+  private static int perfectHashIndex(PerfectHash perfectHash, String[] unitcases, String value) {
+    for(int index = perfectHash.first(value.hashCode()); index != -1; index = perfectHash.next(index)) {
+      if (unitcases[index].equals(value)) {
+        return index;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  // String ignoring case
+
+  private static char foldCase(char c) {
+    if (c < 128) {
+      return (c >= 'A' && c <= 'Z')? (char)(c + ('a' - 'A')): c;
+    }
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static String foldCase(String value) {
+    char[] chars = new char[value.length()];
+    for(int i = 0; i < chars.length; i++) {
+      chars[i] = foldCase(value.charAt(i));
+    }
+    return new String(chars);
+  }
+
+  private static int ignoreCasePerfectHashIndex(PerfectHash perfectHash, String[] stringcases, String value) {
+    int length = value.length();
+    int hash = 0;
+    for(int i = 0; i < length; i++) {
+      hash = 31 * hash + foldCase(value.charAt(i));
+    }
+    for(int index = perfectHash.first(hash); index != -1; index = perfectHash.next(index)) {
+      if (stringcases[index].equalsIgnoreCase(value)) {
+        return index;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  // CharSequence
+
+  private static boolean contentEquals(String unitcase, CharSequence value) {
+    int length = unitcase.length();
+    if (value.length() != length) {
+      return false;
+    }
+    for(int i = 0; i < length; i++) {
+      if (value.charAt(i) != unitcase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unused")
+  private static int length(CharSequence value) {
+    return value.length();
+  }
+
+  @SuppressWarnings("unused")
+  private static int unitAt(int index, CharSequence value) {
+    return value.charAt(index);
+  }
+
+  @SuppressWarnings("unused")
+  private static int perfectHashIndex(PerfectHash perfectHash, String[] unitcases, CharSequence value) {
+    int length = value.length();
+    int hash = 0;
+    for(int i = 0; i < length; i++) {
+      hash = 31 * hash + value.charAt(i);
+    }
+    for(int index = perfectHash.first(hash); index != -1; index = perfectHash.next(index)) {
+      if (contentEquals(unitcases[index], value)) {
+        return index;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  // byte[]
+
+  private static boolean contentEquals(String unitcase, byte[] buffer, int offset, int length) {
+    if (unitcase.length() != length) {
+      return false;
+    }
+    for(int i = 0; i < length; i++) {
+      if ((buffer[offset + i] & 0xFF) != unitcase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unused")
+  private static int length(byte[] buffer, int offset, int length) {
+    return length;
+  }
+
+  @SuppressWarnings("unused")
+  private static int unitAt(int index, byte[] buffer, int offset, int length) {
+    return buffer[offset + index] & 0xFF;
+  }
+
+  @SuppressWarnings("unused")
+  private static int perfectHashIndex(PerfectHash perfectHash, String[] unitcases, byte[] buffer, int offset, int length) {
+    int hash = 0;
+    for(int i = 0; i < length; i++) {
+      hash = 31 * hash + (buffer[offset + i] & 0xFF);
+    }
+    for(int index = perfectHash.first(hash); index != -1; index = perfectHash.next(index)) {
+      if (contentEquals(unitcases[index], buffer, offset, length)) {
+        return index;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  // ByteBuffer
+
+  private static boolean contentEquals(String unitcase, ByteBuffer buffer, int offset, int length) {
+    if (unitcase.length() != length) {
+      return false;
+    }
+    for(int i = 0; i < length; i++) {
+      if ((buffer.get(offset + i) & 0xFF) != unitcase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unused")
+  private static int length(ByteBuffer buffer, int offset, int length) {
+    return length;
+  }
+
+  @SuppressWarnings("unused")
+  private static int unitAt(int index, ByteBuffer buffer, int offset, int length) {
+    return buffer.get(offset + index) & 0xFF;
+  }
+
+  @SuppressWarnings("unused")
+  private static int perfectHashIndex(PerfectHash perfectHash, String[] unitcases, ByteBuffer buffer, int offset, int length) {
+    int hash = 0;
+    for(int i = 0; i < length; i++) {
+      hash = 31 * hash + (buffer.get(offset + i) & 0xFF);
+    }
+    for(int index = perfectHash.first(hash); index != -1; index = perfectHash.next(index)) {
+      if (contentEquals(unitcases[index], buffer, offset, length)) {
+        return index;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  static StringSwitch stringSwitch(boolean nullMatch, StringSwitchCallSite callsite) {
+    MethodHandle mh = wrapNullIfNecessary(nullMatch, callsite.dynamicInvoker());
+    return value -> {
+      try {
+        return (int)mh.invokeExact(value);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+
+  static CharSequenceSwitch charSequenceSwitch(boolean nullMatch, StringSwitchCallSite callsite) {
+    MethodHandle mh = wrapNullIfNecessary(nullMatch, callsite.dynamicInvoker());
+    return value -> {
+      try {
+        return (int)mh.invokeExact(value);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+
+  static ByteArraySwitch byteArraySwitch(boolean nullMatch, StringSwitchCallSite callsite) {
+    MethodHandle mh = wrapNullIfNecessary(nullMatch, callsite.dynamicInvoker());
+    return (buffer, offset, length) -> {
+      if (buffer != null) {
+        checkBounds(offset, length, buffer.length);
+      }
+      try {
+        return (int)mh.invokeExact(buffer, offset, length);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+
+  static ByteBufferSwitch byteBufferSwitch(boolean nullMatch, StringSwitchCallSite callsite) {
+    MethodHandle mh = wrapNullIfNecessary(nullMatch, callsite.dynamicInvoker());
+    return (buffer, offset, length) -> {
+      if (buffer != null) {
+        checkBounds(offset, length, buffer.limit());
+      }
+      try {
+        return (int)mh.invokeExact(buffer, offset, length);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+
+  private static void checkBounds(int offset, int length, int capacity) {
+    if (offset < 0 || length < 0 || offset > capacity - length) {
+      throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " capacity " + capacity);
+    }
+  }
+
   static MethodHandle wrapNullIfNecessary(boolean nullMatch, MethodHandle mh) {
     if (!nullMatch) {
       return mh;
     }
-    return guardWithTest(NULLCHECK,
-        dropArguments(constant(int.class, StringSwitch.NULL_MATCH), 0, String.class),
+    MethodType type = mh.type();
+    return guardWithTest(
+        dropArguments(NULLCHECK.asType(methodType(boolean.class, type.parameterType(0))), 1, type.dropParameterTypes(0, 1).parameterList()),
+        dropArguments(constant(int.class, StringSwitch.NULL_MATCH), 0, type.parameterList()),
         mh);
   }
-}
\ No newline at end of file
+}
@@ -1,6 +1,10 @@
 package com.github.forax.exotic;
 
-import java.lang.invoke.MethodHandle;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A TypeSwitch allows to encode a switch on types as a plain old switch on integers.
@@ -58,6 +62,65 @@ public interface TypeSwitch {
    */
   int typeSwitch(Object value);
   
+  /**
+   * Stores in {@code out} the index of the class of each element of {@code in},
+   * from {@code from} (inclusive) to {@code to} (exclusive),
+   * {@code out[i]} is equivalent to {@code typeSwitch(in[i])}.
+   * The index is only computed once for a run of consecutive elements of the same class.
+   * 
+   * @param in an array of values.
+   * @param out an array that will contain the indexes.
+   * @param from the index of the first element (inclusive).
+   * @param to the index of the last element (exclusive).
+   * @throws IndexOutOfBoundsException if {@code from} and {@code to} are not a valid range of {@code in} and {@code out}.
+   * 
+   * @see #typeSwitch(Object)
+   * @see #parallelTypeSwitchAll(Object[], int[], int, int)
+   */
+  default void typeSwitchAll(Object[] in, int[] out, int from, int to) {
+    TypeSwitchCallSite.typeSwitchAll(this, in, out, from, to);
+  }
+  
+  /**
+   * Stores in {@code out} the index of the class of each element of {@code in} like
+   * {@link #typeSwitchAll(Object[], int[], int, int)} but the range is split in chunks
+   * that are processed in parallel using the {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}.
+   * 
+   * @param in an array of values.
+   * @param out an array that will contain the indexes.
+   * @param from the index of the first element (inclusive).
+   * @param to the index of the last element (exclusive).
+   * @throws IndexOutOfBoundsException if {@code from} and {@code to} are not a valid range of {@code in} and {@code out}.
+   */
+  default void parallelTypeSwitchAll(Object[] in, int[] out, int from, int to) {
+    TypeSwitchCallSite.parallelTypeSwitchAll(this, in, out, from, to);
+  }
+  
+  /**
+   * Returns a spliterator of the indexes of the classes of the elements of {@code spliterator}.
+   * The index is only computed once for a run of consecutive elements of the same class.
+   * 
+   * @param spliterator a spliterator of values.
+   * @return a spliterator of indexes.
+   * @throws NullPointerException if {@code spliterator} is null.
+   */
+  default Spliterator.OfInt typeSwitchAll(Spliterator<?> spliterator) {
+    return new TypeSwitchCallSite.IndexSpliterator(this, Objects.requireNonNull(spliterator));
+  }
+  
+  /**
+   * Returns a stream of the indexes of the classes of the elements of {@code stream},
+   * the returned stream is parallel if {@code stream} is parallel.
+   * The index is only computed once for a run of consecutive elements of the same class.
+   * 
+   * @param stream a stream of values.
+   * @return a stream of indexes.
+   * @throws NullPointerException if {@code stream} is null.
+   */
+  default IntStream typeSwitchAll(Stream<?> stream) {
+    return StreamSupport.intStream(typeSwitchAll(stream.spliterator()), stream.isParallel()).onClose(stream::close);
+  }
+  
   /**
    * Return value of {@link #typeSwitch(Object)} that indicates that no match is found.
    */
@@ -68,6 +131,29 @@ public interface TypeSwitch {
    */
   int NULL_MATCH = -1;
   
+  /**
+   * The strategy used by a TypeSwitch to find the index of a class
+   * once too many different classes have been seen by the inlining cache.
+   * 
+   * @see TypeSwitch#create(boolean, Strategy, Class...)
+   */
+  enum Strategy {
+    /**
+     * A cascade of {@link Class#isInstance(Object) instanceof}, the cost is linear with the number of cases.
+     */
+    INSTANCEOF,
+    /**
+     * A {@link ClassValue} that stores the index for each class.
+     */
+    CLASS_VALUE,
+    /**
+     * An open addressing hash table keyed by the identity of the classes
+     * that stores the index of each class in an array of ints,
+     * the table keeps all the classes it has seen reachable.
+     */
+    IDENTITY_TABLE
+  }
+  
   /**
    * Creates a TypeSwitch that returns for an object the index of its class/superclasses in the {@code typecases} array
    * or {@link #NO_MATCH} if no class match.
@@ -81,14 +167,80 @@ public interface TypeSwitch {
    * @see TypeSwitch#typeSwitch(Object)
    */
   static TypeSwitch create(boolean nullMatch, Class<?>... typecases) {
+    return create(nullMatch, TypeSwitchCallSite.MAX_DEPTH, TypeSwitchCallSite.STRATEGY_CUT_OFF, typecases);
+  }
+  
+  /**
+   * Creates a TypeSwitch that returns for an object the index of its class/superclasses in the {@code typecases} array
+   * or {@link #NO_MATCH} if no class match using a specific {@link Strategy strategy}
+   * once the inlining cache has seen too many different classes.
+   * 
+   * @param nullMatch true is the TypeSwitch should allow null.
+   * @param strategy the strategy used when the inlining cache has seen too many different classes.
+   * @param typecases an array 
+   * @return a TypeSwitch configured with the array of typecases.
+   * @throws NullPointerException is {@code strategy} is null, {@code typecases is null} or one element of the array is null.
+   * 
+   * @see TypeSwitch#create(boolean, Class...)
+   */
+  static TypeSwitch create(boolean nullMatch, Strategy strategy, Class<?>... typecases) {
+    Objects.requireNonNull(strategy);
+    TypeSwitchCallSite.validatePartialOrder(typecases);
+    return TypeSwitchCallSite.typeSwitch(nullMatch,
+        TypeSwitchCallSite.create(typecases, TypeSwitchCallSite.MAX_DEPTH, TypeSwitchCallSite.STRATEGY_CUT_OFF, strategy).dynamicInvoker());
+  }
+  
+  /**
+   * Creates a TypeSwitch that returns for an object the index of its class/superclasses in the {@code typecases} array
+   * or {@link #NO_MATCH} if no class match, with a specific configuration of its inlining cache.
+   * 
+   * The inlining cache installs a guard for each new receiver class and counts how many times each guard succeeds.
+   * Once {@code maxDepth} receiver classes have been seen, the cache is replaced by the guards of the hottest
+   * classes, the hottest first, followed by either a cascade of instanceof if less than {@code strategyCutOff}
+   * instanceof are expected for the remaining classes or a {@link ClassValue} otherwise.
+   * 
+   * @param nullMatch true is the TypeSwitch should allow null.
+   * @param maxDepth the number of receiver classes profiled by the inlining cache.
+   * @param strategyCutOff the number of expected instanceof from which a {@link ClassValue} is used.
+   * @param typecases an array 
+   * @return a TypeSwitch configured with the array of typecases.
+   * @throws NullPointerException is {@code typecases is null} or one element of the array is null.
+   * @throws IllegalArgumentException if {@code maxDepth} or {@code strategyCutOff} is negative.
+   * 
+   * @see TypeSwitch#create(boolean, Class...)
+   */
+  static TypeSwitch create(boolean nullMatch, int maxDepth, int strategyCutOff, Class<?>... typecases) {
+    TypeSwitchCallSite.validatePartialOrder(typecases);
+    return TypeSwitchCallSite.typeSwitch(nullMatch, TypeSwitchCallSite.create(typecases, maxDepth, strategyCutOff, null).dynamicInvoker());
+  }
+  
+  /**
+   * Creates a TypeSwitch on the closed hierarchy rooted at {@code sealedRoot} that returns for an object
+   * the index of its class/superclasses in the {@code typecases} array.
+   * 
+   * A closed hierarchy is made of final classes (this includes records), enums and sealed classes or interfaces
+   * whose permitted subclasses are themselves part of the closed hierarchy.
+   * All the concrete classes of the hierarchy are known when the TypeSwitch is created,
+   * so the index of each class is computed eagerly and stored in a table indexed by the exact class,
+   * at runtime there is neither an inlining cache nor a walk of the supertypes.
+   * 
+   * Because the switch is exhaustive, {@link #typeSwitch(Object)} never returns {@link #NO_MATCH},
+   * an object whose class is not part of the hierarchy (this can only happen with an unsafe cast)
+   * raises an {@link IncompatibleClassChangeError}.
+   * 
+   * @param nullMatch true is the TypeSwitch should allow null.
+   * @param sealedRoot the root of the closed hierarchy.
+   * @param typecases an array 
+   * @return a TypeSwitch configured with the array of typecases.
+   * @throws NullPointerException is {@code sealedRoot} is null, {@code typecases is null} or one element of the array is null.
+   * @throws IllegalArgumentException if the hierarchy of {@code sealedRoot} is not closed.
+   * @throws IllegalStateException if a concrete class of the hierarchy is not matched by any typecase
+   *   or if a typecase matches no class of the hierarchy.
+   * 
+   * @see TypeSwitch#create(boolean, Class...)
+   */
+  static TypeSwitch createExhaustive(boolean nullMatch, Class<?> sealedRoot, Class<?>... typecases) {
     TypeSwitchCallSite.validatePartialOrder(typecases);
-    MethodHandle mh = TypeSwitchCallSite.wrapNullIfNecessary(nullMatch, TypeSwitchCallSite.create(typecases).dynamicInvoker());
-    return value -> {
-      try {
-        return (int)mh.invokeExact(value);  
-      } catch(Throwable t) {
-        throw Thrower.rethrow(t);
-      }
-    };
+    return TypeSwitchCallSite.typeSwitch(nullMatch, TypeSwitchCallSite.createExhaustive(sealedRoot, typecases));
   }
 }
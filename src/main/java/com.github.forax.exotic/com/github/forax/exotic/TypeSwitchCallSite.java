@@ -4,6 +4,7 @@ import static com.github.forax.exotic.TypeSwitch.NO_MATCH;
 import static java.lang.invoke.MethodHandles.constant;
 import static java.lang.invoke.MethodHandles.dropArguments;
 import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
 import static java.lang.invoke.MethodType.methodType;
 
 import java.lang.invoke.MethodHandle;
@@ -12,8 +13,18 @@ import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 class TypeSwitchCallSite extends MutableCallSite {
   static void validatePartialOrder(Class<?>[] typecases) {
@@ -58,8 +69,7 @@ class TypeSwitchCallSite extends MutableCallSite {
     int index(Class<?> receiverClass);
     MethodHandle target();
     
-    static Strategy isInstance(Class<?>[] typecases) {
-      WeakReference<Class<?>>[] refs = createRefArray(typecases);
+    static Strategy isInstance(WeakReference<Class<?>>[] refs) {
       return new Strategy() {
         @Override
         public int index(Class<?> receiverClass) {
@@ -88,8 +98,8 @@ class TypeSwitchCallSite extends MutableCallSite {
       };
     }
     
-    static Strategy classValue(Class<?>[] typecases) {
-      ClassValue<Integer> classValue = createClassValue(typecases);
+    static Strategy classValue(WeakReference<Class<?>>[] refs) {
+      ClassValue<Integer> classValue = createClassValue(refs);
       return new Strategy() {
         @Override
         public int index(Class<?> receiverClass) {
@@ -100,7 +110,34 @@ class TypeSwitchCallSite extends MutableCallSite {
           return GET.bindTo(classValue);
         }
       };
-    } 
+    }
+    
+    static Strategy identityTable(WeakReference<Class<?>>[] refs) {
+      ClassTable table = new ClassTable(refs);
+      return new Strategy() {
+        @Override
+        public int index(Class<?> receiverClass) {
+          return table.index(receiverClass);
+        }
+        @Override
+        public MethodHandle target() {
+          return TABLE_GET.bindTo(table);
+        }
+      };
+    }
+    
+    static Strategy of(TypeSwitch.Strategy strategy, WeakReference<Class<?>>[] refs) {
+      switch(strategy) {
+      case INSTANCEOF:
+        return isInstance(refs);
+      case CLASS_VALUE:
+        return classValue(refs);
+      case IDENTITY_TABLE:
+        return identityTable(refs);
+      default:
+        throw new AssertionError(strategy);
+      }
+    }
   }
   
   static WeakReference<Class<?>>[] createRefArray(Class<?>[] typecases) {
@@ -112,7 +149,7 @@ class TypeSwitchCallSite extends MutableCallSite {
     return refs;
   }
   
-  static ClassValue<Integer> createClassValue(Class<?>[] typecases) {
+  static ClassValue<Integer> createClassValue(WeakReference<Class<?>>[] refs) {
     ThreadLocal<Integer> local = new ThreadLocal<>();
     ClassValue<Integer> classValue = new ClassValue<Integer>() {
       @Override
@@ -139,78 +176,407 @@ class TypeSwitchCallSite extends MutableCallSite {
         return index;
       }
     };
-    for(int i = 0; i < typecases.length; i++) {
+    for(int i = 0; i < refs.length; i++) {
+      Class<?> typecase = refs[i].get();
+      if (typecase == null) {
+        continue;
+      }
       local.set(i);  // inject value
-      classValue.get(typecases[i]);
+      classValue.get(typecase);
     }
     local.set(null);  // no injection anymore
     return classValue;
   }
   
+  /**
+   * The receiver classes seen by the guards of the inlining cache,
+   * the slot of a class is the depth of the call site that has installed its guard,
+   * and the receiver classes seen by the strategy behind the guards (the misses).
+   * 
+   * The counters of the guards are not atomic, a lost update only makes the profile a little less accurate,
+   * each counter is on its own cache line so the hits of different classes do not write to the same line.
+   * The counters are only updated until the inlining cache is relinked, the relinked target
+   * does not count anything anymore.
+   */
+  private static final class Profile {
+    private static final int STRIDE = 16;  // 64 bytes, one counter by cache line
+    
+    final Class<?>[] classes;
+    final int[] indexes;
+    private final int[] counts;
+    final ConcurrentHashMap<Class<?>, AtomicInteger> misses = new ConcurrentHashMap<>();
+    final AtomicInteger missCount = new AtomicInteger();
+    volatile boolean relinked;
+    volatile Class<?>[] guarded = new Class<?>[0];  // the classes guarded by the relinked target
+    
+    Profile(int maxDepth) {
+      classes = new Class<?>[maxDepth];
+      indexes = new int[maxDepth];
+      counts = new int[maxDepth * STRIDE];
+    }
+    
+    int count(int slot) {
+      return counts[slot * STRIDE];
+    }
+    
+    int increment(int slot) {
+      return ++counts[slot * STRIDE];
+    }
+    
+    void reset(int slot) {
+      counts[slot * STRIDE] = 1;
+    }
+    
+    long total() {
+      long total = missCount.get();
+      for(int slot = 0; slot < classes.length; slot++) {
+        total += count(slot);
+      }
+      return total;
+    }
+  }
+  
   
   private static final MethodType OBJECT_TO_INT = methodType(int.class, Object.class);
-  private static final MethodHandle FALLBACK, TYPECHECK, NULLCHECK;
-  static final MethodHandle GET, IS_INSTANCE;
+  private static final MethodHandle FALLBACK, HIT, MISS, TYPECHECK, NULLCHECK, UNEXPECTED;
+  static final MethodHandle GET, TABLE_GET, IS_INSTANCE;
   static {
     Lookup lookup = MethodHandles.lookup();
     try {
       FALLBACK = lookup.findVirtual(TypeSwitchCallSite.class, "fallback", OBJECT_TO_INT);
+      HIT = lookup.findVirtual(TypeSwitchCallSite.class, "hit", methodType(int.class, int.class, int.class, Object.class));
+      MISS = lookup.findVirtual(TypeSwitchCallSite.class, "miss", OBJECT_TO_INT);
       TYPECHECK = lookup.findStatic(TypeSwitchCallSite.class, "typecheck", methodType(boolean.class, Class.class, Object.class));
       GET = lookup.findStatic(TypeSwitchCallSite.class, "get", methodType(int.class, ClassValue.class, Object.class));
+      TABLE_GET = lookup.findStatic(TypeSwitchCallSite.class, "get", methodType(int.class, ClassTable.class, Object.class));
       NULLCHECK = lookup.findStatic(Objects.class, "isNull", methodType(boolean.class, Object.class));
+      UNEXPECTED = lookup.findStatic(TypeSwitchCallSite.class, "unexpected", OBJECT_TO_INT);
       IS_INSTANCE = lookup.findVirtual(Class.class, "isInstance", methodType(boolean.class, Object.class));
     } catch(NoSuchMethodException | IllegalAccessException e) {
       throw new AssertionError(e);
     }
   }
   
-  private static final int MAX_DEPTH = 8;
-  private static final int STRATEGY_CUT_OFF = 5;
+  // Class.isSealed() and Class.getPermittedSubclasses() are only available since Java 17
+  private static final MethodHandle IS_SEALED, GET_PERMITTED_SUBCLASSES;
+  static {
+    Lookup lookup = MethodHandles.lookup();
+    MethodHandle isSealed, getPermittedSubclasses;
+    try {
+      isSealed = lookup.findVirtual(Class.class, "isSealed", methodType(boolean.class));
+      getPermittedSubclasses = lookup.findVirtual(Class.class, "getPermittedSubclasses", methodType(Class[].class));
+    } catch(NoSuchMethodException e) {
+      isSealed = null;
+      getPermittedSubclasses = null;
+    } catch(IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+    IS_SEALED = isSealed;
+    GET_PERMITTED_SUBCLASSES = getPermittedSubclasses;
+  }
+  
+  static final int MAX_DEPTH = 8;
+  static final int STRATEGY_CUT_OFF = 5;
+  // the inlining cache is relinked once PROFILE_WINDOW receivers have been seen,
+  // the total is only computed every PROFILE_SAMPLE hits of a class or misses
+  private static final int PROFILE_WINDOW = 1 << 16;
+  private static final int PROFILE_SAMPLE = 1 << 10;
   
   private final int depth;
   private final TypeSwitchCallSite callsite;
+  private final WeakReference<Class<?>>[] refs;
+  private final int maxDepth;
+  private final int strategyCutOff;
+  private final boolean adaptive;
   private final Strategy strategy;
+  private final Profile profile;
   
-  private TypeSwitchCallSite(Strategy strategy) {
+  private TypeSwitchCallSite(WeakReference<Class<?>>[] refs, int maxDepth, int strategyCutOff, boolean adaptive, Strategy strategy) {
     super(OBJECT_TO_INT);
     this.depth = 0;
     this.callsite = this;
+    this.refs = refs;
+    this.maxDepth = maxDepth;
+    this.strategyCutOff = strategyCutOff;
+    this.adaptive = adaptive;
     this.strategy = strategy;
+    this.profile = new Profile(maxDepth);
     setTarget(FALLBACK.bindTo(this));
   }
   
-  private TypeSwitchCallSite(int depth, TypeSwitchCallSite callsite, Strategy strategy) {
+  private TypeSwitchCallSite(int depth, TypeSwitchCallSite callsite) {
     super(OBJECT_TO_INT);
     this.depth = depth;
     this.callsite = callsite;
-    this.strategy = strategy;
+    this.refs = callsite.refs;
+    this.maxDepth = callsite.maxDepth;
+    this.strategyCutOff = callsite.strategyCutOff;
+    this.adaptive = callsite.adaptive;
+    this.strategy = callsite.strategy;
+    this.profile = callsite.profile;
     setTarget(FALLBACK.bindTo(this));
   }
 
   static TypeSwitchCallSite create(Class<?>[] typecases) {
+    return create(typecases, MAX_DEPTH, STRATEGY_CUT_OFF, null);
+  }
+  
+  /**
+   * Creates the inlining cache, if {@code strategy} is null the strategy is chosen using
+   * {@code strategyCutOff} and the profile of the receiver classes.
+   */
+  static TypeSwitchCallSite create(Class<?>[] typecases, int maxDepth, int strategyCutOff, TypeSwitch.Strategy strategy) {
     for(Class<?> typecase: typecases) {
       Objects.requireNonNull(typecase);
     }
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("maxDepth is negative " + maxDepth);
+    }
+    if (strategyCutOff < 0) {
+      throw new IllegalArgumentException("strategyCutOff is negative " + strategyCutOff);
+    }
     
-    Strategy strategy = (typecases.length < STRATEGY_CUT_OFF)?
-      Strategy.isInstance(typecases): Strategy.classValue(typecases);
-    return new TypeSwitchCallSite(strategy);
+    WeakReference<Class<?>>[] refs = createRefArray(typecases);
+    if (strategy != null) {
+      return new TypeSwitchCallSite(refs, maxDepth, strategyCutOff, false, Strategy.of(strategy, refs));
+    }
+    return new TypeSwitchCallSite(refs, maxDepth, strategyCutOff, true, (typecases.length < strategyCutOff)?
+        Strategy.isInstance(refs): Strategy.classValue(refs));
   }
   
   @SuppressWarnings("unused")
   private int fallback(Object value) {
+    if (depth == maxDepth) {
+      if (maxDepth == 0) {  // no guard, nothing to profile
+        callsite.relink();
+        return strategy.index(value.getClass());
+      }
+      // the classes not guarded are found by the strategy and profiled until the relink
+      setTarget(MISS.bindTo(callsite));
+      return callsite.miss(value);
+    }
+    
+    Class<?> receiverClass = value.getClass();
+    int index = strategy.index(receiverClass);
+    profile.classes[depth] = receiverClass;
+    profile.indexes[depth] = index;
+    profile.reset(depth);
+    setTarget(guardWithTest(TYPECHECK.bindTo(receiverClass),
+        insertArguments(HIT.bindTo(callsite), 0, depth, index),
+        new TypeSwitchCallSite(depth + 1, callsite).dynamicInvoker()));
+    return index;
+  }
+  
+  @SuppressWarnings("unused")
+  private int hit(int slot, int index, Object value) {
+    // only the counter of the slot is written, the total is computed from time to time
+    Profile profile = this.profile;
+    if ((profile.increment(slot) & (PROFILE_SAMPLE - 1)) == 0) {
+      relinkIfProfiled();
+    }
+    return index;
+  }
+  
+  private int miss(Object value) {
     Class<?> receiverClass = value.getClass();
     int index = strategy.index(receiverClass);
+    Profile profile = this.profile;
+    if (!profile.relinked) {
+      profile.misses.computeIfAbsent(receiverClass, __ -> new AtomicInteger()).incrementAndGet();
+      if ((profile.missCount.incrementAndGet() & (PROFILE_SAMPLE - 1)) == 0) {
+        relinkIfProfiled();
+      }
+    }
+    return index;
+  }
+  
+  private void relinkIfProfiled() {
+    // a lost update may skip the exact value of the window, so test with >=
+    Profile profile = this.profile;
+    if (!profile.relinked && profile.total() >= PROFILE_WINDOW) {
+      relink();
+    }
+  }
+  
+  /** The classes guarded by the relinked target, the hottest first, for testing purpose. */
+  Class<?>[] guardedClasses() {
+    return profile.guarded.clone();
+  }
+  
+  /**
+   * Replaces the whole inlining cache by a guard for each receiver class that has been seen more often
+   * than the average, the hottest first, followed by the strategy that is the cheapest for the
+   * remaining receiver classes. The receiver classes are the ones of the guards of the inlining cache
+   * and the ones seen by the strategy behind the guards, so a hot class seen after the inlining cache
+   * is full is also guarded.
+   */
+  private void relink() {
+    Profile profile = this.profile;
+    synchronized(profile) {  // only one thread relinks
+      if (profile.relinked) {
+        return;
+      }
+      profile.relinked = true;
+    }
     
-    if (depth == MAX_DEPTH) {
-      setTarget(strategy.target());
-      return index;
+    // the candidates, the classes of the guards then the classes seen by the strategy
+    ArrayList<Class<?>> classes = new ArrayList<>();
+    ArrayList<Integer> indexes = new ArrayList<>();
+    ArrayList<Long> counts = new ArrayList<>();
+    for(int slot = 0; slot < maxDepth && profile.classes[slot] != null; slot++) {
+      classes.add(profile.classes[slot]);
+      indexes.add(profile.indexes[slot]);
+      counts.add((long)profile.count(slot));
+    }
+    for(Map.Entry<Class<?>, AtomicInteger> entry: profile.misses.entrySet()) {
+      Class<?> receiverClass = entry.getKey();
+      classes.add(receiverClass);
+      indexes.add(strategy.index(receiverClass));
+      counts.add((long)entry.getValue().get());
     }
+    profile.misses.clear();  // do not retain the classes
     
-    setTarget(guardWithTest(TYPECHECK.bindTo(receiverClass),
-        dropArguments(constant(int.class, index), 0, Object.class),
-        new TypeSwitchCallSite(depth + 1, callsite, strategy).dynamicInvoker()));
-    return index;
+    int size = classes.size();
+    Integer[] candidates = new Integer[size];
+    long total = 0;
+    for(int i = 0; i < size; i++) {
+      candidates[i] = i;
+      total += counts.get(i);
+    }
+    Arrays.sort(candidates, (c1, c2) -> Long.compare(counts.get(c2), counts.get(c1)));
+    
+    // hot classes are the ones above the average, at most maxDepth of them,
+    // the cold ones are handled by the strategy
+    int hotCount = 0;
+    long coldHits = 0;
+    long coldTests = 0;
+    for(int candidate: candidates) {
+      long count = counts.get(candidate);
+      if (hotCount < maxDepth && count * size >= total) {
+        hotCount++;
+        continue;
+      }
+      int index = indexes.get(candidate);
+      coldHits += count;
+      coldTests += count * ((index == NO_MATCH)? refs.length: index + 1);
+    }
+    
+    Strategy strategy = this.strategy;
+    if (adaptive) {
+      // the number of instanceof tests expected for the cold classes chooses the strategy
+      long expectedTests = (coldHits == 0)? refs.length: coldTests / coldHits;
+      boolean isInstance = expectedTests < strategyCutOff;
+      if (isInstance != refs.length < strategyCutOff) {
+        strategy = isInstance? Strategy.isInstance(refs): Strategy.classValue(refs);
+      }
+    }
+    
+    MethodHandle mh = strategy.target();
+    Class<?>[] guarded = new Class<?>[hotCount];
+    for(int i = hotCount; --i >= 0;) {
+      int candidate = candidates[i];
+      guarded[i] = classes.get(candidate);
+      mh = guardWithTest(TYPECHECK.bindTo(guarded[i]),
+          dropArguments(constant(int.class, (int)indexes.get(candidate)), 0, Object.class),
+          mh);
+    }
+    profile.guarded = guarded;
+    setTarget(mh);
+  }
+  
+  /**
+   * Creates a target that maps each concrete class of the closed hierarchy rooted at {@code sealedRoot}
+   * to the index of its first matching typecase, all the indexes are computed eagerly.
+   */
+  static MethodHandle createExhaustive(Class<?> sealedRoot, Class<?>[] typecases) {
+    Objects.requireNonNull(sealedRoot);
+    for(Class<?> typecase: typecases) {
+      Objects.requireNonNull(typecase);
+    }
+    LinkedHashSet<Class<?>> receivers = new LinkedHashSet<>();
+    collectReceivers(sealedRoot, receivers);
+    
+    Class<?>[] classes = receivers.toArray(new Class<?>[0]);
+    int[] indexes = new int[classes.length];
+    boolean[] reachables = new boolean[typecases.length];
+    for(int i = 0; i < classes.length; i++) {
+      Class<?> receiverClass = classes[i];
+      int index = NO_MATCH;
+      for(int j = 0; j < typecases.length; j++) {
+        if (typecases[j].isAssignableFrom(receiverClass)) {
+          index = j;
+          break;
+        }
+      }
+      if (index == NO_MATCH) {
+        throw new IllegalStateException("Class " + receiverClass.getName() + " is not matched by any case");
+      }
+      indexes[i] = index;
+      reachables[index] = true;
+    }
+    for(int i = 0; i < typecases.length; i++) {
+      if (!reachables[i]) {
+        throw new IllegalStateException("Case " + typecases[i].getName() + " matches no class of " + sealedRoot.getName());
+      }
+    }
+    
+    if (classes.length >= STRATEGY_CUT_OFF) {
+      return TABLE_GET.bindTo(ClassTable.exact(classes, indexes));
+    }
+    MethodHandle mh = UNEXPECTED;
+    for(int i = classes.length; --i >= 0;) {
+      mh = guardWithTest(TYPECHECK.bindTo(classes[i]),
+          dropArguments(constant(int.class, indexes[i]), 0, Object.class),
+          mh);
+    }
+    return mh;
+  }
+  
+  private static void collectReceivers(Class<?> type, LinkedHashSet<Class<?>> receivers) {
+    if (type.isEnum()) {
+      for(Object constant: type.getEnumConstants()) {
+        receivers.add(constant.getClass());  // a constant with a body has its own class
+      }
+      return;
+    }
+    if (isSealed(type)) {
+      if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+        receivers.add(type);
+      }
+      for(Class<?> subclass: getPermittedSubclasses(type)) {
+        collectReceivers(subclass, receivers);
+      }
+      return;
+    }
+    if (Modifier.isFinal(type.getModifiers())) {  // also true for a record
+      receivers.add(type);
+      return;
+    }
+    throw new IllegalArgumentException(type.getName() + " is not final, sealed or an enum");
+  }
+  
+  private static boolean isSealed(Class<?> type) {
+    if (IS_SEALED == null) {
+      return false;
+    }
+    try {
+      return (boolean)IS_SEALED.invokeExact(type);
+    } catch(Throwable t) {
+      throw Thrower.rethrow(t);
+    }
+  }
+  
+  private static Class<?>[] getPermittedSubclasses(Class<?> type) {
+    try {
+      return (Class<?>[])GET_PERMITTED_SUBCLASSES.invokeExact(type);
+    } catch(Throwable t) {
+      throw Thrower.rethrow(t);
+    }
+  }
+  
+  @SuppressWarnings("unused")
+  private static int unexpected(Object value) {
+    throw new IncompatibleClassChangeError("unexpected class " + value.getClass().getName());
   }
   
   @SuppressWarnings("unused")
@@ -223,6 +589,107 @@ class TypeSwitchCallSite extends MutableCallSite {
     return classValue.get(value.getClass());
   } 
   
+  @SuppressWarnings("unused")
+  private static int get(ClassTable table, Object value) {
+    return table.index(value.getClass());
+  }
+  
+  static TypeSwitch typeSwitch(boolean nullMatch, MethodHandle target) {
+    MethodHandle mh = wrapNullIfNecessary(nullMatch, target);
+    return value -> {
+      try {
+        return (int)mh.invokeExact(value);  
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  private static final int PARALLEL_CHUNK = 1 << 13;
+  
+  static void typeSwitchAll(TypeSwitch typeSwitch, Object[] in, int[] out, int from, int to) {
+    checkRange(from, to, in.length);
+    checkRange(from, to, out.length);
+    Class<?> lastClass = null;
+    int lastIndex = 0;
+    for(int i = from; i < to; i++) {
+      Object value = in[i];
+      if (value != null && value.getClass() == lastClass) {  // same class as the previous element
+        out[i] = lastIndex;
+        continue;
+      }
+      lastIndex = out[i] = typeSwitch.typeSwitch(value);
+      lastClass = (value == null)? null: value.getClass();
+    }
+  }
+  
+  static void parallelTypeSwitchAll(TypeSwitch typeSwitch, Object[] in, int[] out, int from, int to) {
+    checkRange(from, to, in.length);
+    checkRange(from, to, out.length);
+    int chunks = (int)((to - (long)from + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK);
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      int start = from + chunk * PARALLEL_CHUNK;
+      typeSwitchAll(typeSwitch, in, out, start, Math.min(to, start + PARALLEL_CHUNK));
+    });
+  }
+  
+  private static void checkRange(int from, int to, int length) {
+    if (from < 0 || from > to || to > length) {
+      throw new IndexOutOfBoundsException("from " + from + " to " + to + " length " + length);
+    }
+  }
+  
+  /**
+   * A spliterator that returns the index of each element of another spliterator,
+   * like {@link #typeSwitchAll(TypeSwitch, Object[], int[], int, int)}, the index is
+   * only computed once for a run of elements of the same class.
+   */
+  static final class IndexSpliterator implements Spliterator.OfInt {
+    private final TypeSwitch typeSwitch;
+    private final Spliterator<?> spliterator;
+    private Class<?> lastClass;
+    private int lastIndex;
+    
+    IndexSpliterator(TypeSwitch typeSwitch, Spliterator<?> spliterator) {
+      this.typeSwitch = typeSwitch;
+      this.spliterator = spliterator;
+    }
+    
+    private int index(Object value) {
+      if (value != null && value.getClass() == lastClass) {
+        return lastIndex;
+      }
+      lastClass = (value == null)? null: value.getClass();
+      return lastIndex = typeSwitch.typeSwitch(value);
+    }
+    
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      return spliterator.tryAdvance(value -> action.accept(index(value)));
+    }
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+      spliterator.forEachRemaining(value -> action.accept(index(value)));
+    }
+    @Override
+    public Spliterator.OfInt trySplit() {
+      Spliterator<?> prefix = spliterator.trySplit();
+      return (prefix == null)? null: new IndexSpliterator(typeSwitch, prefix);
+    }
+    @Override
+    public long estimateSize() {
+      return spliterator.estimateSize();
+    }
+    @Override
+    public long getExactSizeIfKnown() {
+      return spliterator.getExactSizeIfKnown();
+    }
+    @Override
+    public int characteristics() {
+      return spliterator.characteristics() & (ORDERED | SIZED | SUBSIZED | IMMUTABLE | CONCURRENT);
+    }
+  }
+  
   static MethodHandle wrapNullIfNecessary(boolean nullMatch, MethodHandle mh) {
     if (!nullMatch) {
       return mh;
@@ -14,6 +14,8 @@ import java.util.function.Consumer;
  * The visitor let you ({@link Registry#register(Class, Visitlet)}) a computation for any type you want
  * (they do not have to have a root interface by example) and then when {@link Visitor#visit(Object, Object) visiting}
  * the visitor, the right computation is called depending on the class of the expression.
+ * If no computation is registered for the class of the expression, the computation registered
+ * for its most specific supertype is called.
  * 
  * The idea of the implementation is to send an object that has the same interface as the Visitor as first parameter of each lambda
  * that implement an inlining cache specific for this lambda, thus mimicking the inlining caches that
@@ -49,7 +51,8 @@ public interface Visitor<P, R> {
    * @param parameter a parameter or null.
    * @return the return value of the called {@link Visitlet}.
    * @throws NullPointerException if {@code expr} is null.
-   * @throws IllegalStateException if the expression class has no corresponding visitlet defined
+   * @throws IllegalStateException if the expression class and its supertypes have no corresponding visitlet defined
+   *   or if several visitlets are defined for unrelated supertypes of the expression class.
    */
   R visit(Object expr, P parameter);
   
@@ -76,6 +79,52 @@ public interface Visitor<P, R> {
     R visit(Visitor<P, R> visitor, T expr, P parameter);
   }
   
+  /**
+   * The visitors of a {@link SlotVisitlet}, one for each recursion point of the computation,
+   * each visitor has its own inlining cache.
+   * 
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   * 
+   * @see Registry#register(Class, int, SlotVisitlet)
+   */
+  @FunctionalInterface
+  interface Slots<P, R> {
+    /**
+     * Returns the visitor of a recursion point.
+     * To be fully optimized, {@code index} should be a constant.
+     * 
+     * @param index the index of the recursion point.
+     * @return the visitor of the recursion point.
+     * @throws IndexOutOfBoundsException if {@code index} is not a valid index.
+     */
+    Visitor<P, R> slot(int index);
+  }
+  
+  /**
+   * A computation part of a visitor specific for a type that uses a different visitor
+   * for each of its recursion points, so the inlining cache of a recursion point only sees
+   * the classes of the expressions visited at that point (by example the left side of an addition).
+   *
+   * @param <T> the type of the expression.
+   * @param <P> the type of the parameter, can be Void if the parameter is null.
+   * @param <R> the type of the return value.
+   * 
+   * @see Registry#register(Class, int, SlotVisitlet)
+   */
+  @FunctionalInterface
+  interface SlotVisitlet<T, P, R> {
+    /**
+     * The computation for a part of an expression.
+     * 
+     * @param slots the visitors that can be called to do a recursive computation, one per recursion point.
+     * @param expr an expression.
+     * @param parameter the value of a parameter or null.
+     * @return the value of the computation.
+     */
+    R visit(Slots<P, R> slots, T expr, P parameter);
+  }
+  
   /**
    * Registry that contains the association between a type and its corresponding computation as a {@link Visitlet}. 
    *
@@ -94,6 +143,21 @@ public interface Visitor<P, R> {
      * @throws IllegalStateException if a computation has already register for a type.
      */
     <T> Registry<P, R> register(Class<T> type, Visitlet<? super T, ? super P, ? extends R> visitlet);
+    
+    /**
+     * Register a computation for a specific type that has {@code slotCount} recursion points,
+     * each one with its own visitor.
+     * 
+     * @param <T> type of the expression.
+     * @param type the class of the expression that will be computed by the computation.
+     * @param slotCount the number of recursion points of the computation.
+     * @param visitlet a computation.
+     * @return itself so calls to register can be chained (as a build).
+     * @throws NullPointerException if the {@code type} or {@code visitlet} is null.
+     * @throws IllegalArgumentException if {@code slotCount} is negative.
+     * @throws IllegalStateException if a computation has already register for a type.
+     */
+    <T> Registry<P, R> register(Class<T> type, int slotCount, SlotVisitlet<? super T, ? super P, ? extends R> visitlet);
   }
   
   /**
@@ -112,6 +176,7 @@ public interface Visitor<P, R> {
     Objects.requireNonNull(rType);
     Objects.requireNonNull(consumer);
     HashMap<Class<?>, MethodHandle> map = new HashMap<>();
+    ClassValue<MethodHandle> resolver = VisitorCallSite.resolver(map);
     
     MethodType methodType = MethodType.methodType(rType, Object.class, pType);
     consumer.accept(new Registry<P, R>() {
@@ -119,16 +184,48 @@ public interface Visitor<P, R> {
       public <T> Registry<P, R> register(Class<T> type, Visitlet<? super T, ? super P, ? extends R> visitlet) {
         Objects.requireNonNull(type);
         Objects.requireNonNull(visitlet);
-        if (map.containsKey(type)) {
-          throw new IllegalStateException("there is already a visitlet register for type " + type.getName());
+        return register(type, insertArguments(VisitorCallSite.VISIT, 0, visitlet, VisitorCallSite.visitor(methodType, resolver)));
+      }
+      
+      @Override
+      public <T> Registry<P, R> register(Class<T> type, int slotCount, SlotVisitlet<? super T, ? super P, ? extends R> visitlet) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(visitlet);
+        if (slotCount < 0) {
+          throw new IllegalArgumentException("slotCount is negative " + slotCount);
         }
-        MethodHandle mh = insertArguments(VisitorCallSite.VISIT, 0, visitlet, VisitorCallSite.visitor(methodType, map))
-            .asType(methodType.changeParameterType(0, type))
-            .asType(methodType);
-        map.put(type, mh);
+        return register(type, insertArguments(VisitorCallSite.SLOT_VISIT, 0, visitlet, VisitorCallSite.slots(methodType, resolver, slotCount)));
+      }
+      
+      private Registry<P, R> register(Class<?> type, MethodHandle visit) {
+        VisitorCallSite.register(map, methodType, type, visit);
         return this;
       }
     });
-    return VisitorCallSite.visitor(methodType, map);
+    return VisitorCallSite.visitor(methodType, resolver);
+  }
+  
+  /**
+   * Creates a visitor with the {@link Visitlet visitlets} registered in the {@link Registry}
+   * that memoizes the result of each visitlet per expression identity during one top-level
+   * {@link #visit(Object, Object) visit}, so an expression shared by several parents
+   * (a DAG by example if the expressions are hash-consed) is only computed once.
+   * 
+   * The result of a visitlet is supposed to only depend on the expression,
+   * the parameter is not part of the key of the memoization.
+   * The results are stored in a table per thread that is reset at the end of each top-level visit.
+   * 
+   * @param <P> type of the parameter, can be Void if the parameter is null.
+   * @param <R> type of the return value.
+   * @param pType class of the parameter type.
+   * @param rType class of the return type.
+   * @param consumer consumer that will register the {@link Visitlet visitlet} in the {@link Registry}.
+   * @return a visitor configured with the {@link Visitlet visitlets}.
+   * @throws NullPointerException if {@code pType}, {@code rType} or {@code consumer} is null.
+   */
+  static <P, R> Visitor<P, R> createMemoizing(Class<P> pType, Class<R> rType, Consumer<? super Registry<P, R>> consumer) {
+    Objects.requireNonNull(consumer);
+    ThreadLocal<VisitorMemo> memos = VisitorMemo.memos(Object.class);
+    return create(pType, rType, registry -> consumer.accept(VisitorMemo.memoizing(registry, memos)));
   }
 }
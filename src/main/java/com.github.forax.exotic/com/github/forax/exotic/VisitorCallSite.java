@@ -13,18 +13,24 @@ import java.lang.invoke.MutableCallSite;
 import java.util.HashMap;
 import java.util.Objects;
 
+import com.github.forax.exotic.Visitor.SlotVisitlet;
+import com.github.forax.exotic.Visitor.Slots;
 import com.github.forax.exotic.Visitor.Visitlet;
 
 class VisitorCallSite extends MutableCallSite {
   private static final MethodHandle FALLBACK, TYPECHECK, FIND;
-  static final MethodHandle VISIT;
+  static final MethodHandle VISIT, SLOT_VISIT, INT_VISIT, LONG_VISIT, DOUBLE_VISIT;
   static {
     Lookup lookup = MethodHandles.lookup();
     try {
       FALLBACK = lookup.findVirtual(VisitorCallSite.class, "fallback", methodType(MethodHandle.class, Object.class));
       VISIT = lookup.findVirtual(Visitlet.class, "visit", methodType(Object.class, Visitor.class, Object.class, Object.class));
+      SLOT_VISIT = lookup.findVirtual(SlotVisitlet.class, "visit", methodType(Object.class, Slots.class, Object.class, Object.class));
+      INT_VISIT = lookup.findVirtual(IntVisitor.Visitlet.class, "visit", methodType(int.class, IntVisitor.class, Object.class, Object.class));
+      LONG_VISIT = lookup.findVirtual(LongVisitor.Visitlet.class, "visit", methodType(long.class, LongVisitor.class, Object.class, Object.class));
+      DOUBLE_VISIT = lookup.findVirtual(DoubleVisitor.Visitlet.class, "visit", methodType(double.class, DoubleVisitor.class, Object.class, Object.class));
       TYPECHECK = lookup.findStatic(VisitorCallSite.class, "typecheck", methodType(boolean.class, Class.class, Object.class));
-      FIND = lookup.findStatic(VisitorCallSite.class, "find", methodType(MethodHandle.class, HashMap.class, Object.class));
+      FIND = lookup.findStatic(VisitorCallSite.class, "find", methodType(MethodHandle.class, ClassValue.class, Object.class));
     } catch (NoSuchMethodException | IllegalAccessException e) {
       throw new AssertionError(e);
     }
@@ -32,8 +38,54 @@ class VisitorCallSite extends MutableCallSite {
   
   private static final int MAX_DEPTH = 8;
 
-  static <P, R> Visitor<P, R> visitor(MethodType methodType, HashMap<Class<?>, MethodHandle> map) {
-    MethodHandle mh = new VisitorCallSite(methodType, map)
+  /**
+   * Creates a resolver that finds for a class the visitlet registered for the class,
+   * or for its most specific supertype that has a registered visitlet.
+   * The resolution is done once per class and cached.
+   */
+  static ClassValue<MethodHandle> resolver(HashMap<Class<?>, MethodHandle> map) {
+    ClassValue<Class<?>> registeredTypes = new ClassValue<Class<?>>() {
+      @Override
+      protected Class<?> computeValue(Class<?> type) {
+        if (map.containsKey(type)) {
+          return type;
+        }
+        Class<?> registeredType = null;
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null) {
+          registeredType = get(superclass);
+        }
+        for(Class<?> supertype: type.getInterfaces()) {
+          registeredType = mostSpecific(type, registeredType, get(supertype));
+        }
+        return registeredType;  // may be null
+      }
+    };
+    return new ClassValue<MethodHandle>() {
+      @Override
+      protected MethodHandle computeValue(Class<?> type) {
+        Class<?> registeredType = registeredTypes.get(type);
+        return (registeredType == null)? null: map.get(registeredType);
+      }
+    };
+  }
+  
+  private static Class<?> mostSpecific(Class<?> type, Class<?> registeredType1, Class<?> registeredType2) {
+    if (registeredType1 == null || registeredType2 == null) {
+      return (registeredType1 == null)? registeredType2: registeredType1;
+    }
+    if (registeredType1.isAssignableFrom(registeredType2)) {
+      return registeredType2;
+    }
+    if (registeredType2.isAssignableFrom(registeredType1)) {
+      return registeredType1;
+    }
+    throw new IllegalStateException("type " + type.getName() + " has several visitlets, one for " +
+        registeredType1.getName() + " and one for " + registeredType2.getName());
+  }
+
+  static <P, R> Visitor<P, R> visitor(MethodType methodType, ClassValue<MethodHandle> resolver) {
+    MethodHandle mh = new VisitorCallSite(methodType, resolver)
         .dynamicInvoker()
         .asType(methodType(Object.class, Object.class, Object.class));
     return (expr, parameter) -> {
@@ -46,40 +98,118 @@ class VisitorCallSite extends MutableCallSite {
     };
   }
 
+  /**
+   * Returns a method handle of type {@code methodType} that calls the method handle registered
+   * for the class of its first argument, using an inlining cache.
+   */
+  static MethodHandle dispatcher(MethodType methodType, ClassValue<MethodHandle> resolver) {
+    return new VisitorCallSite(methodType, resolver).dynamicInvoker();
+  }
+  
+  static <P> IntVisitor<P> intVisitor(MethodType methodType, ClassValue<MethodHandle> resolver) {
+    MethodHandle mh = new VisitorCallSite(methodType, resolver)
+        .dynamicInvoker()
+        .asType(methodType(int.class, Object.class, Object.class));
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      try {
+        return (int)mh.invokeExact(expr, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  static <P> LongVisitor<P> longVisitor(MethodType methodType, ClassValue<MethodHandle> resolver) {
+    MethodHandle mh = new VisitorCallSite(methodType, resolver)
+        .dynamicInvoker()
+        .asType(methodType(long.class, Object.class, Object.class));
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      try {
+        return (long)mh.invokeExact(expr, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  static <P> DoubleVisitor<P> doubleVisitor(MethodType methodType, ClassValue<MethodHandle> resolver) {
+    MethodHandle mh = new VisitorCallSite(methodType, resolver)
+        .dynamicInvoker()
+        .asType(methodType(double.class, Object.class, Object.class));
+    return (expr, parameter) -> {
+      Objects.requireNonNull(expr);
+      try {
+        return (double)mh.invokeExact(expr, parameter);
+      } catch(Throwable t) {
+        throw Thrower.rethrow(t);
+      }
+    };
+  }
+  
+  /**
+   * Registers the method handle {@code visit} that takes an expression of type {@code type} in the {@code map}.
+   */
+  static void register(HashMap<Class<?>, MethodHandle> map, MethodType methodType, Class<?> type, MethodHandle visit) {
+    if (map.containsKey(type)) {
+      throw new IllegalStateException("there is already a visitlet register for type " + type.getName());
+    }
+    MethodHandle mh = visit
+        .asType(methodType.changeParameterType(0, type))
+        .asType(methodType);
+    map.put(type, mh);
+  }
+
+  /**
+   * Creates the visitors of the recursion points of a {@link SlotVisitlet},
+   * the slots are a chain of lambdas, so the visitor is a constant if the index is a constant.
+   */
+  static <P, R> Slots<P, R> slots(MethodType methodType, ClassValue<MethodHandle> resolver, int slotCount) {
+    Slots<P, R> slots = index -> { throw new IndexOutOfBoundsException("no slot " + index); };
+    for(int i = slotCount; --i >= 0;) {
+      int slotIndex = i;
+      Visitor<P, R> visitor = visitor(methodType, resolver);
+      Slots<P, R> next = slots;
+      slots = index -> (index == slotIndex)? visitor: next.slot(index);
+    }
+    return slots;
+  }
+
   private final int depth;
   private final VisitorCallSite callsite;
-  private final HashMap<Class<?>, MethodHandle> map;
+  private final ClassValue<MethodHandle> resolver;
 
-  private VisitorCallSite(MethodType methodType, HashMap<Class<?>,MethodHandle> map) {
+  private VisitorCallSite(MethodType methodType, ClassValue<MethodHandle> resolver) {
     super(methodType);
     this.depth = 0;
     this.callsite = this;
-    this.map = map;
+    this.resolver = resolver;
     setTarget(foldArguments(exactInvoker(methodType), FALLBACK.bindTo(this)));
   }
   
-  private VisitorCallSite(MethodType methodType, VisitorCallSite callsite, int depth, HashMap<Class<?>,MethodHandle> map) {
+  private VisitorCallSite(MethodType methodType, VisitorCallSite callsite, int depth, ClassValue<MethodHandle> resolver) {
     super(methodType);
     this.depth = depth;
     this.callsite = callsite;
-    this.map = map;
+    this.resolver = resolver;
     setTarget(foldArguments(exactInvoker(methodType), FALLBACK.bindTo(this)));
   }
 
   @SuppressWarnings("unused")
   private MethodHandle fallback(Object o) {
     Class<?> receiverClass = o.getClass();
-    MethodHandle target = map.get(receiverClass);
+    MethodHandle target = resolver.get(receiverClass);
     if (target == null) {
       throw new IllegalStateException("no visitlet register for type " + receiverClass.getName());
     }
     
     if (depth == MAX_DEPTH) {
-      callsite.setTarget(foldArguments(exactInvoker(type()), FIND.bindTo(map)));
+      callsite.setTarget(foldArguments(exactInvoker(type()), FIND.bindTo(resolver)));
     } else {
       MethodHandle guard = guardWithTest(TYPECHECK.bindTo(receiverClass),
           target,
-          new VisitorCallSite(type(), callsite, depth + 1, map).dynamicInvoker());
+          new VisitorCallSite(type(), callsite, depth + 1, resolver).dynamicInvoker());
       setTarget(guard);
     }
     
@@ -92,9 +222,9 @@ class VisitorCallSite extends MutableCallSite {
   }
   
   @SuppressWarnings("unused")
-  private static MethodHandle find(HashMap<Class<?>, MethodHandle> map, Object o) {
+  private static MethodHandle find(ClassValue<MethodHandle> resolver, Object o) {
     Class<?> receiverClass = o.getClass();
-    MethodHandle target = map.get(receiverClass);
+    MethodHandle target = resolver.get(receiverClass);
     if (target == null) {
       throw new IllegalStateException("no visitlet register for type " + receiverClass.getName());
     }
@@ -0,0 +1,294 @@
+package com.github.forax.exotic;
+
+import java.util.function.Supplier;
+
+/**
+ * The results of the visitlets of a memoizing visitor during one top-level visit,
+ * an open addressing table keyed by the identity of the expressions.
+ *
+ * There is one table per visitor and per thread, the table is filled by the nested visits
+ * and reset, not reallocated, at the end of the top-level visit, only the slots used
+ * are cleared so the cost of the reset is proportional to the number of expressions visited.
+ * The values are stored in an array of the same primitive type as the return type of the visitor.
+ */
+final class VisitorMemo {
+  private static final int INITIAL_CAPACITY = 64;  // a power of 2
+
+  private Object[] keys;
+  private Object[] objects;
+  private int[] ints;
+  private long[] longs;
+  private double[] doubles;
+  private int[] used;
+  private int size;
+  private int nesting;
+
+  private VisitorMemo(Class<?> kind) {
+    keys = new Object[INITIAL_CAPACITY];
+    used = new int[INITIAL_CAPACITY >> 1];
+    if (kind == int.class) {
+      ints = new int[INITIAL_CAPACITY];
+    } else if (kind == long.class) {
+      longs = new long[INITIAL_CAPACITY];
+    } else if (kind == double.class) {
+      doubles = new double[INITIAL_CAPACITY];
+    } else {
+      objects = new Object[INITIAL_CAPACITY];
+    }
+  }
+
+  /**
+   * Creates the tables of a memoizing visitor, {@code kind} is the return type of the visitor.
+   */
+  static ThreadLocal<VisitorMemo> memos(Class<?> kind) {
+    return ThreadLocal.withInitial(() -> new VisitorMemo(kind));
+  }
+
+  private static int hash(Object key, int mask) {
+    int hash = System.identityHashCode(key);
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private int slot(Object key) {
+    Object[] keys = this.keys;
+    int mask = keys.length - 1;
+    int slot = hash(key, mask);
+    for(;;) {
+      Object k = keys[slot];
+      if (k == key || k == null) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Returns the slot of the value of {@code expr} or -1 if there is no value for {@code expr}.
+   */
+  int find(Object expr) {
+    int slot = slot(expr);
+    return (keys[slot] == expr)? slot: -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  <R> R objectAt(int slot) {
+    return (R)objects[slot];
+  }
+  int intAt(int slot) {
+    return ints[slot];
+  }
+  long longAt(int slot) {
+    return longs[slot];
+  }
+  double doubleAt(int slot) {
+    return doubles[slot];
+  }
+
+  /**
+   * Enters a visitlet, returns the previous nesting level.
+   */
+  int enter() {
+    return nesting++;
+  }
+
+  /**
+   * Leaves a visitlet, if the nesting level is zero, the top-level visit is finished so the table is reset.
+   */
+  void leave(int nesting) {
+    this.nesting = nesting;
+    if (nesting == 0) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    Object[] keys = this.keys;
+    Object[] objects = this.objects;
+    int[] used = this.used;
+    for(int i = 0; i < size; i++) {
+      int slot = used[i];
+      keys[slot] = null;
+      if (objects != null) {
+        objects[slot] = null;
+      }
+    }
+    size = 0;
+  }
+
+  private int insert(Object expr) {
+    if (size == used.length) {
+      rehash();
+    }
+    int slot = slot(expr);
+    keys[slot] = expr;
+    used[size++] = slot;
+    return slot;
+  }
+
+  private void rehash() {
+    Object[] oldKeys = keys;
+    int capacity = oldKeys.length << 1;
+    Object[] keys = new Object[capacity];
+    Object[] objects = (this.objects == null)? null: new Object[capacity];
+    int[] ints = (this.ints == null)? null: new int[capacity];
+    long[] longs = (this.longs == null)? null: new long[capacity];
+    double[] doubles = (this.doubles == null)? null: new double[capacity];
+    int[] used = new int[capacity >> 1];
+    int mask = capacity - 1;
+    for(int i = 0; i < size; i++) {
+      int oldSlot = this.used[i];
+      Object key = oldKeys[oldSlot];
+      int slot = hash(key, mask);
+      while(keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      used[i] = slot;
+      if (objects != null) {
+        objects[slot] = this.objects[oldSlot];
+      } else if (ints != null) {
+        ints[slot] = this.ints[oldSlot];
+      } else if (longs != null) {
+        longs[slot] = this.longs[oldSlot];
+      } else {
+        doubles[slot] = this.doubles[oldSlot];
+      }
+    }
+    this.keys = keys;
+    this.objects = objects;
+    this.ints = ints;
+    this.longs = longs;
+    this.doubles = doubles;
+    this.used = used;
+  }
+
+  void putObject(Object expr, Object value) {
+    int slot = insert(expr);  // may rehash
+    objects[slot] = value;
+  }
+  void putInt(Object expr, int value) {
+    int slot = insert(expr);  // may rehash
+    ints[slot] = value;
+  }
+  void putLong(Object expr, long value) {
+    int slot = insert(expr);  // may rehash
+    longs[slot] = value;
+  }
+  void putDouble(Object expr, double value) {
+    int slot = insert(expr);  // may rehash
+    doubles[slot] = value;
+  }
+
+  /**
+   * Reads the value of a slot of the table.
+   */
+  @FunctionalInterface
+  private interface Load<R> {
+    R load(VisitorMemo memo, int slot);
+  }
+
+  /**
+   * Stores the value of an expression in the table.
+   */
+  @FunctionalInterface
+  private interface Store<R> {
+    void store(VisitorMemo memo, Object expr, R value);
+  }
+
+  /**
+   * The memoization protocol of a visitlet, returns the value of {@code expr} read by {@code load}
+   * if it is in the table, otherwise calls {@code visit} and if the visit is nested, stores its value
+   * with {@code store}, the value of the top-level visit is not stored because the table is reset.
+   */
+  private static <R> R memoize(ThreadLocal<VisitorMemo> memos, Object expr, Supplier<? extends R> visit, Load<R> load, Store<R> store) {
+    VisitorMemo memo = memos.get();
+    int slot = memo.find(expr);
+    if (slot != -1) {
+      return load.load(memo, slot);
+    }
+    int nesting = memo.enter();
+    R value;
+    try {
+      value = visit.get();
+    } finally {
+      memo.leave(nesting);
+    }
+    if (nesting != 0) {
+      store.store(memo, expr, value);
+    }
+    return value;
+  }
+
+  /**
+   * Returns a registry that registers the visitlets into {@code registry} wrapped to memoize their results.
+   */
+  static <P, R> Visitor.Registry<P, R> memoizing(Visitor.Registry<P, R> registry, ThreadLocal<VisitorMemo> memos) {
+    return new Visitor.Registry<P, R>() {
+      @Override
+      public <T> Visitor.Registry<P, R> register(Class<T> type, Visitor.Visitlet<? super T, ? super P, ? extends R> visitlet) {
+        @SuppressWarnings("unchecked")
+        Visitor.Visitlet<T, P, R> memoized = (Visitor.Visitlet<T, P, R>)visitlet;
+        registry.<T>register(type, (visitor, expr, parameter) ->
+            memoize(memos, expr, () -> memoized.visit(visitor, expr, parameter), VisitorMemo::objectAt, VisitorMemo::putObject));
+        return this;
+      }
+
+      @Override
+      public <T> Visitor.Registry<P, R> register(Class<T> type, int slotCount, Visitor.SlotVisitlet<? super T, ? super P, ? extends R> visitlet) {
+        @SuppressWarnings("unchecked")
+        Visitor.SlotVisitlet<T, P, R> memoized = (Visitor.SlotVisitlet<T, P, R>)visitlet;
+        registry.<T>register(type, slotCount, (slots, expr, parameter) ->
+            memoize(memos, expr, () -> memoized.visit(slots, expr, parameter), VisitorMemo::objectAt, VisitorMemo::putObject));
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Returns a registry that registers the visitlets into {@code registry} wrapped to memoize their results.
+   */
+  static <P> IntVisitor.Registry<P> memoizingInt(IntVisitor.Registry<P> registry, ThreadLocal<VisitorMemo> memos) {
+    return new IntVisitor.Registry<P>() {
+      @Override
+      public <T> IntVisitor.Registry<P> register(Class<T> type, IntVisitor.Visitlet<? super T, ? super P> visitlet) {
+        @SuppressWarnings("unchecked")
+        IntVisitor.Visitlet<T, P> memoized = (IntVisitor.Visitlet<T, P>)visitlet;
+        registry.<T>register(type, (visitor, expr, parameter) ->
+            memoize(memos, expr, () -> memoized.visit(visitor, expr, parameter), VisitorMemo::intAt, VisitorMemo::putInt));
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Returns a registry that registers the visitlets into {@code registry} wrapped to memoize their results.
+   */
+  static <P> LongVisitor.Registry<P> memoizingLong(LongVisitor.Registry<P> registry, ThreadLocal<VisitorMemo> memos) {
+    return new LongVisitor.Registry<P>() {
+      @Override
+      public <T> LongVisitor.Registry<P> register(Class<T> type, LongVisitor.Visitlet<? super T, ? super P> visitlet) {
+        @SuppressWarnings("unchecked")
+        LongVisitor.Visitlet<T, P> memoized = (LongVisitor.Visitlet<T, P>)visitlet;
+        registry.<T>register(type, (visitor, expr, parameter) ->
+            memoize(memos, expr, () -> memoized.visit(visitor, expr, parameter), VisitorMemo::longAt, VisitorMemo::putLong));
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Returns a registry that registers the visitlets into {@code registry} wrapped to memoize their results.
+   */
+  static <P> DoubleVisitor.Registry<P> memoizingDouble(DoubleVisitor.Registry<P> registry, ThreadLocal<VisitorMemo> memos) {
+    return new DoubleVisitor.Registry<P>() {
+      @Override
+      public <T> DoubleVisitor.Registry<P> register(Class<T> type, DoubleVisitor.Visitlet<? super T, ? super P> visitlet) {
+        @SuppressWarnings("unchecked")
+        DoubleVisitor.Visitlet<T, P> memoized = (DoubleVisitor.Visitlet<T, P>)visitlet;
+        registry.<T>register(type, (visitor, expr, parameter) ->
+            memoize(memos, expr, () -> memoized.visit(visitor, expr, parameter), VisitorMemo::doubleAt, VisitorMemo::putDouble));
+        return this;
+      }
+    };
+  }
+}
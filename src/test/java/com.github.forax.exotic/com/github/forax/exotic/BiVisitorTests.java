@@ -0,0 +1,110 @@
+package com.github.forax.exotic;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class BiVisitorTests {
+  @Test
+  void promotion() {
+    BiVisitor<Void, Number> add = BiVisitor.create(Void.class, Number.class, opt -> opt
+        .register(Integer.class, Integer.class, (v, left, right, __) -> left + right)
+        .register(Integer.class, Double.class,  (v, left, right, __) -> left + right)
+        .register(Double.class,  Number.class,  (v, left, right, __) -> left + right.doubleValue())
+        );
+    assertAll(
+        () -> assertEquals(5, add.visit(2, 3, null)),
+        () -> assertEquals(5.5, add.visit(2, 3.5, null)),
+        () -> assertEquals(5.5, add.visit(2.5, 3, null)),
+        () -> assertEquals(6.0, add.visit(2.5, 3.5, null)),
+        () -> assertEquals(6.5, add.visit(2.5, 4L, null))
+      );
+  }
+  
+  interface Shape { /*empty*/ }
+  static class Circle implements Shape { /*empty*/ }
+  static class Square implements Shape { /*empty*/ }
+  
+  @Test
+  void collisions() {
+    BiVisitor<Void, String> collide = BiVisitor.create(Void.class, String.class, opt -> opt
+        .register(Shape.class,  Shape.class,  (v, s1, s2, __) -> "shape/shape")
+        .register(Circle.class, Shape.class,  (v, c, s, __)   -> "circle/shape")
+        .register(Circle.class, Circle.class, (v, c1, c2, __) -> "circle/circle")
+        .register(Square.class, Circle.class, (v, s, c, __)   -> v.visit(c, s, null))
+        );
+    for(int i = 0; i < 3; i++) {
+      assertAll(
+          () -> assertEquals("circle/circle", collide.visit(new Circle(), new Circle(), null)),
+          () -> assertEquals("circle/shape", collide.visit(new Circle(), new Square(), null)),
+          () -> assertEquals("circle/shape", collide.visit(new Square(), new Circle(), null)),
+          () -> assertEquals("shape/shape", collide.visit(new Square(), new Square(), null)),
+          () -> assertEquals("circle/circle", collide.visit(new Circle() { /*empty*/ }, new Circle(), null))
+        );
+    }
+  }
+  
+  @Test
+  void megamorphic() {
+    BiVisitor<String, String> visitor = BiVisitor.create(String.class, String.class, opt -> opt
+        .register(Object.class, Object.class, (v, left, right, sep) -> left.getClass().getSimpleName() + sep + right.getClass().getSimpleName())
+        .register(String.class, Object.class, (v, left, right, sep) -> "string")
+        );
+    Object[] values = { 1, 2L, 3.0, 4f, (short)5, (byte)6, 'c', new Object(), new StringBuilder(), true };
+    for(int n = 0; n < 3; n++) {
+      for(Object left: values) {
+        for(Object right: values) {
+          assertEquals(left.getClass().getSimpleName() + "-" + right.getClass().getSimpleName(), visitor.visit(left, right, "-"));
+        }
+        assertEquals("string", visitor.visit("foo", left, "-"));
+      }
+    }
+  }
+  
+  @Test
+  void ambiguous() {
+    BiVisitor<Void, String> visitor = BiVisitor.create(Void.class, String.class, opt -> opt
+        .register(Integer.class, Object.class, (v, left, right, __) -> "left")
+        .register(Object.class, Integer.class, (v, left, right, __) -> "right")
+        );
+    assertAll(
+        () -> assertEquals("left", visitor.visit(1, "foo", null)),
+        () -> assertEquals("right", visitor.visit("foo", 1, null)),
+        () -> assertThrows(IllegalStateException.class, () -> visitor.visit(1, 2, null))
+      );
+  }
+  
+  @Test
+  void noVisitlet() {
+    BiVisitor<Void, Void> visitor = BiVisitor.create(Void.class, Void.class, opt -> opt
+        .register(String.class, String.class, (v, left, right, __) -> null));
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> visitor.visit("foo", 3, null)),
+        () -> assertThrows(NullPointerException.class, () -> visitor.visit(null, "foo", null)),
+        () -> assertThrows(NullPointerException.class, () -> visitor.visit("foo", null, null))
+      );
+  }
+  
+  @Test
+  void registerSameVisitletTwice() {
+    assertThrows(IllegalStateException.class, () ->
+        BiVisitor.create(Void.class, Void.class, opt -> opt
+            .register(String.class, Integer.class, (_1, _2, _3, _4) -> null)
+            .register(String.class, Integer.class, (_1, _2, _3, _4) -> null)
+            ));
+  }
+  
+  @Test
+  void nullWhenCreatingAVisitor() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> BiVisitor.create(null, Void.class, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> BiVisitor.create(Void.class, null, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> BiVisitor.create(Void.class, Void.class, null)),
+        () -> assertThrows(NullPointerException.class, () -> BiVisitor.create(Void.class, Void.class, opt -> opt
+            .register(null, String.class, (_1, _2, _3, _4) -> null)))
+      );
+  }
+}
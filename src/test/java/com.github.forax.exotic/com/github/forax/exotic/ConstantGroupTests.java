@@ -0,0 +1,195 @@
+package com.github.forax.exotic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class ConstantGroupTests {
+  static class Sandbox1 {
+    static final ConstantGroup GROUP = new ConstantGroup();
+    static final MostlyConstant<Integer> WIDTH = GROUP.add(10, int.class);
+    static final MostlyConstant<String> NAME = GROUP.add("foo", String.class);
+    static final IntSupplier WIDTH_GETTER = WIDTH.intGetter();
+    static final Supplier<String> NAME_GETTER = NAME.getter();
+  }
+
+  @Test
+  void testGetters() {
+    assertEquals(10, Sandbox1.WIDTH_GETTER.getAsInt());
+    assertEquals("foo", Sandbox1.NAME_GETTER.get());
+    Sandbox1.WIDTH.setAndDeoptimize(20);
+    assertEquals(20, Sandbox1.WIDTH_GETTER.getAsInt());
+    assertEquals("foo", Sandbox1.NAME_GETTER.get());
+    Sandbox1.NAME.setAndDeoptimize("bar");
+    assertEquals(20, Sandbox1.WIDTH_GETTER.getAsInt());
+    assertEquals("bar", Sandbox1.NAME_GETTER.get());
+  }
+
+  static class Sandbox2 {
+    static final ConstantGroup GROUP = new ConstantGroup();
+    static final MostlyConstant<Integer> X = GROUP.add(1, int.class);
+    static final MostlyConstant<Double> Y = GROUP.add(2.0, double.class);
+    static final Supplier<ConstantGroup.Snapshot> SNAPSHOT_GETTER = GROUP.snapshotGetter();
+  }
+
+  @Test
+  void testSnapshot() {
+    ConstantGroup.Snapshot snapshot = Sandbox2.SNAPSHOT_GETTER.get();
+    assertEquals(1, (int) snapshot.get(Sandbox2.X));
+    assertEquals(2.0, (double) snapshot.get(Sandbox2.Y));
+
+    HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+    values.put(Sandbox2.X, 3);
+    values.put(Sandbox2.Y, 4.0);
+    MostlyConstant.updateAll(values);
+
+    ConstantGroup.Snapshot snapshot2 = Sandbox2.SNAPSHOT_GETTER.get();
+    assertEquals(3, (int) snapshot2.get(Sandbox2.X));
+    assertEquals(4.0, (double) snapshot2.get(Sandbox2.Y));
+    // an old snapshot never changes
+    assertEquals(1, (int) snapshot.get(Sandbox2.X));
+    assertEquals(2.0, (double) snapshot.get(Sandbox2.Y));
+  }
+
+  @Test
+  void testSnapshotIsConstantUntilAnUpdate() {
+    ConstantGroup group = new ConstantGroup();
+    MostlyConstant<Integer> constant = group.add(1, int.class);
+    Supplier<ConstantGroup.Snapshot> snapshotGetter = group.snapshotGetter();
+    assertSame(snapshotGetter.get(), snapshotGetter.get());
+    constant.setAndDeoptimize(2);
+    assertEquals(2, (int) snapshotGetter.get().get(constant));
+  }
+
+  @Test
+  void testSnapshotNotAMember() {
+    ConstantGroup group = new ConstantGroup();
+    ConstantGroup.Snapshot snapshot = group.snapshotGetter().get();
+    MostlyConstant<Integer> added = group.add(1, int.class);
+    assertThrows(IllegalArgumentException.class, () -> snapshot.get(added));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> snapshot.get(new MostlyConstant<>(1, int.class)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> group.snapshotGetter().get().get(new ConstantGroup().add(1, int.class)));
+  }
+
+  @Test
+  void testUpdateAllMixed() {
+    ConstantGroup group = new ConstantGroup();
+    MostlyConstant<Integer> member = group.add(1, int.class);
+    MostlyConstant<Integer> single = new MostlyConstant<>(2, int.class);
+    IntSupplier memberGetter = member.intGetter();
+    IntSupplier singleGetter = single.intGetter();
+    HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+    values.put(member, 10);
+    values.put(single, 20);
+    MostlyConstant.updateAll(values);
+    assertEquals(10, memberGetter.getAsInt());
+    assertEquals(20, singleGetter.getAsInt());
+    assertEquals(1, member.updateCount());
+  }
+
+  @Test
+  void testUpdateAllWrongType() {
+    ConstantGroup group = new ConstantGroup();
+    MostlyConstant<Integer> x = group.add(1, int.class);
+    MostlyConstant<Integer> y = group.add(2, int.class);
+    HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+    values.put(x, 10);
+    values.put(y, "oops");
+    assertThrows(ClassCastException.class, () -> MostlyConstant.updateAll(values));
+    ConstantGroup.Snapshot snapshot = group.snapshotGetter().get();
+    assertEquals(1, (int) snapshot.get(x));
+    assertEquals(2, (int) snapshot.get(y));
+  }
+
+  @Test
+  void testAddInvalid() {
+    ConstantGroup group = new ConstantGroup();
+    assertThrows(NullPointerException.class, () -> group.add(1, null));
+    assertThrows(IllegalArgumentException.class, () -> group.add(null, void.class));
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Class<Object> type = (Class) int.class;
+    assertThrows(ClassCastException.class, () -> group.add("oops", type));
+  }
+
+  @Test
+  void testManyMembers() {
+    ConstantGroup group = new ConstantGroup();
+    ArrayList<MostlyConstant<Integer>> constants = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      constants.add(group.add(i, int.class));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, constants.get(i).intGetter().getAsInt());
+    }
+  }
+
+  @Test
+  void testConcurrentUpdatesOfAMember() throws InterruptedException {
+    ConstantGroup group = new ConstantGroup();
+    MostlyConstant<Integer> member = group.add(0, int.class);
+    IntSupplier memberGetter = member.intGetter();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      int offset = t * 1_000;
+      threads[t] =
+          new Thread(
+              () -> {
+                for (int i = 1; i <= 1_000; i++) {
+                  member.setAndDeoptimize(offset + i);
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int value = memberGetter.getAsInt();
+    assertEquals(value, (int) group.snapshotGetter().get().get(member));
+    assertEquals(4_000, member.updateCount());
+    // the value seen by setIfChanged is the value of the call site
+    member.setIfChanged(value);
+    assertEquals(4_000, member.updateCount());
+  }
+
+  @Test
+  void testConsistentSnapshotsWhileUpdating() throws InterruptedException {
+    ConstantGroup group = new ConstantGroup();
+    MostlyConstant<Double> low = group.add(0.0, double.class);
+    MostlyConstant<Double> high = group.add(1.0, double.class);
+    DoubleSupplier lowGetter = low.doubleGetter();
+    Supplier<ConstantGroup.Snapshot> snapshotGetter = group.snapshotGetter();
+    AtomicBoolean done = new AtomicBoolean();
+    Thread writer =
+        new Thread(
+            () -> {
+              for (int i = 1; i <= 1_000; i++) {
+                HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+                values.put(low, (double) i);
+                values.put(high, i + 1.0);
+                MostlyConstant.updateAll(values);
+              }
+              done.set(true);
+            });
+    writer.start();
+    while (!done.get()) {
+      ConstantGroup.Snapshot snapshot = snapshotGetter.get();
+      assertEquals(snapshot.get(low) + 1.0, (double) snapshot.get(high));
+    }
+    writer.join();
+    assertTrue(lowGetter.getAsDouble() == 1_000.0);
+  }
+}
@@ -1,11 +1,33 @@
 package com.github.forax.exotic;
 
+import static java.lang.invoke.MethodType.methodType;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.forax.exotic.ConstantMemoizer.BoundedMemoizer;
+import com.github.forax.exotic.ConstantMemoizer.InliningCacheCallSite;
+import com.github.forax.exotic.ConstantMemoizer.TriFunction;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
+import java.util.function.ToLongBiFunction;
 import java.util.function.ToLongFunction;
 import org.junit.jupiter.api.Test;
 
@@ -182,4 +204,638 @@ class ConstantMemoizerTests {
             Integer.class);
     assertThrows(ClassCastException.class, () -> fun.applyAsDouble(666));
   }
+
+  @Test
+  void testManyKeys() {
+    int[] counter = {0};
+    ToIntFunction<Integer> square =
+        ConstantMemoizer.intMemoizer(
+            x -> {
+              counter[0]++;
+              return x * x;
+            },
+            Integer.class);
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(i * i, square.applyAsInt(i));
+    }
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(i * i, square.applyAsInt(i));
+    }
+    assertEquals(1_000, counter[0]);
+  }
+
+  private static final Function<Integer, Long> BIG_FIBO =
+      ConstantMemoizer.memoizer(n -> bigFibo(n), Integer.class, Long.class);
+
+  private static long bigFibo(int n) {
+    if (n < 2) {
+      return 1L;
+    }
+    return BIG_FIBO.apply(n - 2) + BIG_FIBO.apply(n - 1);
+  }
+
+  @Test
+  void testManyKeysRecursive() {
+    assertEquals(2_504_730_781_961L, (long) BIG_FIBO.apply(60));
+  }
+
+  @Test
+  void testManyKeysReturnValueNull() {
+    Function<Integer, Integer> fun =
+        ConstantMemoizer.memoizer(x -> (x < 100) ? x : null, Integer.class, Integer.class);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) fun.apply(i));
+    }
+    assertThrows(NullPointerException.class, () -> fun.apply(100));
+  }
+
+  @Test
+  void testBoundedInvalidate() {
+    HashMap<String, Integer> config = new HashMap<>();
+    config.put("foo", 1);
+    config.put("bar", 2);
+    BoundedMemoizer<String, Integer> memoizer =
+        ConstantMemoizer.boundedMemoizer(config::get, String.class, Integer.class, 10);
+    Function<String, Integer> fun = memoizer.memoizer();
+    assertEquals(1, (int) fun.apply("foo"));
+    assertEquals(2, (int) fun.apply("bar"));
+    config.put("foo", 10);
+    config.put("bar", 20);
+    assertEquals(1, (int) fun.apply("foo"));
+    memoizer.invalidate("foo");
+    assertEquals(10, (int) fun.apply("foo"));
+    assertEquals(2, (int) fun.apply("bar"));
+    memoizer.invalidateAll();
+    assertEquals(20, (int) fun.apply("bar"));
+  }
+
+  @Test
+  void testBoundedInvalidateTableKey() {
+    int[] offset = {0};
+    BoundedMemoizer<Integer, Integer> memoizer =
+        ConstantMemoizer.boundedMemoizer(x -> x + offset[0], int.class, int.class, 100);
+    Function<Integer, Integer> fun = memoizer.memoizer();
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, (int) fun.apply(i));
+    }
+    offset[0] = 1_000;
+    memoizer.invalidate(40);
+    assertEquals(1_040, (int) fun.apply(40));
+    assertEquals(41, (int) fun.apply(41));
+    memoizer.invalidateAll();
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i + 1_000, (int) fun.apply(i));
+    }
+  }
+
+  @Test
+  void testBoundedEviction() {
+    int[] counter = {0};
+    BoundedMemoizer<Integer, Integer> memoizer =
+        ConstantMemoizer.boundedMemoizer(
+            x -> {
+              counter[0]++;
+              return x;
+            },
+            Integer.class,
+            Integer.class,
+            10);
+    Function<Integer, Integer> fun = memoizer.memoizer();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, (int) fun.apply(i));
+    }
+    assertEquals(10, counter[0]);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, (int) fun.apply(i));
+    }
+    assertEquals(10, counter[0]);
+    assertEquals(10, (int) fun.apply(10)); // evicts the least recently used key, 8
+    assertEquals(9, (int) fun.apply(9));
+    assertEquals(11, counter[0]);
+    assertEquals(8, (int) fun.apply(8));
+    assertEquals(12, counter[0]);
+  }
+
+  private static final BoundedMemoizer<Integer, Long> BOUNDED_FIBO_MEMOIZER =
+      ConstantMemoizer.boundedMemoizer(n -> boundedFibo(n), Integer.class, Long.class, 100);
+  private static final Function<Integer, Long> BOUNDED_FIBO = BOUNDED_FIBO_MEMOIZER.memoizer();
+
+  private static long boundedFibo(int n) {
+    if (n < 2) {
+      return 1L;
+    }
+    return BOUNDED_FIBO.apply(n - 2) + BOUNDED_FIBO.apply(n - 1);
+  }
+
+  @Test
+  void testBoundedRecursive() {
+    assertEquals(2_504_730_781_961L, (long) BOUNDED_FIBO.apply(60));
+    BOUNDED_FIBO_MEMOIZER.invalidateAll();
+    assertEquals(2_504_730_781_961L, (long) BOUNDED_FIBO.apply(60));
+  }
+
+  private static final int[] BOUNDED_COUNTER_CALLS = {0};
+  private static final BoundedMemoizer<Integer, Long> BOUNDED_COUNTER_MEMOIZER =
+      ConstantMemoizer.boundedMemoizer(n -> boundedCounter(n), Integer.class, Long.class, 20);
+  private static final Function<Integer, Long> BOUNDED_COUNTER =
+      BOUNDED_COUNTER_MEMOIZER.memoizer();
+
+  private static long boundedCounter(int n) {
+    BOUNDED_COUNTER_CALLS[0]++;
+    if (n == 0 || n > 40) {
+      return n;
+    }
+    return BOUNDED_COUNTER.apply(n - 1) + 1;
+  }
+
+  @Test
+  void testBoundedRecursiveDeeperThanMaximumSize() {
+    assertEquals(40L, (long) BOUNDED_COUNTER.apply(40));
+    BOUNDED_COUNTER_MEMOIZER.invalidate(0);
+    for (int i = 1_000; i < 1_500; i++) {
+      assertEquals(i, (long) BOUNDED_COUNTER.apply(i));
+    }
+    // at most 20 values are memoized, so almost all the keys are computed again
+    BOUNDED_COUNTER_CALLS[0] = 0;
+    for (int i = 1_000; i < 1_500; i++) {
+      assertEquals(i, (long) BOUNDED_COUNTER.apply(i));
+    }
+    assertTrue(BOUNDED_COUNTER_CALLS[0] >= 480);
+  }
+
+  @Test
+  void testBoundedInvalid() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ConstantMemoizer.boundedMemoizer(x -> x, Integer.class, Integer.class, 0));
+    assertThrows(
+        NullPointerException.class,
+        () ->
+            ConstantMemoizer.boundedMemoizer(x -> x, Integer.class, Integer.class, 1)
+                .invalidate(null));
+  }
+
+  @Test
+  void testIdentity() {
+    int[] counter = {0};
+    Function<String, Integer> fun =
+        ConstantMemoizer.identityMemoizer(
+            s -> {
+              counter[0]++;
+              return s.length();
+            },
+            String.class,
+            Integer.class);
+    String foo = "foo";
+    String foo2 = new String("foo");
+    for (int i = 0; i < 3; i++) {
+      assertEquals(3, (int) fun.apply(foo));
+      assertEquals(3, (int) fun.apply(foo2));
+    }
+    assertEquals(2, counter[0]);
+  }
+
+  @Test
+  void testIdentityManyKeys() {
+    int[] counter = {0};
+    Function<Object, Integer> fun =
+        ConstantMemoizer.identityMemoizer(
+            o -> {
+              counter[0]++;
+              return o.hashCode();
+            },
+            Object.class,
+            Integer.class);
+    Object[] keys = new Object[100];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Object();
+    }
+    for (int n = 0; n < 2; n++) {
+      for (Object key : keys) {
+        assertEquals(key.hashCode(), (int) fun.apply(key));
+      }
+    }
+    assertEquals(100, counter[0]);
+  }
+
+  @Test
+  void testIdentityManyKeysConcurrently() throws InterruptedException {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Object, Integer> fun =
+        ConstantMemoizer.identityMemoizer(
+            o -> {
+              counter.incrementAndGet();
+              return o.hashCode();
+            },
+            Object.class,
+            Integer.class);
+    Object[] keys = new Object[1_000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Object();
+    }
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] =
+          new Thread(
+              () -> {
+                for (Object key : keys) {
+                  assertEquals(key.hashCode(), (int) fun.apply(key));
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int computed = counter.get();
+    for (Object key : keys) {
+      assertEquals(key.hashCode(), (int) fun.apply(key));
+    }
+    assertEquals(computed, counter.get());
+  }
+
+  @Test
+  void testHotKeySeenAfterTheInliningCacheIsFull() throws Throwable {
+    AtomicInteger counter = new AtomicInteger();
+    InliningCacheCallSite<Object, Object> callSite =
+        new InliningCacheCallSite<>(
+            methodType(Object.class, Object.class),
+            x -> {
+              counter.incrementAndGet();
+              return x;
+            },
+            InliningCacheCallSite.UNBOUNDED);
+    MethodHandle mh = callSite.dynamicInvoker();
+    for (int i = 0; i < 8; i++) {
+      assertEquals(i, (Object) mh.invokeExact((Object) i));
+    }
+    for (int i = 0; i <= InliningCacheCallSite.PROFILE_WINDOW; i++) {
+      assertEquals(100, (Object) mh.invokeExact((Object) 100));
+    }
+    assertEquals(Arrays.asList(100, 0, 1, 2, 3, 4, 5, 6), callSite.inlinedKeys());
+    for (int i = 0; i < 8; i++) {
+      assertEquals(i, (Object) mh.invokeExact((Object) i));
+    }
+    assertEquals(100, (Object) mh.invokeExact((Object) 100));
+    assertEquals(9, counter.get());
+  }
+
+  @Test
+  void testNoHotKeyInTheTable() throws Throwable {
+    InliningCacheCallSite<Object, Object> callSite =
+        new InliningCacheCallSite<>(
+            methodType(Object.class, Object.class), x -> x, InliningCacheCallSite.UNBOUNDED);
+    MethodHandle mh = callSite.dynamicInvoker();
+    for (int i = 0; i < 8; i++) {
+      assertEquals(i, (Object) mh.invokeExact((Object) i));
+    }
+    for (int i = 0; i <= InliningCacheCallSite.PROFILE_WINDOW; i++) {
+      Object key = 100 + i % 100;
+      assertEquals(key, (Object) mh.invokeExact(key));
+    }
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), callSite.inlinedKeys());
+  }
+
+  @Test
+  void testIdentityInvalid() {
+    Function<String, String> fun =
+        ConstantMemoizer.identityMemoizer(x -> x, String.class, String.class);
+    assertThrows(NullPointerException.class, () -> fun.apply(null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ConstantMemoizer.identityMemoizer(x -> x, int.class, Integer.class));
+  }
+
+  @Test
+  void testIntKey() {
+    int[] counter = {0};
+    IntFunction<String> fun =
+        ConstantMemoizer.intKeyMemoizer(
+            x -> {
+              counter[0]++;
+              return Integer.toString(x);
+            },
+            String.class);
+    for (int n = 0; n < 2; n++) {
+      for (int i = -500; i < 500; i++) {
+        assertEquals(Integer.toString(i), fun.apply(i));
+      }
+    }
+    assertEquals(1_000, counter[0]);
+  }
+
+  @Test
+  void testLongKey() {
+    int[] counter = {0};
+    LongFunction<String> fun =
+        ConstantMemoizer.longKeyMemoizer(
+            x -> {
+              counter[0]++;
+              return Long.toString(x);
+            },
+            String.class);
+    for (int n = 0; n < 2; n++) {
+      for (long i = 0; i < 1_000; i++) {
+        long key = i << 40;
+        assertEquals(Long.toString(key), fun.apply(key));
+      }
+    }
+    assertEquals(1_000, counter[0]);
+  }
+
+  @Test
+  void testPrimitiveKeyReturnValueNull() {
+    IntFunction<String> intFun = ConstantMemoizer.intKeyMemoizer(x -> null, String.class);
+    LongFunction<String> longFun = ConstantMemoizer.longKeyMemoizer(x -> null, String.class);
+    assertThrows(NullPointerException.class, () -> intFun.apply(1));
+    assertThrows(NullPointerException.class, () -> longFun.apply(1L));
+    assertThrows(
+        NullPointerException.class, () -> ConstantMemoizer.intKeyMemoizer(null, String.class));
+    assertThrows(
+        NullPointerException.class, () -> ConstantMemoizer.longKeyMemoizer(x -> "", null));
+  }
+
+  enum Level {
+    LOW,
+    HIGH
+  }
+
+  @Test
+  void testBiSimple() {
+    int[] counter = {0};
+    BiFunction<Level, String, String> fun =
+        ConstantMemoizer.biMemoizer(
+            (level, category) -> {
+              counter[0]++;
+              return level + ":" + category;
+            },
+            Level.class,
+            String.class,
+            String.class);
+    for (int i = 0; i < 3; i++) {
+      assertEquals("LOW:foo", fun.apply(Level.LOW, "foo"));
+      assertEquals("HIGH:foo", fun.apply(Level.HIGH, "foo"));
+      assertEquals("LOW:bar", fun.apply(Level.LOW, "bar"));
+      assertEquals("HIGH:bar", fun.apply(Level.HIGH, "bar"));
+    }
+    assertEquals(4, counter[0]);
+  }
+
+  @Test
+  void testBiManyKeys() {
+    int[] counter = {0};
+    ToIntBiFunction<Integer, Integer> fun =
+        ConstantMemoizer.intBiMemoizer(
+            (x, y) -> {
+              counter[0]++;
+              return x * 100 + y;
+            },
+            int.class,
+            int.class);
+    for (int n = 0; n < 2; n++) {
+      for (int x = 0; x < 30; x++) {
+        for (int y = 0; y < 30; y++) {
+          assertEquals(x * 100 + y, fun.applyAsInt(x, y));
+        }
+      }
+    }
+    assertEquals(900, counter[0]);
+  }
+
+  @Test
+  void testBiPrimitive() {
+    ToLongBiFunction<Long, String> longFun =
+        ConstantMemoizer.longBiMemoizer((x, s) -> x + s.length(), Long.class, String.class);
+    ToDoubleBiFunction<String, Level> doubleFun =
+        ConstantMemoizer.doubleBiMemoizer(
+            (s, level) -> s.length() + level.ordinal() / 2.0, String.class, Level.class);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(45L, longFun.applyAsLong(42L, "foo"));
+      assertEquals(3.5, doubleFun.applyAsDouble("foo", Level.HIGH));
+    }
+  }
+
+  @Test
+  void testBiInvalid() {
+    BiFunction<String, String, String> fun =
+        ConstantMemoizer.biMemoizer((x, y) -> null, String.class, String.class, String.class);
+    assertThrows(NullPointerException.class, () -> fun.apply(null, "foo"));
+    assertThrows(NullPointerException.class, () -> fun.apply("foo", null));
+    assertThrows(NullPointerException.class, () -> fun.apply("foo", "bar"));
+    assertThrows(
+        NullPointerException.class,
+        () -> ConstantMemoizer.intBiMemoizer((x, y) -> 0, null, String.class));
+  }
+
+  @Test
+  void testBiWrongParameterType() {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BiFunction<Object, Object, Object> fun =
+        (BiFunction)
+            ConstantMemoizer.biMemoizer((x, y) -> x, String.class, Integer.class, Object.class);
+    assertThrows(ClassCastException.class, () -> fun.apply("foo", "bar"));
+  }
+
+  @Test
+  void testTriSimple() {
+    int[] counter = {0};
+    TriFunction<Level, String, Integer, String> fun =
+        ConstantMemoizer.triMemoizer(
+            (level, category, width) -> {
+              counter[0]++;
+              return level + ":" + category + ":" + width;
+            },
+            Level.class,
+            String.class,
+            int.class,
+            String.class);
+    for (int n = 0; n < 2; n++) {
+      for (Level level : Level.values()) {
+        for (int width = 0; width < 10; width++) {
+          assertEquals(level + ":foo:" + width, fun.apply(level, "foo", width));
+        }
+      }
+    }
+    assertEquals(20, counter[0]);
+    assertThrows(NullPointerException.class, () -> fun.apply(Level.LOW, "foo", null));
+  }
+
+  private static final BiFunction<Integer, Integer, Long> BINOMIAL =
+      ConstantMemoizer.biMemoizer((n, k) -> binomial(n, k), int.class, int.class, long.class);
+
+  private static long binomial(int n, int k) {
+    if (k == 0 || k == n) {
+      return 1L;
+    }
+    return BINOMIAL.apply(n - 1, k - 1) + BINOMIAL.apply(n - 1, k);
+  }
+
+  @Test
+  void testBiRecursive() {
+    assertEquals(155_117_520L, (long) BINOMIAL.apply(30, 15));
+  }
+
+  private static List<Object> applyConcurrently(int threadCount, Function<Integer, ?> fun, int key)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Object> results = Collections.synchronizedList(new ArrayList<>());
+    ArrayList<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                  results.add(fun.apply(key));
+                } catch (InterruptedException | RuntimeException e) {
+                  results.add(e);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return results;
+  }
+
+  private static Function<Integer, Integer> slowCountingMemoizer(AtomicInteger counter) {
+    return ConstantMemoizer.memoizer(
+        x -> {
+          counter.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          return x * 2;
+        },
+        Integer.class,
+        Integer.class);
+  }
+
+  @Test
+  void testSingleFlight() throws InterruptedException {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Integer, Integer> fun = slowCountingMemoizer(counter);
+    List<Object> results = applyConcurrently(8, fun, 21);
+    assertEquals(Collections.nCopies(8, 42), results);
+    assertEquals(1, counter.get());
+  }
+
+  @Test
+  void testSingleFlightTableKey() throws InterruptedException {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Integer, Integer> fun = slowCountingMemoizer(counter);
+    for (int i = 0; i < 10; i++) {
+      fun.apply(i);
+    }
+    List<Object> results = applyConcurrently(8, fun, 100);
+    assertEquals(Collections.nCopies(8, 200), results);
+    assertEquals(11, counter.get());
+  }
+
+  @Test
+  void testSingleFlightException() throws InterruptedException {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Integer, Integer> fun =
+        ConstantMemoizer.memoizer(
+            x -> {
+              if (counter.incrementAndGet() == 1) {
+                try {
+                  Thread.sleep(100);
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                throw new IllegalStateException("boom");
+              }
+              return x;
+            },
+            Integer.class,
+            Integer.class);
+    List<Object> results = applyConcurrently(4, fun, 1);
+    for (Object result : results) {
+      assertEquals(IllegalStateException.class, result.getClass());
+    }
+    assertEquals(1, counter.get());
+    assertEquals(1, (int) fun.apply(1));
+    assertEquals(2, counter.get());
+  }
+
+  private static final Function<Integer, Integer> SELF_DEPENDENT =
+      ConstantMemoizer.memoizer(x -> selfDependent(x), int.class, int.class);
+
+  private static int selfDependent(int x) {
+    return SELF_DEPENDENT.apply(x);
+  }
+
+  @Test
+  void testSelfDependentKey() {
+    assertThrows(IllegalStateException.class, () -> SELF_DEPENDENT.apply(3));
+  }
+
+  @Test
+  void testAsync() {
+    AtomicInteger counter = new AtomicInteger();
+    HashMap<String, CompletableFuture<Integer>> futures = new HashMap<>();
+    Function<String, CompletableFuture<Integer>> fun =
+        ConstantMemoizer.asyncMemoizer(
+            s -> {
+              counter.incrementAndGet();
+              return futures.computeIfAbsent(s, __ -> new CompletableFuture<>());
+            },
+            String.class);
+    CompletableFuture<Integer> future = fun.apply("foo");
+    assertFalse(future.isDone());
+    assertSame(future, fun.apply("foo"));
+    assertEquals(1, counter.get());
+    futures.get("foo").complete(3);
+    for (int i = 0; i < 3; i++) {
+      assertSame(future, fun.apply("foo"));
+      assertEquals(3, (int) fun.apply("foo").join());
+    }
+    assertEquals(1, counter.get());
+  }
+
+  @Test
+  void testAsyncFailure() {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Integer, CompletableFuture<Integer>> fun =
+        ConstantMemoizer.asyncMemoizer(
+            x -> {
+              CompletableFuture<Integer> future = new CompletableFuture<>();
+              if (counter.incrementAndGet() == 1) {
+                future.completeExceptionally(new IllegalStateException("boom"));
+              } else {
+                future.complete(x);
+              }
+              return future;
+            },
+            int.class);
+    assertTrue(fun.apply(7).isCompletedExceptionally());
+    assertEquals(7, (int) fun.apply(7).join());
+    assertEquals(7, (int) fun.apply(7).join());
+    assertEquals(2, counter.get());
+  }
+
+  @Test
+  void testAsyncManyKeys() {
+    AtomicInteger counter = new AtomicInteger();
+    Function<Integer, CompletableFuture<Integer>> fun =
+        ConstantMemoizer.asyncMemoizer(
+            x -> {
+              counter.incrementAndGet();
+              return CompletableFuture.completedFuture(x * x);
+            },
+            Integer.class);
+    for (int n = 0; n < 2; n++) {
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i * i, (int) fun.apply(i).join());
+      }
+    }
+    assertEquals(100, counter.get());
+    assertThrows(NullPointerException.class, () -> fun.apply(null));
+  }
 }
@@ -1,8 +1,22 @@
 package com.github.forax.exotic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
@@ -177,4 +191,311 @@ class MostlyConstantTests {
     assertThrows(
         IllegalStateException.class, () -> new MostlyConstant<>(0.0, Object.class).doubleGetter());
   }
+
+  static class UpdateAllSandbox {
+    static final MostlyConstant<Integer> INT = new MostlyConstant<>(1, int.class);
+    static final IntSupplier INT_GETTER = INT.intGetter();
+    static final MostlyConstant<String> STRING = new MostlyConstant<>("foo", String.class);
+    static final Supplier<String> STRING_GETTER = STRING.getter();
+  }
+
+  @Test
+  void testUpdateAll() {
+    class Fake {
+      String test() {
+        return UpdateAllSandbox.STRING_GETTER.get() + UpdateAllSandbox.INT_GETTER.getAsInt();
+      }
+    }
+
+    Fake fake = new Fake();
+    for (int i = 0; i < 1_000_000; i++) {
+      assertEquals("foo1", fake.test());
+    }
+    HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+    values.put(UpdateAllSandbox.INT, 2);
+    values.put(UpdateAllSandbox.STRING, "bar");
+    MostlyConstant.updateAll(values);
+    assertEquals("bar2", fake.test());
+  }
+
+  @Test
+  void testUpdateAllWrongType() {
+    MostlyConstant<Integer> constant1 = new MostlyConstant<>(1, int.class);
+    MostlyConstant<String> constant2 = new MostlyConstant<>("foo", String.class);
+    Supplier<String> getter2 = constant2.getter();
+    LinkedHashMap<MostlyConstant<?>, Object> values = new LinkedHashMap<>();
+    values.put(constant2, "bar");
+    values.put(constant1, "boom");
+    assertThrows(ClassCastException.class, () -> MostlyConstant.updateAll(values));
+    assertEquals("foo", getter2.get());
+  }
+
+  @Test
+  void testUpdateAllNull() {
+    assertThrows(NullPointerException.class, () -> MostlyConstant.updateAll(null));
+    assertThrows(
+        NullPointerException.class,
+        () -> MostlyConstant.updateAll(Collections.singletonMap(null, 3)));
+  }
+
+  @Test
+  void testAdaptive() {
+    MostlyConstant<Integer> constant =
+        MostlyConstant.adaptive(0, int.class, 3, 1, TimeUnit.HOURS);
+    IntSupplier getter = constant.intGetter();
+    for (int i = 1; i <= 3; i++) {
+      constant.setAndDeoptimize(i);
+      assertEquals(i, getter.getAsInt());
+      assertEquals(MostlyConstant.Mode.CONSTANT, constant.mode());
+    }
+    for (int i = 4; i <= 100; i++) {
+      constant.setAndDeoptimize(i);
+      assertEquals(i, getter.getAsInt());
+      assertEquals(MostlyConstant.Mode.VOLATILE, constant.mode());
+    }
+    assertEquals(100L, constant.updateCount());
+  }
+
+  @Test
+  void testAdaptiveQuietDown() throws InterruptedException {
+    MostlyConstant<String> constant =
+        MostlyConstant.adaptive("", String.class, 2, 20, TimeUnit.MILLISECONDS);
+    Supplier<String> getter = constant.getter();
+    for (int i = 0; i < 10; i++) {
+      constant.setAndDeoptimize("v" + i);
+    }
+    assertEquals(MostlyConstant.Mode.VOLATILE, constant.mode());
+    assertEquals("v9", getter.get());
+    for (int i = 0; i < 500 && constant.mode() != MostlyConstant.Mode.CONSTANT; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(MostlyConstant.Mode.CONSTANT, constant.mode());
+    assertEquals("v9", getter.get());
+    constant.setAndDeoptimize("foo");
+    assertEquals("foo", getter.get());
+    assertEquals(11L, constant.updateCount());
+  }
+
+  @Test
+  void testAdaptiveUpdateAll() {
+    MostlyConstant<Long> constant = MostlyConstant.adaptive(0L, long.class, 1, 1, TimeUnit.HOURS);
+    LongSupplier getter = constant.longGetter();
+    for (long i = 1; i <= 3; i++) {
+      MostlyConstant.updateAll(Collections.singletonMap(constant, i));
+      assertEquals(i, getter.getAsLong());
+    }
+    assertEquals(MostlyConstant.Mode.VOLATILE, constant.mode());
+  }
+
+  @Test
+  void testNotAdaptive() {
+    MostlyConstant<Integer> constant = new MostlyConstant<>(0, int.class);
+    for (int i = 0; i < 10; i++) {
+      constant.setAndDeoptimize(i);
+    }
+    assertEquals(MostlyConstant.Mode.CONSTANT, constant.mode());
+    assertEquals(10L, constant.updateCount());
+  }
+
+  @Test
+  void testAdaptiveInvalid() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MostlyConstant.adaptive(0, int.class, 0, 1, TimeUnit.SECONDS));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MostlyConstant.adaptive(0, int.class, 1, 0, TimeUnit.SECONDS));
+    assertThrows(
+        NullPointerException.class, () -> MostlyConstant.adaptive(0, int.class, 1, 1, null));
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void testBindSupplier() throws InterruptedException {
+    AtomicInteger source = new AtomicInteger(1);
+    MostlyConstant<Integer> constant =
+        MostlyConstant.bind(source::get, int.class, 10, TimeUnit.MILLISECONDS);
+    IntSupplier getter = constant.intGetter();
+    try {
+      assertEquals(1, getter.getAsInt());
+      source.set(2);
+      awaitUntil(() -> getter.getAsInt() == 2);
+      assertEquals(2, getter.getAsInt());
+      Thread.sleep(100);
+      assertEquals(1L, constant.updateCount());
+    } finally {
+      constant.unbind();
+    }
+    source.set(3);
+    Thread.sleep(100);
+    assertEquals(2, getter.getAsInt());
+  }
+
+  @Test
+  void testBindSupplierSkipsInvalidValues() throws InterruptedException {
+    AtomicReference<Integer> source = new AtomicReference<>(1);
+    MostlyConstant<Integer> constant =
+        MostlyConstant.bind(source::get, int.class, 10, TimeUnit.MILLISECONDS);
+    IntSupplier getter = constant.intGetter();
+    try {
+      source.set(null); // can not be converted to an int
+      Thread.sleep(100);
+      assertEquals(1, getter.getAsInt());
+      source.set(5);
+      awaitUntil(() -> getter.getAsInt() == 5);
+      assertEquals(5, getter.getAsInt());
+    } finally {
+      constant.unbind();
+    }
+  }
+
+  @Test
+  void testBindProperty() throws InterruptedException {
+    Properties properties = new Properties();
+    MostlyConstant<Long> constant =
+        MostlyConstant.bindProperty(
+            properties, "timeout", long.class, 10L, 10, TimeUnit.MILLISECONDS);
+    LongSupplier getter = constant.longGetter();
+    try {
+      assertEquals(10L, getter.getAsLong());
+      properties.setProperty("timeout", " 42 ");
+      awaitUntil(() -> getter.getAsLong() == 42L);
+      assertEquals(42L, getter.getAsLong());
+      properties.setProperty("timeout", "not a number");
+      Thread.sleep(100);
+      assertEquals(42L, getter.getAsLong());
+      properties.remove("timeout");
+      awaitUntil(() -> getter.getAsLong() == 10L);
+      assertEquals(10L, getter.getAsLong());
+    } finally {
+      constant.unbind();
+    }
+  }
+
+  @Test
+  void testBindFile() throws IOException, InterruptedException {
+    Path directory = Files.createTempDirectory("mostly-constant");
+    Path path = directory.resolve("flag");
+    MostlyConstant<Boolean> constant =
+        MostlyConstant.bindFile(path, Boolean.class, false, 10, TimeUnit.MILLISECONDS);
+    Supplier<Boolean> getter = constant.getter();
+    try {
+      assertFalse(getter.get());
+      Files.write(path, "true\n".getBytes(StandardCharsets.UTF_8));
+      awaitUntil(getter::get);
+      assertTrue(getter.get());
+      Files.delete(path);
+      awaitUntil(() -> !getter.get());
+      assertFalse(getter.get());
+    } finally {
+      constant.unbind();
+      Files.deleteIfExists(path);
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void testBindInvalid() {
+    Properties properties = new Properties();
+    properties.setProperty("foo", "bar");
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            MostlyConstant.bindProperty(
+                properties, "foo", Object.class, null, 1, TimeUnit.SECONDS));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MostlyConstant.bindProperty(properties, "foo", int.class, 0, 1, TimeUnit.SECONDS));
+    assertThrows(
+        NullPointerException.class,
+        () -> MostlyConstant.bind(null, int.class, 1, TimeUnit.SECONDS));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MostlyConstant.bind(() -> 1, int.class, 0, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testBindFileInvalid() throws IOException {
+    Path directory = Files.createTempDirectory("mostly-constant");
+    try {
+      Path path = directory.resolve("flag");
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> MostlyConstant.bindFile(path, Boolean.class, false, 0, TimeUnit.SECONDS));
+      Path root = directory.getRoot();
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> MostlyConstant.bindFile(root, Boolean.class, false, 1, TimeUnit.SECONDS));
+    } finally {
+      Files.delete(directory);
+    }
+  }
+
+  static class BooleanSandbox {
+    static final MostlyConstant<Boolean> FLAG = MostlyConstant.ofBoolean(false);
+    static final BooleanSupplier FLAG_GETTER = FLAG.booleanGetter();
+  }
+
+  @Test
+  void testBooleanChangeOptimized() {
+    class Fake {
+      int test() {
+        if (BooleanSandbox.FLAG_GETTER.getAsBoolean()) {
+          return 1;
+        }
+        return 0;
+      }
+    }
+
+    Fake fake = new Fake();
+    for (int i = 0; i < 1_000_000; i++) {
+      assertEquals(0, fake.test());
+    }
+    BooleanSandbox.FLAG.setAndDeoptimize(true);
+    assertEquals(1, fake.test());
+  }
+
+  @Test
+  void testOtherPrimitiveGetters() {
+    MostlyConstant<Byte> byteConstant = new MostlyConstant<>((byte) 1, byte.class);
+    MostlyConstant<Short> shortConstant = new MostlyConstant<>((short) 2, short.class);
+    MostlyConstant<Character> charConstant = new MostlyConstant<>('a', char.class);
+    MostlyConstant<Float> floatConstant = new MostlyConstant<>(4f, float.class);
+    MostlyConstant.ByteSupplier byteGetter = byteConstant.byteGetter();
+    MostlyConstant.ShortSupplier shortGetter = shortConstant.shortGetter();
+    MostlyConstant.CharSupplier charGetter = charConstant.charGetter();
+    MostlyConstant.FloatSupplier floatGetter = floatConstant.floatGetter();
+    assertEquals((byte) 1, byteGetter.getAsByte());
+    assertEquals((short) 2, shortGetter.getAsShort());
+    assertEquals('a', charGetter.getAsChar());
+    assertEquals(4f, floatGetter.getAsFloat());
+    byteConstant.setAndDeoptimize((byte) 10);
+    shortConstant.setAndDeoptimize((short) 20);
+    charConstant.setAndDeoptimize('z');
+    floatConstant.setAndDeoptimize(40f);
+    assertEquals((byte) 10, byteGetter.getAsByte());
+    assertEquals((short) 20, shortGetter.getAsShort());
+    assertEquals('z', charGetter.getAsChar());
+    assertEquals(40f, floatGetter.getAsFloat());
+  }
+
+  @Test
+  void testOtherSpecializedGettersWithWrongTypes() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> new MostlyConstant<>(true, Boolean.class).booleanGetter());
+    assertThrows(
+        IllegalStateException.class, () -> new MostlyConstant<>(0, int.class).byteGetter());
+    assertThrows(
+        IllegalStateException.class, () -> new MostlyConstant<>(0, int.class).shortGetter());
+    assertThrows(
+        IllegalStateException.class, () -> new MostlyConstant<>(0, int.class).charGetter());
+    assertThrows(
+        IllegalStateException.class, () -> new MostlyConstant<>(0.0, double.class).floatGetter());
+  }
 }
@@ -0,0 +1,220 @@
+package com.github.forax.exotic;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class PostOrderVisitorTests {
+  interface Expr { /* empty */ }
+  static class Value implements Expr { final int value; Value(int value) { this.value = value; }}
+  static class Add implements Expr { final Expr left, right; Add(Expr left, Expr right) { this.left = left; this.right = right; }}
+  static class Sub implements Expr { final Expr left, right; Sub(Expr left, Expr right) { this.left = left; this.right = right; }}
+  static class Block implements Expr { final List<Expr> exprs; Block(List<Expr> exprs) { this.exprs = exprs; }}
+  
+  private static final PostOrderVisitor<Void, Integer> VISITOR = PostOrderVisitor.create(Void.class, Integer.class, opt -> opt
+      .register(Value.class, (value, results, __) -> value.value)
+      .register(Add.class,   (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                             (add, results, __) -> results.get(0) + results.get(1))
+      .register(Sub.class,   (sub, children) -> { children.accept(sub.left); children.accept(sub.right); },
+                             (sub, results, __) -> results.get(0) - results.get(1))
+      .register(Block.class, (block, children) -> block.exprs.forEach(children),
+                             (block, results, __) -> results.size() == 0? 0: results.get(results.size() - 1))
+      );
+  
+  private static final IntPostOrderVisitor<Integer> INT_VISITOR = IntPostOrderVisitor.create(Integer.class, opt -> opt
+      .register(Value.class, (value, results, factor) -> value.value * factor)
+      .register(Add.class,   (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                             (add, results, factor) -> results.get(0) + results.get(1))
+      .register(Sub.class,   (sub, children) -> { children.accept(sub.left); children.accept(sub.right); },
+                             (sub, results, factor) -> results.get(0) - results.get(1))
+      );
+  
+  @Test
+  void simple() {
+    Expr expr = new Sub(new Add(new Value(7), new Value(10)), new Value(4));
+    assertAll(
+        () -> assertEquals(13, (int)VISITOR.visit(expr, null)),
+        () -> assertEquals(26, INT_VISITOR.visit(expr, 2))
+        );
+  }
+  
+  @Test
+  void childrenOrder() {
+    ArrayList<Integer> values = new ArrayList<>();
+    PostOrderVisitor<Void, Void> visitor = PostOrderVisitor.create(Void.class, Void.class, opt -> opt
+        .register(Value.class, (value, results, __) -> { values.add(value.value); return null; })
+        .register(Block.class, (block, children) -> block.exprs.forEach(children), (block, results, __) -> null)
+        );
+    visitor.visit(new Block(List.of(new Value(1), new Block(List.of(new Value(2), new Value(3))), new Value(4))), null);
+    assertEquals(List.of(1, 2, 3, 4), values);
+  }
+  
+  @Test
+  void noChildren() {
+    assertEquals(0, (int)VISITOR.visit(new Block(List.of()), null));
+  }
+  
+  @Test
+  void deepLeftTree() {
+    Expr expr = new Value(0);
+    for(int i = 0; i < 100_000; i++) {
+      expr = new Add(expr, new Value(1));
+    }
+    Expr deep = expr;
+    assertAll(
+        () -> assertEquals(100_000, (int)VISITOR.visit(deep, null)),
+        () -> assertEquals(100_000, INT_VISITOR.visit(deep, 1))
+        );
+  }
+  
+  @Test
+  void deepRightTree() {
+    Expr expr = new Value(0);
+    for(int i = 0; i < 100_000; i++) {
+      expr = new Sub(new Value(1), expr);
+    }
+    Expr deep = expr;
+    assertAll(
+        () -> assertEquals(0, (int)VISITOR.visit(deep, null)),
+        () -> assertEquals(0, INT_VISITOR.visit(deep, 3))
+        );
+  }
+  
+  @Test
+  void subclassOfARegisteredClass() {
+    Expr expr = new Add(new Value(1) { /*empty*/ }, new Add(new Value(2) { /*empty*/ }, new Value(3) { /*empty*/ }));
+    assertEquals(6, INT_VISITOR.visit(expr, 1));
+  }
+  
+  @Test
+  void resultsIndexOutOfBounds() {
+    IntPostOrderVisitor<Void> visitor = IntPostOrderVisitor.create(Void.class, opt -> opt
+        .register(Value.class, (value, results, __) -> results.get(0))
+        );
+    assertThrows(IndexOutOfBoundsException.class, () -> visitor.visit(new Value(1), null));
+  }
+  
+  @Test
+  void noComputationRegistered() {
+    IntPostOrderVisitor<Void> visitor = IntPostOrderVisitor.create(Void.class, opt -> opt
+        .register(Add.class, (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                             (add, results, __) -> results.get(0) + results.get(1))
+        );
+    assertThrows(IllegalStateException.class, () -> visitor.visit(new Add(new Value(1), new Value(2)), null));
+  }
+  
+  @Test
+  void registerSameClassTwice() {
+    assertThrows(IllegalStateException.class, () ->
+        PostOrderVisitor.create(Void.class, Void.class, opt -> opt
+            .register(Value.class, (_1, _2, _3) -> null)
+            .register(Value.class, (_1, _2, _3) -> null)
+        ));
+  }
+  
+  @Test
+  void nullSubExpression() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> VISITOR.visit(new Add(new Value(1), null), null)),
+        () -> assertThrows(NullPointerException.class, () -> INT_VISITOR.visit(null, 1))
+        );
+  }
+  
+  @Test
+  void createNull() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> PostOrderVisitor.create(null, Void.class, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> PostOrderVisitor.create(Void.class, null, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> PostOrderVisitor.create(Void.class, Void.class, null)),
+        () -> assertThrows(NullPointerException.class, () -> IntPostOrderVisitor.create(null, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> IntPostOrderVisitor.create(Void.class, null)),
+        () -> assertThrows(NullPointerException.class, () -> IntPostOrderVisitor.create(Void.class, opt -> opt
+            .register(Value.class, null)))
+        );
+  }
+  
+  static class Node implements Expr {
+    final Expr left, right; final int size;
+    Node(Expr left, Expr right) { this.left = left; this.right = right; this.size = 1 + size(left) + size(right); }
+    static int size(Object expr) { return (expr instanceof Node)? ((Node)expr).size: 1; }
+  }
+  
+  private static Expr balanced(int depth, int[] counter) {
+    if (depth == 0) {
+      return new Value(counter[0]++);
+    }
+    return new Node(balanced(depth - 1, counter), balanced(depth - 1, counter));
+  }
+  
+  private static IntPostOrderVisitor<Void> parallelSum(ForkJoinPool pool, int threshold) {
+    return IntPostOrderVisitor.createParallel(Void.class, pool, threshold, Node::size, opt -> opt
+        .register(Value.class, (value, results, __) -> value.value)
+        .register(Node.class,  (node, children) -> { children.accept(node.left); children.accept(node.right); },
+                               (node, results, __) -> results.get(0) + results.get(1))
+        );
+  }
+  
+  @Test
+  void parallel() {
+    Expr expr = balanced(14, new int[1]);
+    int expected = 16383 * 16384 / 2;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertAll(
+          () -> assertEquals(expected, parallelSum(pool, 1).visit(expr, null)),
+          () -> assertEquals(expected, parallelSum(pool, 1_000).visit(expr, null)),
+          () -> assertEquals(expected, parallelSum(pool, Integer.MAX_VALUE).visit(expr, null)),
+          () -> assertEquals(expected, parallelSum(ForkJoinPool.commonPool(), 1_000).visit(expr, null))
+          );
+    } finally {
+      pool.shutdown();
+    }
+  }
+  
+  @Test
+  void parallelObject() {
+    Expr expr = balanced(10, new int[1]);
+    PostOrderVisitor<Void, String> visitor = PostOrderVisitor.createParallel(Void.class, String.class, ForkJoinPool.commonPool(), 16, Node::size, opt -> opt
+        .register(Value.class, (value, results, __) -> "" + value.value)
+        .register(Node.class,  (node, children) -> { children.accept(node.left); children.accept(node.right); },
+                               (node, results, __) -> results.get(0).length() < results.get(1).length()? results.get(1): results.get(0))
+        );
+    assertEquals("1000", visitor.visit(expr, null));
+  }
+  
+  @Test
+  void parallelDeepTree() {
+    Expr expr = new Value(0);
+    for(int i = 0; i < 100_000; i++) {
+      expr = new Node(expr, new Value(1));
+    }
+    assertEquals(100_000, parallelSum(ForkJoinPool.commonPool(), 2).visit(expr, null));
+  }
+  
+  @Test
+  void parallelException() {
+    IntPostOrderVisitor<Void> visitor = IntPostOrderVisitor.createParallel(Void.class, ForkJoinPool.commonPool(), 1, Node::size, opt -> opt
+        .register(Value.class, (value, results, __) -> { if (value.value == 42) { throw new ArithmeticException(); } return value.value; })
+        .register(Node.class,  (node, children) -> { children.accept(node.left); children.accept(node.right); },
+                               (node, results, __) -> results.get(0) + results.get(1))
+        );
+    assertThrows(ArithmeticException.class, () -> visitor.visit(balanced(8, new int[1]), null));
+  }
+  
+  @Test
+  void createParallelInvalid() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> IntPostOrderVisitor.createParallel(Void.class, null, 1, Node::size, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> IntPostOrderVisitor.createParallel(Void.class, ForkJoinPool.commonPool(), 1, null, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> PostOrderVisitor.createParallel(Void.class, Void.class, ForkJoinPool.commonPool(), 1, Node::size, null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> PostOrderVisitor.createParallel(Void.class, Void.class, ForkJoinPool.commonPool(), 0, Node::size, opt -> { /*empty*/ }))
+        );
+  }
+}
@@ -4,6 +4,11 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.Test;
 
 @SuppressWarnings("static-method")
@@ -48,4 +53,231 @@ class StringSwitchTests {
   void casesArrayCanNotBeNull() {
     assertThrows(NullPointerException.class, () -> StringSwitch.create(false, (String[])null));
   }
+  
+  @Test
+  void bigSwitch() {
+    String[] stringcases = IntStream.range(0, 256).mapToObj(i -> "case" + i).toArray(String[]::new);
+    StringSwitch stringSwitch = StringSwitch.create(false, stringcases);
+    for(int n = 0; n < 3; n++) {
+      for(int i = 0; i < stringcases.length; i++) {
+        assertEquals(i, stringSwitch.stringSwitch(new String(stringcases[i])));
+      }
+      assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("case256"));
+      assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(""));
+    }
+  }
+  
+  @Test
+  void sameHashCodes() {
+    // "Aa" and "BB" have the same hashCode
+    StringSwitch stringSwitch = StringSwitch.create(false, "Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "C", "D", "E");
+    for(int n = 0; n < 50; n++) {
+      String unknown = "Ab" + n;
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch("Aa")),
+          () -> assertEquals(1, stringSwitch.stringSwitch("BB")),
+          () -> assertEquals(2, stringSwitch.stringSwitch("AaAa")),
+          () -> assertEquals(3, stringSwitch.stringSwitch("BBBB")),
+          () -> assertEquals(4, stringSwitch.stringSwitch("AaBB")),
+          () -> assertEquals(5, stringSwitch.stringSwitch("BBAa")),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(unknown))
+        );
+    }
+  }
+  
+  @Test
+  void sameCaseTwice() {
+    assertThrows(IllegalStateException.class, () -> StringSwitch.create(false, "foo", "bar", "foo"));
+  }
+  
+  @Test
+  void strategies() {
+    for(StringSwitch.Strategy strategy: StringSwitch.Strategy.values()) {
+      StringSwitch stringSwitch = StringSwitch.create(false, strategy, "foo", "bar", "baz", "", "a", "foobar", "fooba", "bazzzz");
+      for(int n = 0; n < 50; n++) {
+        assertAll(
+            () -> assertEquals(0, stringSwitch.stringSwitch("foo")),
+            () -> assertEquals(1, stringSwitch.stringSwitch("bar")),
+            () -> assertEquals(2, stringSwitch.stringSwitch("baz")),
+            () -> assertEquals(3, stringSwitch.stringSwitch("")),
+            () -> assertEquals(4, stringSwitch.stringSwitch("a")),
+            () -> assertEquals(5, stringSwitch.stringSwitch("foobar")),
+            () -> assertEquals(6, stringSwitch.stringSwitch("fooba")),
+            () -> assertEquals(7, stringSwitch.stringSwitch("bazzzz")),
+            () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("b")),
+            () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("fo")),
+            () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("foobaz")),
+            () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("foobarbaz"))
+          );
+      }
+    }
+  }
+  
+  @Test
+  void bigSwitchStrategies() {
+    String[] stringcases = IntStream.range(0, 300).mapToObj(i -> Integer.toString(i * 7919, 36)).toArray(String[]::new);
+    for(StringSwitch.Strategy strategy: StringSwitch.Strategy.values()) {
+      StringSwitch stringSwitch = StringSwitch.create(false, strategy, stringcases);
+      for(int n = 0; n < 3; n++) {
+        for(int i = 0; i < stringcases.length; i++) {
+          assertEquals(i, stringSwitch.stringSwitch(new String(stringcases[i])));
+        }
+        assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("?"));
+        assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("zzzzzzzzzz"));
+      }
+    }
+  }
+  
+  @Test
+  void strategyCanNotBeNull() {
+    assertThrows(NullPointerException.class, () -> StringSwitch.create(false, (StringSwitch.Strategy)null, "foo"));
+  }
+  
+  @Test
+  void charSequence() {
+    StringSwitch.CharSequenceSwitch stringSwitch = StringSwitch.createCharSequenceSwitch(false, "foo", "bar");
+    for(int n = 0; n < 50; n++) {
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch("foo")),
+          () -> assertEquals(0, stringSwitch.stringSwitch(new StringBuilder("foo"))),
+          () -> assertEquals(1, stringSwitch.stringSwitch(CharBuffer.wrap("xbarx", 1, 4))),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(CharBuffer.wrap("baz"))),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(new StringBuilder("fo")))
+        );
+    }
+  }
+  
+  @Test
+  void charSequenceNull() {
+    assertAll(
+        () -> assertEquals(StringSwitch.NULL_MATCH, StringSwitch.createCharSequenceSwitch(true, "foo").stringSwitch(null)),
+        () -> assertThrows(NullPointerException.class, () -> StringSwitch.createCharSequenceSwitch(false, "foo").stringSwitch(null))
+      );
+  }
+  
+  @Test
+  void byteArray() {
+    StringSwitch.ByteArraySwitch stringSwitch = StringSwitch.createByteArraySwitch(false, "GET", "POST", "caf\u00e9");
+    byte[] buffer = "GET /caf\u00e9 POST".getBytes(StandardCharsets.UTF_8);
+    for(int n = 0; n < 50; n++) {
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch(buffer, 0, 3)),
+          () -> assertEquals(2, stringSwitch.stringSwitch(buffer, 5, 5)),
+          () -> assertEquals(1, stringSwitch.stringSwitch(buffer, 11, 4)),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(buffer, 0, 4)),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(buffer, 5, 4))
+        );
+    }
+  }
+  
+  @Test
+  void byteArrayBounds() {
+    StringSwitch.ByteArraySwitch stringSwitch = StringSwitch.createByteArraySwitch(true, "foo");
+    assertAll(
+        () -> assertEquals(StringSwitch.NULL_MATCH, stringSwitch.stringSwitch(null, 0, 0)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> stringSwitch.stringSwitch(new byte[3], 1, 3)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> stringSwitch.stringSwitch(new byte[3], -1, 1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> stringSwitch.stringSwitch(new byte[3], 0, -1))
+      );
+  }
+  
+  @Test
+  void byteBuffer() {
+    StringSwitch.ByteBufferSwitch stringSwitch = StringSwitch.createByteBufferSwitch(false, "GET", "POST", "caf\u00e9");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+    buffer.put("GET /caf\u00e9 POST".getBytes(StandardCharsets.UTF_8)).flip();
+    for(int n = 0; n < 50; n++) {
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch(buffer, 0, 3)),
+          () -> assertEquals(2, stringSwitch.stringSwitch(buffer, 5, 5)),
+          () -> assertEquals(1, stringSwitch.stringSwitch(buffer, 11, 4)),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(buffer, 0, 4)),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> stringSwitch.stringSwitch(buffer, 12, 4))
+        );
+    }
+    assertEquals(0, buffer.position());
+  }
+  
+  @Test
+  void bigByteArray() {
+    String[] stringcases = IntStream.range(0, 300).mapToObj(i -> "header-" + i).toArray(String[]::new);
+    StringSwitch.ByteArraySwitch stringSwitch = StringSwitch.createByteArraySwitch(false, stringcases);
+    for(int n = 0; n < 3; n++) {
+      for(int i = 0; i < stringcases.length; i++) {
+        byte[] bytes = (" " + stringcases[i] + " ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(i, stringSwitch.stringSwitch(bytes, 1, bytes.length - 2));
+      }
+      byte[] unknown = "header-300".getBytes(StandardCharsets.UTF_8);
+      assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(unknown, 0, unknown.length));
+    }
+  }
+  
+  @Test
+  void ignoreCase() {
+    StringSwitch stringSwitch = StringSwitch.createIgnoreCase(false, "Content-Type", "Host", "\u00c9t\u00e9");
+    for(int n = 0; n < 50; n++) {
+      String unknown = "X-Header-" + n;
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch("Content-Type")),
+          () -> assertEquals(0, stringSwitch.stringSwitch("content-type")),
+          () -> assertEquals(0, stringSwitch.stringSwitch("CONTENT-TYPE")),
+          () -> assertEquals(1, stringSwitch.stringSwitch("hOST")),
+          () -> assertEquals(2, stringSwitch.stringSwitch("\u00e9T\u00c9")),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("Hos")),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(unknown))
+        );
+    }
+  }
+  
+  @Test
+  void ignoreCaseSameCaseTwice() {
+    assertThrows(IllegalStateException.class, () -> StringSwitch.createIgnoreCase(false, "foo", "FOO"));
+  }
+  
+  @Test
+  void ignoreCaseNull() {
+    assertAll(
+        () -> assertEquals(StringSwitch.NULL_MATCH, StringSwitch.createIgnoreCase(true, "foo").stringSwitch(null)),
+        () -> assertThrows(NullPointerException.class, () -> StringSwitch.createIgnoreCase(false, "foo").stringSwitch(null))
+      );
+  }
+  
+  @Test
+  void prefix() {
+    StringSwitch stringSwitch = StringSwitch.createPrefix(false, "/api/", "/api/v2/", "/static/", "/");
+    for(int n = 0; n < 50; n++) {
+      String path = "/api/users/" + n;
+      assertAll(
+          () -> assertEquals(0, stringSwitch.stringSwitch(path)),
+          () -> assertEquals(1, stringSwitch.stringSwitch("/api/v2/users")),
+          () -> assertEquals(1, stringSwitch.stringSwitch("/api/v2/")),
+          () -> assertEquals(0, stringSwitch.stringSwitch("/api/v3")),
+          () -> assertEquals(2, stringSwitch.stringSwitch("/static/logo.png")),
+          () -> assertEquals(3, stringSwitch.stringSwitch("/static")),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("api")),
+          () -> assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch(""))
+        );
+    }
+  }
+  
+  @Test
+  void prefixEmpty() {
+    StringSwitch stringSwitch = StringSwitch.createPrefix(false, "", "foo");
+    assertAll(
+        () -> assertEquals(0, stringSwitch.stringSwitch("")),
+        () -> assertEquals(0, stringSwitch.stringSwitch("bar")),
+        () -> assertEquals(1, stringSwitch.stringSwitch("foobar"))
+      );
+  }
+  
+  @Test
+  void prefixNoPrefix() {
+    StringSwitch stringSwitch = StringSwitch.createPrefix(false);
+    assertEquals(StringSwitch.NO_MATCH, stringSwitch.stringSwitch("foo"));
+  }
+  
+  @Test
+  void prefixSamePrefixTwice() {
+    assertThrows(IllegalStateException.class, () -> StringSwitch.createPrefix(false, "foo", "bar", "foo"));
+  }
 }
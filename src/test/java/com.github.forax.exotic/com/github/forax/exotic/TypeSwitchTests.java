@@ -1,10 +1,16 @@
 package com.github.forax.exotic;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.Test;
 
@@ -91,4 +97,212 @@ class TypeSwitchTests {
         () -> assertThrows(IllegalStateException.class, () -> TypeSwitch.create(false, Serializable.class, Comparable.class, String.class))
       );
   }
+  
+  @Test
+  void megamorphic() {
+    TypeSwitch typeSwitch = TypeSwitch.create(false, Integer.class, String.class, CharSequence.class, Number.class);
+    Object[] values = { 3, "foo", new StringBuilder(), 4.5, 5L, 'c', (short)6, (byte)7, 8f, new Object(), new int[0] };
+    int[] expected = { 0, 1, 2, 3, 3, TypeSwitch.NO_MATCH, 3, 3, 3, TypeSwitch.NO_MATCH, TypeSwitch.NO_MATCH };
+    for(int n = 0; n < 10; n++) {
+      for(int i = 0; i < values.length; i++) {
+        assertEquals(expected[i], typeSwitch.typeSwitch(values[i]));
+      }
+    }
+  }
+  
+  @Test
+  void skewedProfile() {
+    TypeSwitch typeSwitch = TypeSwitch.create(false, 2, 3, Integer.class, String.class, Number.class, Object.class);
+    for(int n = 0; n < 100_000; n++) {
+      Object value = (n % 100 == 0)? (Object)4.5: (n % 10 == 0)? "foo": (Object)n;
+      assertEquals((value instanceof Integer)? 0: (value instanceof String)? 1: 2, typeSwitch.typeSwitch(value));
+    }
+    assertAll(
+        () -> assertEquals(0, typeSwitch.typeSwitch(42)),
+        () -> assertEquals(1, typeSwitch.typeSwitch("bar")),
+        () -> assertEquals(2, typeSwitch.typeSwitch(4.5)),
+        () -> assertEquals(2, typeSwitch.typeSwitch(7L)),
+        () -> assertEquals(3, typeSwitch.typeSwitch(new Object()))
+      );
+  }
+  
+  @Test
+  void hotClassSeenAfterTheInliningCacheIsFull() throws Throwable {
+    TypeSwitchCallSite callSite = TypeSwitchCallSite.create(new Class<?>[] { Number.class, Object.class }, 2, 3, null);
+    MethodHandle mh = callSite.dynamicInvoker();
+    // two cold classes fill the inlining cache, the hot class is only seen after
+    assertEquals(1, (int)mh.invokeExact((Object)"cold"));
+    assertEquals(0, (int)mh.invokeExact((Object)4.5));
+    for(int i = 0; i < 1 << 17; i++) {
+      assertEquals(0, (int)mh.invokeExact((Object)i));
+    }
+    assertEquals(0, (int)mh.invokeExact((Object)42));
+    assertEquals(1, (int)mh.invokeExact((Object)"foo"));
+    assertArrayEquals(new Class<?>[] { Integer.class }, callSite.guardedClasses());
+  }
+  
+  @Test
+  void noRelinkBeforeTheProfileWindow() throws Throwable {
+    TypeSwitchCallSite callSite = TypeSwitchCallSite.create(new Class<?>[] { Number.class, Object.class }, 2, 3, null);
+    MethodHandle mh = callSite.dynamicInvoker();
+    // the inlining cache is full but the counts are not significant yet
+    assertEquals(1, (int)mh.invokeExact((Object)"foo"));
+    assertEquals(0, (int)mh.invokeExact((Object)4.5));
+    assertEquals(0, (int)mh.invokeExact((Object)42));
+    assertArrayEquals(new Class<?>[0], callSite.guardedClasses());
+  }
+  
+  @Test
+  void noInliningCache() {
+    TypeSwitch typeSwitch = TypeSwitch.create(true, 0, 0, String.class, Integer.class);
+    assertAll(
+        () -> assertEquals(0, typeSwitch.typeSwitch("foo")),
+        () -> assertEquals(1, typeSwitch.typeSwitch(42)),
+        () -> assertEquals(TypeSwitch.NULL_MATCH, typeSwitch.typeSwitch(null)),
+        () -> assertEquals(TypeSwitch.NO_MATCH, typeSwitch.typeSwitch(4.5))
+      );
+  }
+  
+  @Test
+  void invalidOptions() {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> TypeSwitch.create(false, -1, 5, String.class)),
+        () -> assertThrows(IllegalArgumentException.class, () -> TypeSwitch.create(false, 8, -1, String.class))
+      );
+  }
+  
+  @Test
+  void strategies() {
+    Object[] values = { 3, "foo", new StringBuilder(), 4.5, 5L, 'c', (short)6, (byte)7, 8f, new Object(), new int[0], new A() };
+    int[] expected = { 0, 1, 2, 3, 3, TypeSwitch.NO_MATCH, 3, 3, 3, TypeSwitch.NO_MATCH, TypeSwitch.NO_MATCH, 4 };
+    for(TypeSwitch.Strategy strategy: TypeSwitch.Strategy.values()) {
+      TypeSwitch typeSwitch = TypeSwitch.create(false, strategy, Integer.class, String.class, CharSequence.class, Number.class, I.class);
+      for(int n = 0; n < 10; n++) {
+        for(int i = 0; i < values.length; i++) {
+          assertEquals(expected[i], typeSwitch.typeSwitch(values[i]), strategy + " " + values[i].getClass());
+        }
+      }
+    }
+  }
+  
+  @Test
+  void identityTableInterfaces() {
+    TypeSwitch typeSwitch = TypeSwitch.create(true, TypeSwitch.Strategy.IDENTITY_TABLE, J.class, I.class, Object.class);
+    assertAll(
+        () -> assertEquals(0, typeSwitch.typeSwitch(new A())),
+        () -> assertEquals(0, typeSwitch.typeSwitch(new A() { /*empty*/ })),
+        () -> assertEquals(2, typeSwitch.typeSwitch("bar")),
+        () -> assertEquals(TypeSwitch.NULL_MATCH, typeSwitch.typeSwitch(null))
+      );
+  }
+  
+  @Test
+  void strategyCanNotBeNull() {
+    assertThrows(NullPointerException.class, () -> TypeSwitch.create(false, (TypeSwitch.Strategy)null, String.class));
+  }
+  
+  enum Op {
+    ADD { /*empty*/ }, SUB { /*empty*/ }, NEG
+  }
+  
+  enum Color {
+    RED, GREEN, BLUE, CYAN { /*empty*/ }, MAGENTA { /*empty*/ }, YELLOW { /*empty*/ }
+  }
+  
+  @Test
+  void exhaustiveEnum() {
+    TypeSwitch typeSwitch = TypeSwitch.createExhaustive(true, Op.class, Op.ADD.getClass(), Op.class);
+    assertAll(
+        () -> assertEquals(0, typeSwitch.typeSwitch(Op.ADD)),
+        () -> assertEquals(1, typeSwitch.typeSwitch(Op.SUB)),
+        () -> assertEquals(1, typeSwitch.typeSwitch(Op.NEG)),
+        () -> assertEquals(TypeSwitch.NULL_MATCH, typeSwitch.typeSwitch(null)),
+        () -> assertThrows(IncompatibleClassChangeError.class, () -> typeSwitch.typeSwitch("foo"))
+      );
+  }
+  
+  @Test
+  void exhaustiveTable() {
+    TypeSwitch typeSwitch = TypeSwitch.createExhaustive(false, Color.class,
+        Color.CYAN.getClass(), Color.MAGENTA.getClass(), Color.YELLOW.getClass(), Color.class);
+    assertAll(
+        () -> assertEquals(3, typeSwitch.typeSwitch(Color.RED)),
+        () -> assertEquals(3, typeSwitch.typeSwitch(Color.BLUE)),
+        () -> assertEquals(0, typeSwitch.typeSwitch(Color.CYAN)),
+        () -> assertEquals(1, typeSwitch.typeSwitch(Color.MAGENTA)),
+        () -> assertEquals(2, typeSwitch.typeSwitch(Color.YELLOW)),
+        () -> assertThrows(IncompatibleClassChangeError.class, () -> typeSwitch.typeSwitch(Op.NEG)),
+        () -> assertThrows(NullPointerException.class, () -> typeSwitch.typeSwitch(null))
+      );
+  }
+  
+  @Test
+  void exhaustiveFinalClass() {
+    TypeSwitch typeSwitch = TypeSwitch.createExhaustive(false, String.class, CharSequence.class);
+    assertEquals(0, typeSwitch.typeSwitch("foo"));
+  }
+  
+  @Test
+  void exhaustiveNotClosed() {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> TypeSwitch.createExhaustive(false, Object.class, Object.class)),
+        () -> assertThrows(IllegalArgumentException.class, () -> TypeSwitch.createExhaustive(false, I.class, I.class))
+      );
+  }
+  
+  @Test
+  void exhaustiveCoverage() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> TypeSwitch.createExhaustive(false, Op.class, Op.ADD.getClass())),
+        () -> assertThrows(IllegalStateException.class, () -> TypeSwitch.createExhaustive(false, String.class, String.class, Integer.class)),
+        () -> assertThrows(NullPointerException.class, () -> TypeSwitch.createExhaustive(false, null, String.class))
+      );
+  }
+  
+  @Test
+  void typeSwitchAll() {
+    TypeSwitch typeSwitch = TypeSwitch.create(true, Integer.class, String.class);
+    Object[] in = { 1, 2, "foo", "bar", null, null, 3, 4.5, 4.5, "baz" };
+    int[] out = new int[in.length + 1];
+    out[0] = 42;
+    out[in.length] = 42;
+    typeSwitch.typeSwitchAll(in, out, 1, in.length);
+    assertArrayEquals(new int[] { 42, 0, 1, 1, TypeSwitch.NULL_MATCH, TypeSwitch.NULL_MATCH, 0, TypeSwitch.NO_MATCH, TypeSwitch.NO_MATCH, 1, 42 }, out);
+  }
+  
+  @Test
+  void typeSwitchAllBounds() {
+    TypeSwitch typeSwitch = TypeSwitch.create(false, Integer.class);
+    assertAll(
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> typeSwitch.typeSwitchAll(new Object[2], new int[2], -1, 1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> typeSwitch.typeSwitchAll(new Object[2], new int[2], 1, 0)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> typeSwitch.typeSwitchAll(new Object[2], new int[1], 0, 2)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> typeSwitch.parallelTypeSwitchAll(new Object[1], new int[2], 0, 2)),
+        () -> assertThrows(NullPointerException.class, () -> typeSwitch.typeSwitchAll(new Object[] { null }, new int[1], 0, 1))
+      );
+  }
+  
+  @Test
+  void parallelTypeSwitchAll() {
+    TypeSwitch typeSwitch = TypeSwitch.create(false, Integer.class, String.class, Number.class);
+    Object[] in = IntStream.range(0, 100_000).mapToObj(i -> (i % 3 == 0)? (Object)i: (i % 3 == 1)? "" + i: (Object)(double)i).toArray();
+    int[] out = new int[in.length];
+    typeSwitch.parallelTypeSwitchAll(in, out, 0, in.length);
+    for(int i = 0; i < in.length; i++) {
+      assertEquals(i % 3, out[i]);
+    }
+  }
+  
+  @Test
+  void typeSwitchAllStream() {
+    TypeSwitch typeSwitch = TypeSwitch.create(false, Integer.class, String.class);
+    assertAll(
+        () -> assertArrayEquals(new int[] { 0, 0, 1, TypeSwitch.NO_MATCH },
+            typeSwitch.typeSwitchAll(Stream.of(1, 2, "foo", 4.5)).toArray()),
+        () -> assertEquals(100_000,
+            typeSwitch.typeSwitchAll(IntStream.range(0, 100_000).boxed().parallel()).filter(index -> index == 0).count()),
+        () -> assertArrayEquals(new int[] { 1, 0 },
+            StreamSupport.intStream(typeSwitch.typeSwitchAll(Arrays.asList("foo", 3).spliterator()), false).toArray())
+      );
+  }
 }
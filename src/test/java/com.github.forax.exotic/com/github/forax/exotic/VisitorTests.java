@@ -79,4 +79,249 @@ class VisitorTests {
     Visitor<String, Void> visitor = Visitor.create(String.class, Void.class, opt -> { /*empty*/ });
     assertThrows(NullPointerException.class, () -> visitor.visit(null, "hello"));
   }
+  
+  @Test
+  void subclassOfARegisteredClass() {
+    Visitor<Void, Integer> visitor = Visitor.create(Void.class, int.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Expr expr = new Add(new Value(7) { /*empty*/ }, new Add(new Value(10), new Value(4) { /*empty*/ }) { /*empty*/ });
+    assertEquals(21, (int)visitor.visit(expr, null));
+  }
+  
+  interface Literal extends Expr { int value(); }
+  static class One implements Literal { @Override public int value() { return 1; } }
+  static class Two implements Literal { @Override public int value() { return 2; } }
+  
+  @Test
+  void implementationOfARegisteredInterface() {
+    Visitor<Void, Integer> visitor = Visitor.create(Void.class, int.class, opt -> opt
+        .register(Literal.class, (v, literal, __) -> literal.value())
+        .register(Two.class,     (v, two, __)     -> 20)
+        .register(Add.class,     (v, add, __)     -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Expr expr = new Add(new One(), new Add(new Two(), new One()));
+    assertEquals(22, (int)visitor.visit(expr, null));
+  }
+  
+  @Test
+  void megamorphicSupertypes() {
+    Visitor<Void, String> visitor = Visitor.create(Void.class, String.class, opt -> opt
+        .register(Number.class,       (v, number, __) -> "number")
+        .register(CharSequence.class, (v, seq, __)    -> "text")
+        .register(Object.class,       (v, object, __) -> "object")
+        );
+    Object[] values = { 1, 2L, 3.0, 4f, (short)5, (byte)6, "7", new StringBuilder("8"), new Object(), 'c', new int[0] };
+    String[] expected = { "number", "number", "number", "number", "number", "number", "text", "text", "object", "object", "object" };
+    for(int n = 0; n < 3; n++) {
+      for(int i = 0; i < values.length; i++) {
+        assertEquals(expected[i], visitor.visit(values[i], null));
+      }
+    }
+  }
+  
+  interface I { /*empty*/ }
+  interface J { /*empty*/ }
+  static class IJ implements I, J { /*empty*/ }
+  
+  @Test
+  void ambiguousInterfaces() {
+    Visitor<Void, Void> visitor = Visitor.create(Void.class, Void.class, opt -> opt
+        .register(I.class, (v, i, __) -> null)
+        .register(J.class, (v, j, __) -> null)
+        );
+    assertThrows(IllegalStateException.class, () -> visitor.visit(new IJ(), null));
+  }
+  
+  @Test
+  void slots() {
+    Visitor<Void, Integer> visitor = Visitor.create(Void.class, int.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value)
+        .register(Add.class, 2, (slots, add, __) -> slots.slot(0).visit(add.left, null) + slots.slot(1).visit(add.right, null))
+        );
+    Expr expr = new Add(new Value(1), new Add(new Value(2), new Add(new Value(3), new Value(4) { /*empty*/ })));
+    for(int i = 0; i < 20; i++) {
+      assertEquals(10, (int)visitor.visit(expr, null));
+    }
+  }
+  
+  @Test
+  void slotsInterpret() {
+    class Env {
+      final HashMap<String, Integer> vars = new HashMap<>();
+    }
+    
+    Visitor<Env, Integer> visitor = Visitor.create(Env.class, int.class, opt -> opt
+        .register(Value.class,     (v, value, env)  -> value.value)
+        .register(Add.class, 2,    (slots, add, env) -> slots.slot(0).visit(add.left, env) + slots.slot(1).visit(add.right, env))
+        .register(Var.class,       (v, var, env)    -> env.vars.getOrDefault(var.name, 0))
+        .register(Assign.class, 1, (slots, assign, env) -> { int let = slots.slot(0).visit(assign.expr, env); env.vars.put(assign.name, let); return let; })
+        .register(Block.class,     (v, block, env)  -> block.exprs.stream().mapToInt(e -> v.visit(e, env)).reduce(0, (v1, v2) -> v2))
+        );
+    Expr code = new Block(List.of(
+        new Assign("a", new Value(3)),
+        new Add(new Add(new Var("a"), new Value(10)), new Value(4))
+        ));
+    assertEquals(17, (int)visitor.visit(code, new Env()));
+  }
+  
+  @Test
+  void slotOutOfBounds() {
+    Visitor<Void, Integer> visitor = Visitor.create(Void.class, int.class, opt -> opt
+        .register(Value.class, 1, (slots, value, __) -> slots.slot(1).visit(value, null))
+        );
+    assertThrows(IndexOutOfBoundsException.class, () -> visitor.visit(new Value(3), null));
+  }
+  
+  @Test
+  void slotCountCanNotBeNegative() {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> Visitor.create(Void.class, Void.class, opt -> opt
+            .register(String.class, -1, (_1, _2, _3) -> null))),
+        () -> assertThrows(IllegalStateException.class, () -> Visitor.create(Void.class, Void.class, opt -> opt
+            .register(String.class, (_1, _2, _3) -> null)
+            .register(String.class, 0, (_1, _2, _3) -> null)))
+      );
+  }
+  
+  @Test
+  void intVisitor() {
+    IntVisitor<Void> visitor = IntVisitor.create(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Expr expr = new Add(new Add(new Value(7), new Value(10)), new Value(4) { /*empty*/ });
+    assertEquals(21, visitor.visit(expr, null));
+  }
+  
+  @Test
+  void longVisitor() {
+    LongVisitor<Long> visitor = LongVisitor.create(Long.class, opt -> opt
+        .register(Value.class, (v, value, factor) -> value.value * factor)
+        .register(Add.class,   (v, add, factor)   -> v.visit(add.left, factor) + v.visit(add.right, factor))
+        );
+    Expr expr = new Add(new Add(new Value(7), new Value(10)), new Value(4));
+    assertEquals(21_000_000_000L, visitor.visit(expr, 1_000_000_000L));
+  }
+  
+  @Test
+  void doubleVisitor() {
+    DoubleVisitor<Void> visitor = DoubleVisitor.create(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value / 2.0)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Expr expr = new Add(new Add(new Value(7), new Value(10)), new Value(4));
+    assertEquals(10.5, visitor.visit(expr, null));
+  }
+  
+  @Test
+  void primitiveVisitorErrors() {
+    IntVisitor<Void> visitor = IntVisitor.create(Void.class, opt -> { /*empty*/ });
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> visitor.visit("oops", null)),
+        () -> assertThrows(NullPointerException.class, () -> visitor.visit(null, null)),
+        () -> assertThrows(NullPointerException.class, () -> LongVisitor.create(null, opt -> { /*empty*/ })),
+        () -> assertThrows(NullPointerException.class, () -> DoubleVisitor.create(Void.class, null)),
+        () -> assertThrows(IllegalStateException.class, () -> IntVisitor.create(Void.class, opt -> opt
+            .register(String.class, (_1, _2, _3) -> 0)
+            .register(String.class, (_1, _2, _3) -> 1)))
+      );
+  }
+  
+  // a DAG of 2^depth paths, each Add shares the same sub-expression on both sides
+  private static Expr shared(int depth) {
+    Expr expr = new Value(1);
+    for(int i = 0; i < depth; i++) {
+      expr = new Add(expr, expr);
+    }
+    return expr;
+  }
+  
+  @Test
+  void memoizingVisitor() {
+    int[] counter = { 0 };
+    Visitor<Void, Integer> visitor = Visitor.createMemoizing(Void.class, int.class, opt -> opt
+        .register(Value.class, (v, value, __) -> { counter[0]++; return value.value; })
+        .register(Add.class,   (v, add, __)   -> { counter[0]++; return v.visit(add.left, null) + v.visit(add.right, null); })
+        );
+    assertEquals(1 << 30, (int)visitor.visit(shared(30), null));
+    assertEquals(31, counter[0]);
+  }
+  
+  @Test
+  void memoizingVisitorIsResetBetweenVisits() {
+    int[] counter = { 0 };
+    IntVisitor<Void> visitor = IntVisitor.createMemoizing(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> { counter[0]++; return value.value; })
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Expr expr = shared(10);
+    assertEquals(1024, visitor.visit(expr, null));
+    assertEquals(1024, visitor.visit(expr, null));
+    assertEquals(2, counter[0]);
+  }
+  
+  @Test
+  void memoizingVisitorManyExpressions() {
+    Expr[] exprs = new Expr[1_024];
+    for(int i = 0; i < exprs.length; i++) {
+      exprs[i] = new Value(i);
+    }
+    for(int length = exprs.length; length > 1; length >>= 1) {  // a balanced tree of distinct expressions
+      for(int i = 0; i < length >> 1; i++) {
+        exprs[i] = new Add(exprs[2 * i], exprs[2 * i + 1]);
+      }
+    }
+    Expr expr = exprs[0];
+    Expr dag = new Add(expr, expr);
+    IntVisitor<Void> visitor = IntVisitor.createMemoizing(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    assertAll(
+        () -> assertEquals(1_023 * 1_024, visitor.visit(dag, null)),
+        () -> assertEquals(1_023 * 1_024 / 2, visitor.visit(expr, null))
+        );
+  }
+  
+  @Test
+  void memoizingSlotVisitor() {
+    int[] counter = { 0 };
+    Visitor<Void, Integer> visitor = Visitor.createMemoizing(Void.class, int.class, opt -> opt
+        .register(Value.class, (v, value, __) -> { counter[0]++; return value.value; })
+        .register(Add.class, 2, (slots, add, __) -> slots.slot(0).visit(add.left, null) + slots.slot(1).visit(add.right, null))
+        );
+    assertEquals(1 << 20, (int)visitor.visit(shared(20), null));
+    assertEquals(1, counter[0]);
+  }
+  
+  @Test
+  void memoizingPrimitiveVisitors() {
+    LongVisitor<Void> longVisitor = LongVisitor.createMemoizing(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    DoubleVisitor<Void> doubleVisitor = DoubleVisitor.createMemoizing(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> value.value / 2.0)
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    assertAll(
+        () -> assertEquals(1L << 40, longVisitor.visit(shared(40), null)),
+        () -> assertEquals(0x1p39, doubleVisitor.visit(shared(40), null))
+        );
+  }
+  
+  @Test
+  void memoizingVisitorException() {
+    int[] counter = { 0 };
+    IntVisitor<Void> visitor = IntVisitor.createMemoizing(Void.class, opt -> opt
+        .register(Value.class, (v, value, __) -> { counter[0]++; if (value.value == 0) { throw new ArithmeticException(); } return value.value; })
+        .register(Add.class,   (v, add, __)   -> v.visit(add.left, null) + v.visit(add.right, null))
+        );
+    Value one = new Value(1);
+    assertThrows(ArithmeticException.class, () -> visitor.visit(new Add(one, new Value(0)), null));
+    assertEquals(2, visitor.visit(new Add(one, one), null));
+    assertEquals(3, counter[0]);
+  }
 }
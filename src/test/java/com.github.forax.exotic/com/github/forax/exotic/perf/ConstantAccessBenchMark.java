@@ -1,7 +1,9 @@
 package com.github.forax.exotic.perf;
 
+import com.github.forax.exotic.ConstantGroup;
 import com.github.forax.exotic.MostlyConstant;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -38,6 +40,50 @@ public class ConstantAccessBenchMark {
   private static final Supplier<Integer> MOSTLY_CONSTANT_INTEGER_GETTER =
       MOSTLY_CONSTANT_INTEGER.getter();
 
+  static final boolean static_final_boolean = false;
+  static volatile boolean volatile_boolean = false;
+
+  private static final MostlyConstant<Boolean> MOSTLY_CONSTANT_BOOLEAN =
+      MostlyConstant.ofBoolean(false);
+  private static final BooleanSupplier MOSTLY_CONSTANT_BOOLEAN_GETTER =
+      MOSTLY_CONSTANT_BOOLEAN.booleanGetter();
+
+  private static final ConstantGroup GROUP = new ConstantGroup();
+  private static final MostlyConstant<Integer> GROUP_INT = GROUP.add(1_000, int.class);
+  private static final MostlyConstant<Integer> GROUP_DIVISOR = GROUP.add(10, int.class);
+  private static final IntSupplier GROUP_INT_GETTER = GROUP_INT.intGetter();
+  private static final Supplier<ConstantGroup.Snapshot> GROUP_SNAPSHOT_GETTER =
+      GROUP.snapshotGetter();
+
+  private int counter;
+
+  // the branch of a disabled feature flag, if the flag is a constant, the branch and the division
+  // are removed so the score should be the same as static_final_boolean,
+  // run with -prof perfasm to check that there is no idiv in the generated code
+  @Benchmark
+  public int static_final_boolean() {
+    if (static_final_boolean) {
+      return 1_000 / ++counter;
+    }
+    return 0;
+  }
+
+  @Benchmark
+  public int volatile_boolean() {
+    if (volatile_boolean) {
+      return 1_000 / ++counter;
+    }
+    return 0;
+  }
+
+  @Benchmark
+  public int mostly_constant_boolean() {
+    if (MOSTLY_CONSTANT_BOOLEAN_GETTER.getAsBoolean()) {
+      return 1_000 / ++counter;
+    }
+    return 0;
+  }
+
   @Benchmark
   public int static_final_int() {
     return 1_000 / static_final_int;
@@ -58,6 +104,19 @@ public class ConstantAccessBenchMark {
     return 1_000 / MOSTLY_CONSTANT_INTEGER_GETTER.get();
   }
 
+  @Benchmark
+  public int constant_group_int() {
+    return 1_000 / GROUP_INT_GETTER.getAsInt();
+  }
+
+  // the snapshot is a constant but the values are loaded from the array of the snapshot,
+  // so this should be slower than constant_group_int
+  @Benchmark
+  public int constant_group_snapshot() {
+    ConstantGroup.Snapshot snapshot = GROUP_SNAPSHOT_GETTER.get();
+    return snapshot.get(GROUP_INT) / snapshot.get(GROUP_DIVISOR);
+  }
+
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder().include(ConstantAccessBenchMark.class.getName()).build();
     new Runner(opt).run();
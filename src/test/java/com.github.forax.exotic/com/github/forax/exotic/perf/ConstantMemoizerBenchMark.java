@@ -0,0 +1,184 @@
+package com.github.forax.exotic.perf;
+
+import com.github.forax.exotic.ConstantMemoizer;
+import com.github.forax.exotic.ConstantMemoizer.BoundedMemoizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@SuppressWarnings("static-method")
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ConstantMemoizerBenchMark {
+  // tenant ids, the first ones are hot
+  private static final String[] TENANTS = new String[1_024];
+
+  static {
+    for (int i = 0; i < TENANTS.length; i++) {
+      TENANTS[i] = "tenant-" + i;
+    }
+  }
+
+  private static final String[] HOT_TENANTS = {
+    TENANTS[0], TENANTS[1], TENANTS[2], TENANTS[0], TENANTS[1], TENANTS[0]
+  };
+
+  private static int quota(String tenant) {
+    return tenant.length() * 10;
+  }
+
+  private static final ToIntFunction<String> MEMOIZER =
+      ConstantMemoizer.intMemoizer(ConstantMemoizerBenchMark::quota, String.class);
+
+  private static final ConcurrentHashMap<String, Integer> MAP = new ConcurrentHashMap<>();
+
+  static {
+    // the first keys seen are linked in the inlining cache
+    for (String tenant : TENANTS) {
+      MEMOIZER.applyAsInt(tenant);
+    }
+  }
+
+  private static final BoundedMemoizer<String, Integer> BOUNDED_MEMOIZER =
+      ConstantMemoizer.boundedMemoizer(
+          ConstantMemoizerBenchMark::quota, String.class, Integer.class, 256);
+  private static final Function<String, Integer> BOUNDED = BOUNDED_MEMOIZER.memoizer();
+
+  static {
+    for (String tenant : TENANTS) {
+      BOUNDED.apply(tenant);
+    }
+  }
+
+  private static final String[] REGIONS = {"eu", "us", "us", "eu", "ap", "eu"};
+
+  private static int quota(String tenant, String region) {
+    return tenant.length() * 10 + region.charAt(0);
+  }
+
+  private static final ToIntBiFunction<String, String> BI_MEMOIZER =
+      ConstantMemoizer.intBiMemoizer(
+          ConstantMemoizerBenchMark::quota, String.class, String.class);
+
+  // the usual workaround, a memoizer keyed by a composite key allocated at each call
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final ToIntFunction<List<String>> COMPOSITE_KEY_MEMOIZER =
+      ConstantMemoizer.intMemoizer(
+          key -> quota(key.get(0), key.get(1)), (Class<List<String>>) (Class) List.class);
+
+  // the futures are completed, so they are constants once the keys are seen again
+  private static final Function<String, CompletableFuture<Integer>> ASYNC_MEMOIZER =
+      ConstantMemoizer.asyncMemoizer(
+          tenant -> CompletableFuture.supplyAsync(() -> quota(tenant)), String.class);
+
+  static {
+    for (String tenant : HOT_TENANTS) {
+      ASYNC_MEMOIZER.apply(tenant).join();
+    }
+  }
+
+  @Benchmark
+  public int async_memoizer_hot_keys() {
+    int sum = 0;
+    for (String tenant : HOT_TENANTS) {
+      sum += ASYNC_MEMOIZER.apply(tenant).join();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int bi_memoizer_hot_keys() {
+    int sum = 0;
+    for (int i = 0; i < HOT_TENANTS.length; i++) {
+      sum += BI_MEMOIZER.applyAsInt(HOT_TENANTS[i], REGIONS[i]);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int composite_key_memoizer_hot_keys() {
+    int sum = 0;
+    for (int i = 0; i < HOT_TENANTS.length; i++) {
+      sum += COMPOSITE_KEY_MEMOIZER.applyAsInt(Arrays.asList(HOT_TENANTS[i], REGIONS[i]));
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int bounded_memoizer_hot_keys() {
+    int sum = 0;
+    for (String tenant : HOT_TENANTS) {
+      sum += BOUNDED.apply(tenant);
+    }
+    return sum;
+  }
+
+  // the cost of an invalidation of a key of the inlining cache includes the de-optimization
+  // of the code of this method, run with -prof comp to see the recompilations
+  @Benchmark
+  public int bounded_memoizer_invalidate_hot_key() {
+    BOUNDED_MEMOIZER.invalidate(TENANTS[0]);
+    return bounded_memoizer_hot_keys();
+  }
+
+  // the invalidation of a key of the table does not de-optimize the code
+  @Benchmark
+  public int bounded_memoizer_invalidate_table_key() {
+    BOUNDED_MEMOIZER.invalidate(TENANTS[100]);
+    return bounded_memoizer_hot_keys() + BOUNDED.apply(TENANTS[100]);
+  }
+
+  @Benchmark
+  public int memoizer_hot_keys() {
+    int sum = 0;
+    for (String tenant : HOT_TENANTS) {
+      sum += MEMOIZER.applyAsInt(tenant);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int memoizer_many_keys() {
+    int sum = 0;
+    for (String tenant : TENANTS) {
+      sum += MEMOIZER.applyAsInt(tenant);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int concurrent_hash_map_many_keys() {
+    int sum = 0;
+    for (String tenant : TENANTS) {
+      sum += MAP.computeIfAbsent(tenant, ConstantMemoizerBenchMark::quota);
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(ConstantMemoizerBenchMark.class.getName()).build();
+    new Runner(opt).run();
+  }
+}
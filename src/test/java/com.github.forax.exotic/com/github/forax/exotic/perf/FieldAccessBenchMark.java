@@ -8,6 +8,8 @@ import com.github.forax.exotic.MostlyConstant;
 import com.github.forax.exotic.StableField;
 import com.github.forax.exotic.StructuralCall;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
 import java.util.function.ToIntFunction;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -54,6 +56,12 @@ public class FieldAccessBenchMark {
 
   private static final ToIntFunction<A> MEMOIZER = ConstantMemoizer.intMemoizer(A::x, A.class);
 
+  private static final Function<A, Integer> IDENTITY_MEMOIZER =
+      ConstantMemoizer.identityMemoizer(A::x, A.class, Integer.class);
+
+  private static final IntFunction<A> INT_KEY_MEMOIZER =
+      ConstantMemoizer.intKeyMemoizer(A::new, A.class);
+
   private static final StructuralCall STRUCTURAL_CALL =
       StructuralCall.create(lookup(), "x", methodType(int.class));
 
@@ -77,6 +85,16 @@ public class FieldAccessBenchMark {
     return 1_000 / MEMOIZER.applyAsInt(static_final);
   }
 
+  @Benchmark
+  public int identity_memoizer() {
+    return 1_000 / IDENTITY_MEMOIZER.apply(static_final);
+  }
+
+  @Benchmark
+  public int int_key_memoizer() {
+    return 1_000 / INT_KEY_MEMOIZER.apply(1_000).x;
+  }
+
   @Benchmark
   public int structural_call() {
     return 1_000 / (int) STRUCTURAL_CALL.invoke(static_final);
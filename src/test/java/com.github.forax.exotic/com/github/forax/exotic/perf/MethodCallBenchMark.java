@@ -6,6 +6,8 @@ import static java.lang.invoke.MethodType.methodType;
 import com.github.forax.exotic.ConstantMemoizer;
 import com.github.forax.exotic.StructuralCall;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.ToIntFunction;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -58,6 +60,12 @@ public class MethodCallBenchMark {
 
   private static final ToIntFunction<I> MEMOIZER = ConstantMemoizer.intMemoizer(I::f, I.class);
 
+  private static final Function<I, Integer> IDENTITY_MEMOIZER =
+      ConstantMemoizer.identityMemoizer(I::f, I.class, Integer.class);
+
+  private static final IntFunction<I> INT_KEY_MEMOIZER =
+      ConstantMemoizer.intKeyMemoizer(index -> ARRAY[index], I.class);
+
   private static final StructuralCall STRUCTURAL_CALL =
       StructuralCall.create(lookup(), "f", methodType(int.class));
 
@@ -79,6 +87,24 @@ public class MethodCallBenchMark {
     return sum;
   }
 
+  @Benchmark
+  public int identity_memoizer() {
+    int sum = 0;
+    for (I i : ARRAY) {
+      sum += IDENTITY_MEMOIZER.apply(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int int_key_memoizer() {
+    int sum = 0;
+    for (int index = 0; index < ARRAY.length; index++) {
+      sum += INT_KEY_MEMOIZER.apply(index).f();
+    }
+    return sum;
+  }
+
   @Benchmark
   public int structural_call() {
     int sum = 0;
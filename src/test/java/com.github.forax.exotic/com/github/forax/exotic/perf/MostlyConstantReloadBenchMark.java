@@ -0,0 +1,99 @@
+package com.github.forax.exotic.perf;
+
+import com.github.forax.exotic.MostlyConstant;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// measure the pause of a reload of a configuration of 40 constants,
+// run with -prof comp to see the recompilations
+@SuppressWarnings("static-method")
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MostlyConstantReloadBenchMark {
+  private static final int COUNT = 40;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final MostlyConstant<Integer>[] CONSTANTS = new MostlyConstant[COUNT];
+
+  private static final IntSupplier[] GETTERS = new IntSupplier[COUNT];
+
+  static {
+    for (int i = 0; i < COUNT; i++) {
+      CONSTANTS[i] = new MostlyConstant<>(i, int.class);
+      GETTERS[i] = CONSTANTS[i].intGetter();
+    }
+  }
+
+  private int generation;
+
+  private static int readAll() {
+    int sum = 0;
+    for (IntSupplier getter : GETTERS) {
+      sum += getter.getAsInt();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int reload_set_and_deoptimize_each() {
+    int generation = ++this.generation;
+    for (int i = 0; i < COUNT; i++) {
+      CONSTANTS[i].setAndDeoptimize(i + generation);
+    }
+    return readAll();
+  }
+
+  @Benchmark
+  public int reload_update_all() {
+    int generation = ++this.generation;
+    HashMap<MostlyConstant<?>, Object> values = new HashMap<>();
+    for (int i = 0; i < COUNT; i++) {
+      values.put(CONSTANTS[i], i + generation);
+    }
+    MostlyConstant.updateAll(values);
+    return readAll();
+  }
+
+  // a flag that flaps, the adaptive constant stops to de-optimize the code after 10 changes
+  private static final MostlyConstant<Integer> FLAPPING = new MostlyConstant<>(0, int.class);
+  private static final IntSupplier FLAPPING_GETTER = FLAPPING.intGetter();
+  private static final MostlyConstant<Integer> ADAPTIVE_FLAPPING =
+      MostlyConstant.adaptive(0, int.class, 10, 1, TimeUnit.SECONDS);
+  private static final IntSupplier ADAPTIVE_FLAPPING_GETTER = ADAPTIVE_FLAPPING.intGetter();
+
+  @Benchmark
+  public int flapping_set_and_deoptimize() {
+    FLAPPING.setAndDeoptimize(++generation & 1);
+    return FLAPPING_GETTER.getAsInt();
+  }
+
+  @Benchmark
+  public int flapping_adaptive() {
+    ADAPTIVE_FLAPPING.setAndDeoptimize(++generation & 1);
+    return ADAPTIVE_FLAPPING_GETTER.getAsInt();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt =
+        new OptionsBuilder().include(MostlyConstantReloadBenchMark.class.getName()).build();
+    new Runner(opt).run();
+  }
+}
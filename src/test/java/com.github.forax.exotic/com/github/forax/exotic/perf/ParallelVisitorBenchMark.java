@@ -0,0 +1,94 @@
+package com.github.forax.exotic.perf;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.forax.exotic.IntPostOrderVisitor;
+
+@Warmup(iterations = 5, time = 3, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 3, timeUnit = TimeUnit.SECONDS)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ParallelVisitorBenchMark {
+  interface Expr { /* empty */ }
+  static class Value implements Expr {
+    final int value; Value(int value) { this.value = value; }
+  }
+  static class Add implements Expr {
+    final Expr left, right; final int size;
+    Add(Expr left, Expr right) { this.left = left; this.right = right; this.size = 1 + size(left) + size(right); }
+    static int size(Object expr) { return (expr instanceof Add)? ((Add)expr).size: 1; }
+  }
+  
+  // a balanced tree of 2^20 - 1 nodes
+  private static final Expr TREE = tree(19);
+  
+  private static Expr tree(int depth) {
+    if (depth == 0) {
+      return new Add(new Value(depth), new Value(1));
+    }
+    return new Add(tree(depth - 1), tree(depth - 1));
+  }
+  
+  // 0 means all the cores
+  @Param({"1", "4", "0"})
+  int cores;
+  
+  private ForkJoinPool pool;
+  private IntPostOrderVisitor<Void> parallelVisitor;
+  
+  private static final IntPostOrderVisitor<Void> VISITOR = IntPostOrderVisitor.create(Void.class, opt -> opt
+      .register(Value.class, (value, results, __) -> value.value)
+      .register(Add.class,   (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                             (add, results, __) -> results.get(0) + results.get(1))
+      );
+  
+  @Setup
+  public void setup() {
+    pool = new ForkJoinPool(cores == 0? Runtime.getRuntime().availableProcessors(): cores);
+    parallelVisitor = IntPostOrderVisitor.createParallel(Void.class, pool, 1 << 12, Add::size, opt -> opt
+        .register(Value.class, (value, results, __) -> value.value)
+        .register(Add.class,   (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                               (add, results, __) -> results.get(0) + results.get(1))
+        );
+  }
+  
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+  
+  @Benchmark
+  public int sequential_post_order_visitor() {
+    return VISITOR.visit(TREE, null);
+  }
+  
+  @Benchmark
+  public int parallel_post_order_visitor() {
+    return parallelVisitor.visit(TREE, null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(ParallelVisitorBenchMark.class.getName()).build();
+    new Runner(opt).run();
+  }
+}
@@ -1,6 +1,9 @@
 package com.github.forax.exotic.perf;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -33,12 +36,45 @@ public class StringSwitchBenchMark {
   private static final StringSwitch BIG_STRING_SWITCH = StringSwitch.create(false,
       "elephant", "girafe", "springbok", "monkey", "snake", "crocodile", "orangoutang", "opossum", "tiger", "hippopotamus", "koala");
      
+  private static final StringSwitch BIG_CASCADE_STRING_SWITCH = StringSwitch.create(false, StringSwitch.Strategy.CASCADE,
+      "elephant", "girafe", "springbok", "monkey", "snake", "crocodile", "orangoutang", "opossum", "tiger", "hippopotamus", "koala");
+  
+  private static final StringSwitch BIG_DECISION_TREE_STRING_SWITCH = StringSwitch.create(false, StringSwitch.Strategy.DECISION_TREE,
+      "elephant", "girafe", "springbok", "monkey", "snake", "crocodile", "orangoutang", "opossum", "tiger", "hippopotamus", "koala");
+     
   private static final String[] DATA = Stream.of(
       "lion", "elephant", "springbok", "elephant", "girafe", "snake", "crocodile", "elephant", "monkey",
       "girafe", "hippopotamus", "opossum", "elephant", "girafe", "snake", "opossum", "lion", "tiger", "snake", "koala")
       .map(String::new)
       .toArray(String[]::new);
   
+  private static final StringSwitch.ByteArraySwitch BIG_BYTE_ARRAY_SWITCH = StringSwitch.createByteArraySwitch(false,
+      "elephant", "girafe", "springbok", "monkey", "snake", "crocodile", "orangoutang", "opossum", "tiger", "hippopotamus", "koala");
+  
+  private static final byte[][] BYTES_DATA = Stream.of(DATA)
+      .map(s -> s.getBytes(StandardCharsets.UTF_8))
+      .toArray(byte[][]::new);
+  
+  private static final String[] HUGE_CASES = IntStream.range(0, 256)
+      .mapToObj(i -> "x-header-" + Integer.toString(i * 7919, 36))
+      .toArray(String[]::new);
+  
+  private static final StringSwitch HUGE_STRING_SWITCH = StringSwitch.create(false, HUGE_CASES);
+  
+  private static final StringSwitch HUGE_DECISION_TREE_STRING_SWITCH = StringSwitch.create(false, StringSwitch.Strategy.DECISION_TREE, HUGE_CASES);
+  
+  private static final HashMap<String, Integer> HUGE_MAP = new HashMap<>();
+  static {
+    for(int i = 0; i < HUGE_CASES.length; i++) {
+      HUGE_MAP.put(HUGE_CASES[i], i);
+    }
+  }
+  
+  private static final String[] HUGE_DATA = IntStream.range(0, 64)
+      .mapToObj(i -> (i % 8 == 7)? "x-header-unknown" + i: HUGE_CASES[(i * 37) % HUGE_CASES.length])
+      .map(String::new)
+      .toArray(String[]::new);
+  
   @Benchmark
   public int small_small_string_switch() {
     int sum = 0;
@@ -152,6 +188,42 @@ public class StringSwitchBenchMark {
     return sum;
   }
   
+  @Benchmark
+  public int big_big_cascade_string_switch() {
+    int sum = 0;
+    for(String s: DATA) {
+      sum += BIG_CASCADE_STRING_SWITCH.stringSwitch(s);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int big_big_decision_tree_string_switch() {
+    int sum = 0;
+    for(String s: DATA) {
+      sum += BIG_DECISION_TREE_STRING_SWITCH.stringSwitch(s);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int big_big_byte_array_switch() {
+    int sum = 0;
+    for(byte[] bytes: BYTES_DATA) {
+      sum += BIG_BYTE_ARRAY_SWITCH.stringSwitch(bytes, 0, bytes.length);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int big_big_byte_array_new_string_switch() {
+    int sum = 0;
+    for(byte[] bytes: BYTES_DATA) {
+      sum += BIG_STRING_SWITCH.stringSwitch(new String(bytes, 0, bytes.length, StandardCharsets.UTF_8));
+    }
+    return sum;
+  }
+  
   @Benchmark
   public int big_big_ifequals_cascade() {
     int sum = 0;
@@ -222,6 +294,33 @@ public class StringSwitchBenchMark {
     return sum;
   }
 
+  @Benchmark
+  public int huge_huge_string_switch() {
+    int sum = 0;
+    for(String s: HUGE_DATA) {
+      sum += HUGE_STRING_SWITCH.stringSwitch(s);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int huge_huge_decision_tree_string_switch() {
+    int sum = 0;
+    for(String s: HUGE_DATA) {
+      sum += HUGE_DECISION_TREE_STRING_SWITCH.stringSwitch(s);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int huge_huge_hashmap() {
+    int sum = 0;
+    for(String s: HUGE_DATA) {
+      sum += HUGE_MAP.getOrDefault(s, StringSwitch.NO_MATCH);
+    }
+    return sum;
+  }
+
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder().include(StringSwitchBenchMark.class.getName()).build();
     new Runner(opt).run();
@@ -1,8 +1,10 @@
 package com.github.forax.exotic.perf;
 
+import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.nio.CharBuffer;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
@@ -12,7 +14,9 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.runner.Runner;
@@ -53,6 +57,84 @@ public class TypeSwitchBenchMark {
     LocalDate.now(), new Date(), A.class
   };
   
+  // the cold types are seen first by the inlining cache, the hot type is String
+  private static final Object[] SKEWED_DATA = new Object[64];
+  static {
+    Object[] colds = { new D(), new E(), new C(), new A(), new F(), new B(), new StringBuilder("hello"), LocalDate.now() };
+    for(int i = 0; i < SKEWED_DATA.length; i++) {
+      SKEWED_DATA[i] = (i % 8 == 0)? colds[i / 8]: "hello";
+    }
+  }
+  
+  @Benchmark
+  public int big_skewed_type_switch() {
+    int sum = 0;
+    for(Object o: SKEWED_DATA) {
+      sum += BIG_TYPE_SWITCH.typeSwitch(o);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int big_skewed_instanceof_cascade() {
+    int sum = 0;
+    for(Object o: SKEWED_DATA) {
+      int value;
+      if (o == null) { value = TypeSwitch.NULL_MATCH; } else
+        if (o instanceof D) { value = 0; } else
+          if (o instanceof C) { value = 1; } else
+            if (o instanceof B) { value = 2; } else
+              if (o instanceof A) { value = 3; } else
+                if (o instanceof J) { value = 4; } else
+                  if (o instanceof I) { value = 5; } else
+                    if (o instanceof String) { value = 6; } else
+                      if (o instanceof StringBuilder) { value = 7; } else
+                        if (o instanceof CharSequence) { value = 8; } else
+                          if (o instanceof URI) { value = 9; } else
+                            if (o instanceof LocalDate) { value = 10; } else
+                              if (o instanceof Comparable) { value = 11; } else
+                                if (o instanceof Object) { value = 12; } else
+                                { value = TypeSwitch.NO_MATCH; }
+      sum += value;
+    }
+    return sum;
+  }
+  
+  // runs of elements of the same class
+  private static final Object[] BULK_DATA = new Object[1 << 20];
+  static {
+    for(int i = 0; i < BULK_DATA.length; i++) {
+      BULK_DATA[i] = DATA[(i / 8) % DATA.length];
+    }
+  }
+  private final int[] bulkOut = new int[BULK_DATA.length];
+  
+  @Benchmark
+  public int[] big_bulk_type_switch() {
+    int[] out = bulkOut;
+    for(int i = 0; i < BULK_DATA.length; i++) {
+      out[i] = BIG_TYPE_SWITCH.typeSwitch(BULK_DATA[i]);
+    }
+    return out;
+  }
+  
+  @Benchmark
+  public int[] big_bulk_type_switch_all() {
+    BIG_TYPE_SWITCH.typeSwitchAll(BULK_DATA, bulkOut, 0, BULK_DATA.length);
+    return bulkOut;
+  }
+  
+  @Benchmark
+  public int[] big_bulk_parallel_type_switch_all() {
+    BIG_TYPE_SWITCH.parallelTypeSwitchAll(BULK_DATA, bulkOut, 0, BULK_DATA.length);
+    return bulkOut;
+  }
+  
+  @Benchmark
+  public int big_bulk_type_switch_stream() {
+    return BIG_TYPE_SWITCH.typeSwitchAll(Arrays.stream(BULK_DATA)).sum();
+  }
+  
   @Benchmark
   public int small_small_type_switch() {
     int sum = 0;
@@ -139,6 +221,94 @@ public class TypeSwitchBenchMark {
     return sum;
   }
 
+  
+  // receivers of many different classes, each proxy class implements a different subset of the interfaces
+  public interface P0 { /* empty */ }
+  public interface P1 { /* empty */ }
+  public interface P2 { /* empty */ }
+  public interface P3 { /* empty */ }
+  public interface P4 { /* empty */ }
+  public interface P5 { /* empty */ }
+  public interface P6 { /* empty */ }
+  public interface P7 { /* empty */ }
+  public interface P8 { /* empty */ }
+  
+  private static final Class<?>[] PROXY_CASES = { P0.class, P1.class, P2.class, P3.class, P4.class, P5.class, P6.class, P7.class, P8.class };
+  
+  private static final TypeSwitch PROXY_INSTANCEOF_SWITCH = TypeSwitch.create(false, TypeSwitch.Strategy.INSTANCEOF, PROXY_CASES);
+  private static final TypeSwitch PROXY_CLASS_VALUE_SWITCH = TypeSwitch.create(false, TypeSwitch.Strategy.CLASS_VALUE, PROXY_CASES);
+  private static final TypeSwitch PROXY_IDENTITY_TABLE_SWITCH = TypeSwitch.create(false, TypeSwitch.Strategy.IDENTITY_TABLE, PROXY_CASES);
+  
+  @State(Scope.Benchmark)
+  public static class Receivers {
+    @Param({"16", "64", "256"})
+    int count;
+    
+    Object[] data;
+    
+    @Setup
+    public void setup() {
+      data = new Object[count];
+      for(int i = 0; i < count; i++) {
+        int mask = i + 1;
+        Class<?>[] interfaces = new Class<?>[Integer.bitCount(mask)];
+        for(int bit = 0, j = 0; bit < PROXY_CASES.length; bit++) {
+          if ((mask & 1 << bit) != 0) {
+            interfaces[j++] = PROXY_CASES[bit];
+          }
+        }
+        data[i] = Proxy.newProxyInstance(TypeSwitchBenchMark.class.getClassLoader(), interfaces, (proxy, method, args) -> null);
+      }
+    }
+  }
+  
+  @Benchmark
+  public int megamorphic_instanceof_type_switch(Receivers receivers) {
+    int sum = 0;
+    for(Object o: receivers.data) {
+      sum += PROXY_INSTANCEOF_SWITCH.typeSwitch(o);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int megamorphic_class_value_type_switch(Receivers receivers) {
+    int sum = 0;
+    for(Object o: receivers.data) {
+      sum += PROXY_CLASS_VALUE_SWITCH.typeSwitch(o);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int megamorphic_identity_table_type_switch(Receivers receivers) {
+    int sum = 0;
+    for(Object o: receivers.data) {
+      sum += PROXY_IDENTITY_TABLE_SWITCH.typeSwitch(o);
+    }
+    return sum;
+  }
+  
+  @Benchmark
+  public int megamorphic_instanceof_cascade(Receivers receivers) {
+    int sum = 0;
+    for(Object o: receivers.data) {
+      int value;
+      if (o instanceof P0) { value = 0; } else
+        if (o instanceof P1) { value = 1; } else
+          if (o instanceof P2) { value = 2; } else
+            if (o instanceof P3) { value = 3; } else
+              if (o instanceof P4) { value = 4; } else
+                if (o instanceof P5) { value = 5; } else
+                  if (o instanceof P6) { value = 6; } else
+                    if (o instanceof P7) { value = 7; } else
+                      if (o instanceof P8) { value = 8; } else
+                        { value = TypeSwitch.NO_MATCH; }
+      sum += value;
+    }
+    return sum;
+  }
+
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder().include(TypeSwitchBenchMark.class.getName()).build();
     new Runner(opt).run();
@@ -19,6 +19,8 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import com.github.forax.exotic.IntPostOrderVisitor;
+import com.github.forax.exotic.IntVisitor;
 import com.github.forax.exotic.Visitor;
 
 @Warmup(iterations = 5, time = 3, timeUnit = TimeUnit.SECONDS)
@@ -114,6 +116,14 @@ public class VisitorBenchMark {
       .register(Block.class,  (v, block, env)  -> { int result = 0; for(Expr expr: block.exprs) { result = v.visit(expr, env); } return result; })
       );
 
+  private static final IntVisitor<Env> EXOTIC_INT_VISITOR = IntVisitor.create(Env.class, opt -> opt
+      .register(Value.class,  (v, value, env)  -> value.value)
+      .register(Add.class,    (v, add, env)    -> v.visit(add.left, env) + v.visit(add.right, env))
+      .register(Var.class,    (v, var, env)    -> env.vars.getOrDefault(var.name, 0))
+      .register(Assign.class, (v, assign, env) -> { int let = v.visit(assign.expr, env); env.vars.put(assign.name, let); return let; })
+      .register(Block.class,  (v, block, env)  -> { int result = 0; for(Expr expr: block.exprs) { result = v.visit(expr, env); } return result; })
+      );
+
   private static final GofVisitor<Env, Integer> GOF_VISITOR = new GofVisitor<>() {
     @Override
     public Integer visitValue(Value value, Env env) { return value.value; }
@@ -137,6 +147,118 @@ public class VisitorBenchMark {
   }
      
   
+  // more than 8 subclasses of Value that have no registered visitlet
+  private static final Expr SUBCLASSES_CODE = new Add(
+      new Add(
+          new Add(new Value(1) { /*empty*/ }, new Value(2) { /*empty*/ }),
+          new Add(new Value(3) { /*empty*/ }, new Value(4) { /*empty*/ })),
+      new Add(
+          new Add(
+              new Add(new Value(5) { /*empty*/ }, new Value(6) { /*empty*/ }),
+              new Add(new Value(7) { /*empty*/ }, new Value(8) { /*empty*/ })),
+          new Add(
+              new Add(new Value(9) { /*empty*/ }, new Value(10) { /*empty*/ }),
+              new Add(new Value(11) { /*empty*/ }, new Value(12) { /*empty*/ }))));
+  
+  @Benchmark
+  public int exotic_visitor_subclasses() {
+    return EXOTIC_VISITOR.visit(SUBCLASSES_CODE, new Env());
+  }
+  
+  @Benchmark
+  public int gof_visitor_subclasses() {
+    return SUBCLASSES_CODE.accept(GOF_VISITOR, new Env());
+  }
+  
+  // a skewed tree, the left side of an Add is a Value or a Var, the right side is an Add
+  private static final Expr SKEWED_CODE;
+  static {
+    Expr expr = new Var("a");
+    for(int i = 0; i < 32; i++) {
+      expr = new Add((i % 4 == 0)? new Var("a"): new Value(i), expr);
+    }
+    SKEWED_CODE = new Block(List.of(new Assign("a", new Value(3)), new Assign("b", expr), new Var("b")));
+  }
+  
+  private static final Visitor<Env, Integer> EXOTIC_SLOT_VISITOR = Visitor.create(Env.class, int.class, opt -> opt
+      .register(Value.class,     (v, value, env)      -> value.value)
+      .register(Add.class, 2,    (slots, add, env)    -> slots.slot(0).visit(add.left, env) + slots.slot(1).visit(add.right, env))
+      .register(Var.class,       (v, var, env)        -> env.vars.getOrDefault(var.name, 0))
+      .register(Assign.class, 1, (slots, assign, env) -> { int let = slots.slot(0).visit(assign.expr, env); env.vars.put(assign.name, let); return let; })
+      .register(Block.class,     (v, block, env)      -> { int result = 0; for(Expr expr: block.exprs) { result = v.visit(expr, env); } return result; })
+      );
+  
+  @Benchmark
+  public int exotic_visitor_skewed() {
+    return EXOTIC_VISITOR.visit(SKEWED_CODE, new Env());
+  }
+  
+  @Benchmark
+  public int exotic_slot_visitor_skewed() {
+    return EXOTIC_SLOT_VISITOR.visit(SKEWED_CODE, new Env());
+  }
+  
+  @Benchmark
+  public int gof_visitor_skewed() {
+    return SKEWED_CODE.accept(GOF_VISITOR, new Env());
+  }
+  
+  // a tree of additions too deep to be visited recursively
+  private static final Expr DEEP_CODE;
+  static {
+    Expr expr = new Value(0);
+    for(int i = 0; i < 100_000; i++) {
+      expr = new Add(expr, new Value(i));
+    }
+    DEEP_CODE = expr;
+  }
+  
+  private static final IntPostOrderVisitor<Env> EXOTIC_POST_ORDER_VISITOR = IntPostOrderVisitor.create(Env.class, opt -> opt
+      .register(Value.class,  (value, results, env)  -> value.value)
+      .register(Add.class,    (add, children) -> { children.accept(add.left); children.accept(add.right); },
+                              (add, results, env)    -> results.get(0) + results.get(1))
+      .register(Var.class,    (var, results, env)    -> env.vars.getOrDefault(var.name, 0))
+      .register(Assign.class, (assign, children) -> children.accept(assign.expr),
+                              (assign, results, env) -> { int let = results.get(0); env.vars.put(assign.name, let); return let; })
+      .register(Block.class,  (block, children) -> block.exprs.forEach(children),
+                              (block, results, env)  -> results.size() == 0? 0: results.get(results.size() - 1))
+      );
+  
+  @Benchmark
+  public int exotic_post_order_visitor_skewed() {
+    return EXOTIC_POST_ORDER_VISITOR.visit(SKEWED_CODE, new Env());
+  }
+  
+  @Benchmark
+  public int exotic_post_order_visitor_deep() {
+    return EXOTIC_POST_ORDER_VISITOR.visit(DEEP_CODE, new Env());
+  }
+  
+  // a hash-consed expression, each Add shares the same sub-expression on both sides (2^16 paths)
+  private static final Expr SHARED_CODE;
+  static {
+    Expr expr = new Value(1);
+    for(int i = 0; i < 16; i++) {
+      expr = new Add(expr, expr);
+    }
+    SHARED_CODE = expr;
+  }
+  
+  private static final IntVisitor<Env> EXOTIC_MEMOIZING_INT_VISITOR = IntVisitor.createMemoizing(Env.class, opt -> opt
+      .register(Value.class,  (v, value, env)  -> value.value)
+      .register(Add.class,    (v, add, env)    -> v.visit(add.left, env) + v.visit(add.right, env))
+      );
+  
+  @Benchmark
+  public int exotic_int_visitor_shared() {
+    return EXOTIC_INT_VISITOR.visit(SHARED_CODE, new Env());
+  }
+  
+  @Benchmark
+  public int exotic_memoizing_int_visitor_shared() {
+    return EXOTIC_MEMOIZING_INT_VISITOR.visit(SHARED_CODE, new Env());
+  }
+  
   @Benchmark
   public int map_visitor() {
     return MAP_VISITOR.visit(CODE, new Env());
@@ -147,6 +269,12 @@ public class VisitorBenchMark {
     return EXOTIC_VISITOR.visit(CODE, new Env());
   }
 
+  // run with -prof gc to compare the allocation rate with exotic_visitor
+  @Benchmark
+  public int exotic_int_visitor() {
+    return EXOTIC_INT_VISITOR.visit(CODE, new Env());
+  }
+
   @Benchmark
   public int gof_visitor() {
     return CODE.accept(GOF_VISITOR, new Env());